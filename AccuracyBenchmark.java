@@ -0,0 +1,439 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Precisão x vazão de cada combinação em pares sintéticos com a transformação conhecida:
+//   java AccuracyBenchmark [ALGORITMO/MÉTRICA ...] [--sizes=128,256] [--noise=0,10] [--cases=2] [--seed=42]
+//                          [--source=images/fixed.png] [--out=reports/benchmark] [--baseline=anterior.json]
+//                          [--results=atual.json] [--chave=valor ...]
+// Cada caso parte da imagem de origem reduzida a size x size (o modelo). A cena é o modelo transformado por
+// ImageTransforms.applyTransform com a inversa de uma afim sorteada (sx, sy, theta, tx, ty), mais ruído
+// gaussiano de desvio noise (níveis de 0 a 255) em cada canal; o registro correto devolve exatamente essa
+// afim. Os casos dependem só de --seed, então duas rodadas com os mesmos argumentos usam os mesmos pares.
+//
+// Cada execução registra o erro de cada parâmetro, o erro geométrico (deslocamento médio, em pixels, de uma
+// grade 5x5 de pontos do modelo entre a transformação encontrada e a verdadeira), fitness, avaliações e tempo,
+// em <out>.json (configuração, execuções e resumo por combinação) e <out>.csv (uma linha por execução).
+// Sem combinações, roda todas as globais (GA, PSO, IGA, AGA, APSO, CMAES, DE com MSE e MI, e as GC). As demais
+// flags --chave=valor vão para RegistrationConfig (padrão: balanced; no fast quase nenhuma combinação acerta).
+//
+// Com --baseline, o resumo é comparado com o de um JSON anterior; com --results, a comparação usa um JSON já
+// gerado, sem rodar nada. Os otimizadores não têm semente fixa, então a comparação olha o resumo de cada
+// combinação (taxa de acerto e erro mediano) e não execuções isoladas; uma piora sai com código 1.
+public class AccuracyBenchmark {
+    private static final double SUCCESS_PIXELS = 2.0;      // Erro geométrico máximo de um acerto
+    private static final double ERROR_TOLERANCE = 0.5;     // Piora do erro mediano (fração) tolerada na comparação
+    private static final double ERROR_FLOOR_PIXELS = 0.5;  // Abaixo disso, a diferença de erro mediano é ruído
+    private static final String[] PARAMETERS = {"sx", "sy", "theta", "tx", "ty"};
+
+    // Par sintético: o modelo, a cena e a afim verdadeira (do modelo para a cena, como os resultados):
+    private static final class Case {
+        final int size;
+        final double noise;
+        final int index;
+        final double[] truth;
+        final PixelImage model;
+        final PixelImage scene;
+
+        Case(int size, double noise, int index, double[] truth, PixelImage model, PixelImage scene) {
+            this.size = size;
+            this.noise = noise;
+            this.index = index;
+            this.truth = truth;
+            this.model = model;
+            this.scene = scene;
+        }
+    }
+
+    private static final class Run {
+        final String combination;
+        final Case pair;
+        final ImageRegistration.RegistrationResult result;
+        final double pixelError;
+        final double[] parameterErrors; // null fora do modelo afim (homografia, FFD)
+
+        Run(String combination, Case pair, ImageRegistration.RegistrationResult result) {
+            this.combination = combination;
+            this.pair = pair;
+            this.result = result;
+            this.pixelError = pixelError(result.transformationMatrix, ParameterSpace.toMatrix(pair.truth), pair.size);
+            this.parameterErrors = result.deformation == null && result.parameters.length == PARAMETERS.length
+                    ? parameterErrors(result.parameters, pair.truth) : null;
+        }
+
+        boolean success() {
+            return pixelError <= SUCCESS_PIXELS;
+        }
+    }
+
+    // Resumo de uma combinação (o que a comparação usa):
+    private static final class Summary {
+        final String combination;
+        final int runs;
+        final int successes;
+        final double medianPixelError;
+        final double meanTimeMillis;
+        final double meanEvaluations;
+
+        Summary(String combination, int runs, int successes, double medianPixelError, double meanTimeMillis, double meanEvaluations) {
+            this.combination = combination;
+            this.runs = runs;
+            this.successes = successes;
+            this.medianPixelError = medianPixelError;
+            this.meanTimeMillis = meanTimeMillis;
+            this.meanEvaluations = meanEvaluations;
+        }
+
+        static Summary of(String combination, List<Run> runs) {
+            double[] errors = runs.stream().mapToDouble(run -> run.pixelError).sorted().toArray();
+            int successes = (int) runs.stream().filter(Run::success).count();
+            double time = runs.stream().mapToLong(run -> run.result.timeMillis).average().orElse(0);
+            double evaluations = runs.stream().mapToLong(run -> evaluations(run.result)).average().orElse(0);
+            double median = errors.length == 0 ? Double.NaN
+                    : (errors[(errors.length - 1) / 2] + errors[errors.length / 2]) / 2;
+            return new Summary(combination, runs.size(), successes, median, time, evaluations);
+        }
+
+        static Summary fromJson(Map<String, Object> json) {
+            return new Summary((String) json.get("combination"), number(json, "runs").intValue(),
+                               number(json, "successes").intValue(), number(json, "medianPixelError").doubleValue(),
+                               number(json, "meanTimeMillis").doubleValue(), number(json, "meanEvaluations").doubleValue());
+        }
+
+        private static Double number(Map<String, Object> json, String key) {
+            Object value = json.get(key);
+            return value instanceof Double ? (Double) value : Double.NaN;
+        }
+
+        double successRate() {
+            return runs == 0 ? 0 : (double) successes / runs;
+        }
+
+        String toJson() {
+            return "{\"combination\":" + Json.quote(combination) + ",\"runs\":" + runs + ",\"successes\":" + successes
+                 + ",\"medianPixelError\":" + Json.number(medianPixelError)
+                 + ",\"meanTimeMillis\":" + Json.number(meanTimeMillis)
+                 + ",\"meanEvaluations\":" + Json.number(meanEvaluations) + "}";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> combinations = new ArrayList<>();
+        List<String> configArgs = new ArrayList<>();
+        int[] sizes = {128, 256};
+        double[] noise = {0, 10};
+        int cases = 2;
+        long seed = 42;
+        String source = "images/fixed.png";
+        String out = "reports/benchmark";
+        String baseline = null;
+        String results = null;
+        try {
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    combinations.add(arg.toUpperCase(Locale.ROOT));
+                    continue;
+                }
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--sizes=")) sizes = Arrays.stream(value.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                else if (arg.startsWith("--noise=")) noise = Arrays.stream(value.split(",")).mapToDouble(s -> Double.parseDouble(s.trim())).toArray();
+                else if (arg.startsWith("--cases=")) cases = Integer.parseInt(value);
+                else if (arg.startsWith("--seed=")) seed = Long.parseLong(value);
+                else if (arg.startsWith("--source=")) source = value;
+                else if (arg.startsWith("--out=")) out = value;
+                else if (arg.startsWith("--baseline=")) baseline = value;
+                else if (arg.startsWith("--results=")) results = value;
+                else configArgs.add(arg);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido: " + e.getMessage());
+            return;
+        }
+
+        // Só a comparação de dois arquivos já gerados:
+        if (results != null) {
+            if (baseline == null) {
+                System.err.println("--results precisa de --baseline");
+                return;
+            }
+            if (!compare(readSummaries(Paths.get(baseline)), readSummaries(Paths.get(results)))) System.exit(1);
+            return;
+        }
+
+        RegistrationConfig config;
+        try {
+            config = RegistrationConfig.fromArgs(configArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (cases < 1 || sizes.length == 0 || noise.length == 0 || Arrays.stream(sizes).min().getAsInt() < 16
+                || Arrays.stream(noise).min().getAsDouble() < 0) {
+            System.err.println("--cases deve ser >= 1, --sizes (>= 16 px) e --noise (>= 0) precisam de ao menos um valor");
+            return;
+        }
+        if (combinations.isEmpty()) combinations = defaultCombinations();
+
+        BufferedImage image = ImageTransforms.loadImage(source);
+        if (image == null) {
+            System.err.println("Não foi possível carregar " + source);
+            return;
+        }
+        List<Case> pairs = cases(image, sizes, noise, cases, seed);
+        System.out.printf("%d combinações x %d pares sintéticos (tamanhos %s, ruído %s)\n", combinations.size(), pairs.size(),
+                          Arrays.toString(sizes), Arrays.toString(noise));
+
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        for (String combination : combinations) {
+            String[] parts = combination.split("/");
+            if (parts.length != 2) {
+                System.err.println("Combinação inválida: " + combination + " (use ALGORITMO/MÉTRICA, ex.: CMAES/MSE)");
+                return;
+            }
+            List<Run> list = new ArrayList<>();
+            for (Case pair : pairs) {
+                ImageRegistration.RegistrationResult result;
+                try {
+                    result = ImageRegistration.execute(parts[0], parts[1], pair.model, pair.scene, config.copy());
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    return;
+                }
+                if (result == null) {
+                    System.out.printf("%s %dpx ruído %s caso %d: sem resultado\n", combination, pair.size, format(pair.noise), pair.index);
+                    continue;
+                }
+                Run run = new Run(combination, pair, result);
+                list.add(run);
+                System.out.printf(Locale.ROOT, "%-10s %4dpx ruído %-4s caso %d: erro %7.2f px%s, %s = %.4f, %d avaliações, %d ms\n",
+                                  combination, pair.size, format(pair.noise), pair.index, run.pixelError, run.success() ? "" : " (falhou)",
+                                  result.fitnessType, result.fitness, evaluations(result), result.timeMillis);
+            }
+            runs.put(combination, list);
+        }
+
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Run>> entry : runs.entrySet()) summaries.put(entry.getKey(), Summary.of(entry.getKey(), entry.getValue()));
+        printSummaries(summaries);
+
+        Path jsonPath = Paths.get(out + ".json");
+        Path csvPath = Paths.get(out + ".csv");
+        if (jsonPath.getParent() != null) Files.createDirectories(jsonPath.getParent());
+        Files.write(jsonPath, toJson(config, sizes, noise, cases, seed, source, runs, summaries).getBytes(StandardCharsets.UTF_8));
+        Files.write(csvPath, toCsv(runs).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Resultados: " + jsonPath + ", " + csvPath);
+
+        if (baseline != null && !compare(readSummaries(Paths.get(baseline)), summaries)) System.exit(1);
+    }
+
+    // Combinações globais (o FFD parte de uma afim e não recupera uma sozinho):
+    private static List<String> defaultCombinations() {
+        List<String> combinations = new ArrayList<>();
+        for (String metric : new String[] {"MSE", "MI"}) {
+            for (String algorithm : new String[] {"GA", "PSO", "IGA", "AGA", "APSO", "CMAES", "DE"}) combinations.add(algorithm + "/" + metric);
+        }
+        for (String algorithm : new String[] {"IGA", "AGA", "APSO", "CMAES", "DE"}) combinations.add(algorithm + "/GC");
+        return combinations;
+    }
+
+    /* PARES SINTÉTICOS */
+
+    // Os mesmos sorteios em todos os tamanhos e níveis de ruído (translação em fração do tamanho), para
+    // que a diferença entre eles venha só do tamanho e do ruído:
+    private static List<Case> cases(BufferedImage image, int[] sizes, double[] noise, int cases, long seed) {
+        Random random = new Random(seed);
+        double[][] draws = new double[cases][];
+        for (int i = 0; i < cases; i++) {
+            draws[i] = new double[] {
+                0.8 + 0.4 * random.nextDouble(), 0.8 + 0.4 * random.nextDouble(), (random.nextDouble() * 2 - 1) * 30,
+                (random.nextDouble() * 2 - 1) * 0.15, (random.nextDouble() * 2 - 1) * 0.15
+            };
+        }
+
+        List<Case> pairs = new ArrayList<>();
+        for (int size : sizes) {
+            // Fator com meio pixel a mais para que (int) (largura * fator) dê exatamente size:
+            BufferedImage model = ImageTransforms.scale(image, (size + 0.5) / image.getWidth(), (size + 0.5) / image.getHeight());
+            PixelImage modelPixels = PixelImage.fromBufferedImage(model);
+            for (double sigma : noise) {
+                for (int i = 0; i < cases; i++) {
+                    double[] truth = {draws[i][0], draws[i][1], draws[i][2], draws[i][3] * size, draws[i][4] * size};
+                    BufferedImage scene = ImageTransforms.applyTransform(model, ImageTransforms.invert3x3(ParameterSpace.toMatrix(truth)));
+                    PixelImage scenePixels = PixelImage.fromBufferedImage(scene);
+                    addNoise(scenePixels, sigma, new Random(seed + 31L * (31L * size + i) + Double.doubleToLongBits(sigma)));
+                    pairs.add(new Case(size, sigma, i, truth, modelPixels, scenePixels));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static void addNoise(PixelImage image, double sigma, Random random) {
+        if (sigma == 0) return;
+        for (int k = 0; k < image.rgb.length; k++) {
+            int rgb = image.rgb[k];
+            int r = clamp(((rgb >> 16) & 0xFF) + (int) Math.round(random.nextGaussian() * sigma));
+            int g = clamp(((rgb >> 8) & 0xFF) + (int) Math.round(random.nextGaussian() * sigma));
+            int b = clamp((rgb & 0xFF) + (int) Math.round(random.nextGaussian() * sigma));
+            image.rgb[k] = (rgb & 0xFF000000) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+
+    /* ERROS */
+
+    // Deslocamento médio (pixels) de uma grade 5x5 de pontos do modelo entre as duas transformações:
+    static double pixelError(double[][] found, double[][] truth, int size) {
+        double sum = 0;
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                double[] p = {i * (size - 1) / 4.0, j * (size - 1) / 4.0, 1};
+                double[] a = ImageTransforms.multiplyMatVec(found, p);
+                double[] b = ImageTransforms.multiplyMatVec(truth, p);
+                sum += Math.hypot(a[0] / a[2] - b[0] / b[2], a[1] / a[2] - b[1] / b[2]);
+            }
+        }
+        return sum / 25;
+    }
+
+    // Erro absoluto de cada parâmetro; o de theta é o menor arco, em graus:
+    private static double[] parameterErrors(double[] found, double[] truth) {
+        double[] errors = new double[found.length];
+        for (int i = 0; i < found.length; i++) errors[i] = Math.abs(found[i] - truth[i]);
+        errors[2] = Math.abs(Math.IEEEremainder(found[2] - truth[2], 360));
+        return errors;
+    }
+
+    private static long evaluations(ImageRegistration.RegistrationResult result) {
+        return result.report != null ? result.report.getEvaluations() : 0;
+    }
+
+    /* SAÍDA */
+
+    private static void printSummaries(Map<String, Summary> summaries) {
+        System.out.printf("\n%-10s %9s %12s %12s %12s\n", "Combinação", "Acertos", "Erro (p50)", "Tempo médio", "Avaliações");
+        for (Summary s : summaries.values()) {
+            System.out.printf(Locale.ROOT, "%-10s %4d/%-4d %9.2f px %9.0f ms %12.0f\n",
+                              s.combination, s.successes, s.runs, s.medianPixelError, s.meanTimeMillis, s.meanEvaluations);
+        }
+    }
+
+    private static String toJson(RegistrationConfig config, int[] sizes, double[] noise, int cases, long seed, String source,
+                                 Map<String, List<Run>> runs, Map<String, Summary> summaries) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"source\":").append(Json.quote(source))
+          .append(",\"sizes\":").append(Arrays.toString(sizes).replace(" ", ""))
+          .append(",\"noise\":").append(Json.array(noise))
+          .append(",\"cases\":").append(cases)
+          .append(",\"seed\":").append(seed)
+          .append(",\"successPixels\":").append(Json.number(SUCCESS_PIXELS))
+          .append(",\"config\":").append(Json.quote(config.toString()))
+          .append(",\"summary\":[");
+        int n = 0;
+        for (Summary summary : summaries.values()) sb.append(n++ > 0 ? "," : "").append(summary.toJson());
+        sb.append("],\"runs\":[");
+        n = 0;
+        for (List<Run> list : runs.values()) {
+            for (Run run : list) {
+                ImageRegistration.RegistrationResult r = run.result;
+                sb.append(n++ > 0 ? "," : "")
+                  .append("{\"combination\":").append(Json.quote(run.combination))
+                  .append(",\"size\":").append(run.pair.size)
+                  .append(",\"noise\":").append(Json.number(run.pair.noise))
+                  .append(",\"case\":").append(run.pair.index)
+                  .append(",\"truth\":").append(Json.array(run.pair.truth))
+                  .append(",\"parameters\":").append(Json.array(r.parameters))
+                  .append(",\"parameterErrors\":").append(run.parameterErrors != null ? Json.array(run.parameterErrors) : "null")
+                  .append(",\"pixelError\":").append(Json.number(run.pixelError))
+                  .append(",\"success\":").append(run.success())
+                  .append(",\"fitnessType\":").append(Json.quote(r.fitnessType))
+                  .append(",\"fitness\":").append(Json.number(r.fitness))
+                  .append(",\"evaluations\":").append(evaluations(r))
+                  .append(",\"evaluationsToTarget\":").append(r.report != null ? r.report.getEvaluationsToTarget() : -1)
+                  .append(",\"timeMillis\":").append(r.timeMillis)
+                  .append(",\"stopped\":").append(r.stopped).append('}');
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String toCsv(Map<String, List<Run>> runs) {
+        StringBuilder sb = new StringBuilder("combination,size,noise,case");
+        for (String p : PARAMETERS) sb.append(",true_").append(p);
+        for (String p : PARAMETERS) sb.append(",found_").append(p);
+        for (String p : PARAMETERS) sb.append(",error_").append(p);
+        sb.append(",pixelError,success,fitnessType,fitness,evaluations,evaluationsToTarget,timeMillis,stopped\n");
+        for (List<Run> list : runs.values()) {
+            for (Run run : list) {
+                ImageRegistration.RegistrationResult r = run.result;
+                boolean affine = run.parameterErrors != null;
+                sb.append(run.combination).append(',').append(run.pair.size).append(',').append(format(run.pair.noise))
+                  .append(',').append(run.pair.index);
+                for (double v : run.pair.truth) sb.append(',').append(v);
+                for (int i = 0; i < PARAMETERS.length; i++) sb.append(',').append(affine ? String.valueOf(r.parameters[i]) : "");
+                for (int i = 0; i < PARAMETERS.length; i++) sb.append(',').append(affine ? String.valueOf(run.parameterErrors[i]) : "");
+                sb.append(',').append(run.pixelError).append(',').append(run.success()).append(',').append(r.fitnessType)
+                  .append(',').append(r.fitness).append(',').append(evaluations(r))
+                  .append(',').append(r.report != null ? r.report.getEvaluationsToTarget() : -1)
+                  .append(',').append(r.timeMillis).append(',').append(r.stopped).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(double v) {
+        return v == Math.rint(v) ? String.valueOf((long) v) : String.valueOf(v);
+    }
+
+    /* COMPARAÇÃO */
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Summary> readSummaries(Path path) throws IOException {
+        Map<String, Object> json = Json.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        Object list = json.get("summary");
+        if (!(list instanceof List)) throw new IllegalArgumentException(path + ": sem \"summary\"");
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (Object item : (List<Object>) list) {
+            Summary summary = Summary.fromJson((Map<String, Object>) item);
+            summaries.put(summary.combination, summary);
+        }
+        return summaries;
+    }
+
+    // Imprime a diferença por combinação; false se alguma piorou (menos acertos ou erro mediano bem maior):
+    static boolean compare(Map<String, Summary> before, Map<String, Summary> after) {
+        boolean ok = true;
+        System.out.printf("\n%-10s %13s %24s %26s  %s\n", "Combinação", "Acertos", "Erro (p50)", "Tempo médio", "Situação");
+        for (Summary now : after.values()) {
+            Summary old = before.get(now.combination);
+            if (old == null) {
+                System.out.printf("%-10s (sem referência)\n", now.combination);
+                continue;
+            }
+            boolean fewer = now.successRate() < old.successRate();
+            boolean worse = now.medianPixelError > Math.max(old.medianPixelError * (1 + ERROR_TOLERANCE), old.medianPixelError + ERROR_FLOOR_PIXELS);
+            ok &= !fewer && !worse;
+            System.out.printf(Locale.ROOT, "%-10s %4d/%d -> %d/%d %8.2f -> %8.2f px %6.0f -> %6.0f ms (%.2fx)  %s\n",
+                              now.combination, old.successes, old.runs, now.successes, now.runs,
+                              old.medianPixelError, now.medianPixelError, old.meanTimeMillis, now.meanTimeMillis,
+                              now.meanTimeMillis / Math.max(1, old.meanTimeMillis), fewer || worse ? "PIOROU" : "ok");
+        }
+        for (String combination : before.keySet()) {
+            if (!after.containsKey(combination)) System.out.printf("%-10s (só na referência)\n", combination);
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Algoritmo Genético steady-state assíncrono: não há gerações nem barreira global. Os workers avaliam
+// candidatos em paralelo e, assim que qualquer avaliação termina, o resultado entra na população
+// (substituindo o pior indivíduo, se for melhor) e um novo filho é gerado por torneio a partir da
+// população atual e despachado. Avaliações mais lentas (pouca sobreposição, por exemplo) não deixam
+// os outros núcleos ociosos.
+//
+// Só a thread coordenadora mexe na população; os workers apenas avaliam.
+public class AsyncGA {
+    private final FitnessFunction fitness;
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final GeneticOperators ops;
+    private RunReport report;
+
+    // População: genes e fitness em vetores paralelos (preenchida conforme as avaliações chegam):
+    private double[][] genes;
+    private double[] values;
+    private int size;
+
+    // Candidato avaliado por um worker:
+    private static class Evaluated {
+        final double[] params;
+        final double fitness;
+
+        Evaluated(double[] params, double fitness) {
+            this.params = params;
+            this.fitness = fitness;
+        }
+    }
+
+    public AsyncGA(FitnessFunction fitness, RegistrationConfig config) {
+        config.validate();
+        this.fitness = fitness;
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+        this.ops = new GeneticOperators(config, space, fitness.isMaximized(), new Random());
+    }
+
+    // Número de workers (avaliações simultâneas): config.asyncWorkers, ou o número de núcleos se 0, até maxThreads.
+    static int workers(RegistrationConfig config) {
+        return ResourceLimits.threads(config, config.asyncWorkers > 0 ? config.asyncWorkers : Runtime.getRuntime().availableProcessors());
+    }
+
+    public Solution run() {
+        report = new RunReport("AGA/" + fitness.metricName(), fitness.isMaximized(), fitness.target(), config);
+        int workers = workers(config);
+        int populationSize = config.populationSize;
+        // Mesmo orçamento do GA geracional: população inicial + maxGenerations gerações.
+        long budget = (long) populationSize * (config.maxGenerations + 1);
+
+        genes = new double[populationSize][];
+        values = new double[populationSize];
+        size = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CompletionService<Evaluated> completion = new ExecutorCompletionService<>(executor);
+
+        try {
+            long submitted = 0;
+            long completed = 0;
+            int inFlight = 0;
+            boolean stop = false;
+
+            // Enche os workers; enquanto a população não está completa, os candidatos são aleatórios:
+            while (inFlight < workers && submitted < budget) {
+                submit(completion, nextCandidate(submitted));
+                submitted++;
+                inFlight++;
+            }
+
+            // "Gerações" do relatório: blocos de populationSize avaliações concluídas.
+            report.beginGeneration(0);
+            while (inFlight > 0) {
+                Evaluated result = completion.take().get();
+                inFlight--;
+                completed++;
+                insert(result);
+
+                if (completed % populationSize == 0) {
+                    int generation = (int) (completed / populationSize) - 1;
+                    double best = values[bestIndex()];
+                    report.endGeneration(best);
+                    if (inFlight > 0 || (!stop && submitted < budget)) report.beginGeneration(generation + 1);
+                }
+
+                if (!stop && fitness.reachedTarget(result.fitness)) {
+                    report.setStopReason("fitness alvo atingido");
+                    stop = true;
+                }
+                // Parada externa: não despacha mais candidatos e espera os que estão em andamento.
+                if (config.stopRequested()) stop = true;
+
+                // Despacha o próximo candidato assim que um worker fica livre:
+                if (!stop && submitted < budget) {
+                    submit(completion, nextCandidate(submitted));
+                    submitted++;
+                    inFlight++;
+                }
+            }
+            if (completed % populationSize != 0) report.endGeneration(values[bestIndex()]);
+
+            int best = bestIndex();
+            return new Solution(genes[best].clone(), values[best]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execução interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha em uma avaliação: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            report.finish();
+        }
+    }
+
+    private void submit(CompletionService<Evaluated> completion, double[] params) {
+        completion.submit(() -> {
+            double value = fitness.evaluate(params);
+            report.recordEvaluation(value);
+            return new Evaluated(params, value);
+        });
+    }
+
+    // Os primeiros populationSize candidatos são aleatórios (população inicial); depois, filhos da população atual:
+    private double[] nextCandidate(long submitted) {
+        // O primeiro candidato é o palpite inicial, se houver:
+        if (submitted == 0 && config.initialGuess != null) return space.canonicalize(config.initialGuess);
+        if (submitted < config.populationSize || size < 2) {
+            return ops.randomParameters();
+        }
+        double[] parent1 = genes[ops.selectParent(values, size)];
+        double[] parent2 = genes[ops.selectParent(values, size)];
+        double[] child = ops.crossover(parent1, parent2);
+        ops.mutate(child);
+        return child;
+    }
+
+    // Steady-state: ocupa uma posição livre ou substitui o pior indivíduo, se o novo for melhor.
+    private void insert(Evaluated result) {
+        if (size < genes.length) {
+            genes[size] = result.params;
+            values[size] = result.fitness;
+            size++;
+            return;
+        }
+        int worst = 0;
+        for (int i = 1; i < size; i++) {
+            if (ops.isBetter(values[worst], values[i])) worst = i;
+        }
+        if (ops.isBetter(result.fitness, values[worst])) {
+            genes[worst] = result.params;
+            values[worst] = result.fitness;
+        }
+    }
+
+    private int bestIndex() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (ops.isBetter(values[i], values[best])) best = i;
+        }
+        return best;
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// PSO assíncrono e paralelo: o ciclo mover-avaliar-atualizar de cada partícula é uma tarefa em um pool de
+// workers, e ao terminar a partícula se reagenda para o próximo passo, sem barreira entre iterações.
+// Cada partícula publica seu pBest como um snapshot imutável (campo volatile) e o melhor global é
+// publicado por compare-and-set em um AtomicReference, então nenhuma leitura ou escrita usa lock.
+//
+// Vizinhança (de onde vem a atração social):
+//   GLOBAL      - melhor do enxame inteiro (gBest)
+//   RING        - a própria partícula e as vizinhas i-1 e i+1
+//   VON_NEUMANN - a própria partícula e as vizinhas em uma grade toroidal (esquerda, direita, acima, abaixo)
+// As vizinhanças locais propagam a informação mais devagar e preservam diversidade.
+public class AsyncPSO {
+    enum Topology { GLOBAL, RING, VON_NEUMANN }
+
+    private static final long PROGRESS_POLL_MILLIS = 20;
+
+    // Melhor posição conhecida (imutável depois de publicada):
+    private static final class Best {
+        final double[] position; // Normalizada em [0,1]^d
+        final double fitness;
+
+        Best(double[] position, double fitness) {
+            this.position = position;
+            this.fitness = fitness;
+        }
+    }
+
+    // Estado de uma partícula. position/velocity só são tocados pela tarefa da própria partícula
+    // (os passos de uma partícula nunca rodam ao mesmo tempo); pBest é lido pelas vizinhas.
+    private final class Particle {
+        final double[] position;
+        final double[] velocity;
+        final int[] neighbours;
+        volatile Best pBest;
+        int iteration;
+
+        Particle(double[] position, double[] velocity, int[] neighbours) {
+            this.position = position;
+            this.velocity = velocity;
+            this.neighbours = neighbours;
+        }
+    }
+
+    private final FitnessFunction fitness;
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final double[] velocityLimits;
+    private final AtomicReference<Best> gBest = new AtomicReference<>();
+    // Primeira exceção de uma avaliação: para o enxame e é relançada por run():
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile boolean stop;
+    private RunReport report;
+
+    public AsyncPSO(FitnessFunction fitness, RegistrationConfig config) {
+        config.validate();
+        this.fitness = fitness;
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+        this.velocityLimits = space.velocityLimits(config.vMax);
+    }
+
+    public Solution run() {
+        report = new RunReport("APSO/" + fitness.metricName(), fitness.isMaximized(), fitness.target(), config);
+        gBest.set(null);
+        failure.set(null);
+        stop = false;
+
+        int n = config.swarmSize;
+        Particle[] swarm = new Particle[n];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < n; i++) {
+            double[] pos = new double[space.size()];
+            double[] vel = new double[space.size()];
+            for (int j = 0; j < pos.length; j++) {
+                pos[j] = random.nextDouble();
+                vel[j] = (random.nextDouble() * 2 - 1) * velocityLimits[j];
+            }
+            // Palpite inicial (ex.: estimativa por FFT) na posição da primeira partícula:
+            if (i == 0 && config.initialGuess != null) space.place(config.initialGuess, pos, 0, true);
+            swarm[i] = new Particle(pos, vel, neighbours(i, n, config.psoTopology));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(AsyncGA.workers(config));
+        CountDownLatch finished = new CountDownLatch(n);
+        try {
+            for (Particle p : swarm) {
+                executor.execute(() -> step(p, swarm, executor, finished));
+            }
+
+            // A thread coordenadora só acompanha o progresso ("iterações" = blocos de swarmSize avaliações):
+            int iteration = 0;
+            report.beginGeneration(iteration);
+            while (!finished.await(PROGRESS_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                while (report.getEvaluations() >= (long) (iteration + 1) * n) {
+                    // A avaliação é registrada antes de publicar o pBest: sem melhor global ainda, espera a próxima volta.
+                    Best best = gBest.get();
+                    if (best == null) break;
+                    report.endGeneration(best.fitness);
+                    report.beginGeneration(++iteration);
+                }
+            }
+
+            RuntimeException error = failure.get();
+            if (error != null) throw error;
+            Best best = gBest.get();
+            if (best == null) throw new IllegalStateException("Nenhuma avaliação concluída");
+            report.endGeneration(best.fitness);
+            return new Solution(space.denormalize(best.position), best.fitness);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execução interrompida", e);
+        } finally {
+            stop = true;
+            executor.shutdownNow();
+            report.finish();
+        }
+    }
+
+    // Um passo da partícula: move (exceto no primeiro passo), avalia, atualiza pBest/gBest e se reagenda.
+    private void step(Particle p, Particle[] swarm, ExecutorService executor, CountDownLatch finished) {
+        try {
+            // Passos que já estavam na fila quando a parada foi pedida não avaliam (basta um melhor global;
+            // depois de uma falha, nem isso):
+            if (((stop || config.stopRequested()) && gBest.get() != null) || failure.get() != null) {
+                stop = true;
+                finished.countDown();
+                return;
+            }
+            if (p.iteration > 0) move(p, swarm);
+
+            double value = fitness.evaluate(space.denormalize(p.position));
+            report.recordEvaluation(value);
+
+            Best pBest = p.pBest;
+            if (pBest == null || fitness.isBetter(value, pBest.fitness)) {
+                Best candidate = new Best(p.position.clone(), value);
+                p.pBest = candidate;
+                publish(candidate);
+            }
+            if (fitness.reachedTarget(value)) {
+                report.setStopReason("fitness alvo atingido");
+                stop = true;
+            }
+            if (config.stopRequested()) stop = true;
+
+            p.iteration++;
+            // A inicialização conta como iteração 0; depois, maxIterations movimentos, como no PSOMSE.
+            if (!stop && p.iteration <= config.maxIterations) {
+                executor.execute(() -> step(p, swarm, executor, finished));
+                return;
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            stop = true;
+        }
+        finished.countDown();
+    }
+
+    private void move(Particle p, Particle[] swarm) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Inércia decrescente linear ao longo das iterações da própria partícula:
+        double w = config.wMax - ((config.wMax - config.wMin) * (p.iteration - 1) / config.maxIterations);
+        double[] social = socialBest(p, swarm).position;
+        double[] cognitive = p.pBest.position;
+
+        for (int i = 0; i < p.position.length; i++) {
+            double r1 = random.nextDouble();
+            double r2 = random.nextDouble();
+            p.velocity[i] = w * p.velocity[i]
+                          + config.c1 * r1 * space.normalizedDifference(i, cognitive[i], p.position[i])
+                          + config.c2 * r2 * space.normalizedDifference(i, social[i], p.position[i]);
+            p.velocity[i] = Math.max(-velocityLimits[i], Math.min(velocityLimits[i], p.velocity[i]));
+            p.position[i] += p.velocity[i];
+            space.confine(p.position, p.velocity, i, config.psoBoundary);
+        }
+    }
+
+    // Melhor posição conhecida na vizinhança (leituras sem lock dos snapshots publicados):
+    private Best socialBest(Particle p, Particle[] swarm) {
+        if (config.psoTopology == Topology.GLOBAL) return gBest.get();
+        Best best = p.pBest;
+        for (int k : p.neighbours) {
+            Best candidate = swarm[k].pBest;
+            if (candidate != null && fitness.isBetter(candidate.fitness, best.fitness)) best = candidate;
+        }
+        return best;
+    }
+
+    // Publica um novo melhor global por compare-and-set (só substitui se ainda for melhor):
+    private void publish(Best candidate) {
+        while (true) {
+            Best current = gBest.get();
+            if (current != null && !fitness.isBetter(candidate.fitness, current.fitness)) return;
+            if (gBest.compareAndSet(current, candidate)) return;
+        }
+    }
+
+    // Índices das vizinhas da partícula i em um enxame de n partículas:
+    static int[] neighbours(int i, int n, Topology topology) {
+        switch (topology) {
+            case RING:
+                return new int[] {(i - 1 + n) % n, (i + 1) % n};
+            case VON_NEUMANN:
+                // Grade toroidal com cols colunas, sobre os índices 0..n-1:
+                int cols = (int) Math.ceil(Math.sqrt(n));
+                return new int[] {(i - 1 + n) % n, (i + 1) % n, (i - cols % n + n) % n, (i + cols) % n};
+            case GLOBAL:
+            default:
+                return new int[0];
+        }
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
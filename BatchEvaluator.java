@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Avaliação em lote para os otimizadores geracionais (CMA-ES, DE): todos os candidatos de uma geração são
+// avaliados em paralelo, divididos em blocos contíguos entre asyncWorkers threads (0 = número de núcleos).
+// Os candidatos ficam no espaço normalizado [0,1]^d (ver Population); cada bloco converte para os
+// parâmetros reais no seu próprio buffer. Com 1 worker, avalia na thread chamadora, sem pool.
+// Com parada pedida (config.stopRequested), os candidatos ainda não avaliados ficam com o pior fitness.
+class BatchEvaluator implements AutoCloseable {
+    private final FitnessFunction fitness;
+    private final ParameterSpace space;
+    private final RegistrationConfig config;
+    private final RunReport report;
+    private final int workers;
+    private final ExecutorService executor;
+    private final double[][] scratch; // Parâmetros reais, um buffer por bloco
+
+    BatchEvaluator(FitnessFunction fitness, ParameterSpace space, RunReport report, RegistrationConfig config) {
+        this.fitness = fitness;
+        this.space = space;
+        this.config = config;
+        this.report = report;
+        this.workers = AsyncGA.workers(config);
+        this.executor = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
+        this.scratch = new double[workers][space.size()];
+    }
+
+    // Avalia os candidatos [from, size) e grava o fitness de cada um:
+    void evaluate(Population candidates, int from) {
+        int n = candidates.size - from;
+        if (executor == null || n <= 1) {
+            evaluate(candidates, from, candidates.size, scratch[0]);
+            return;
+        }
+
+        int blocks = Math.min(workers, n);
+        List<Callable<Void>> tasks = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            int start = from + (int) ((long) n * b / blocks);
+            int end = from + (int) ((long) n * (b + 1) / blocks);
+            double[] params = scratch[b];
+            tasks.add(() -> {
+                evaluate(candidates, start, end, params);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execução interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha em uma avaliação: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private void evaluate(Population candidates, int start, int end, double[] params) {
+        for (int i = start; i < end; i++) {
+            if (config.stopRequested()) {
+                candidates.fitness[i] = fitness.worst();
+                continue;
+            }
+            space.denormalize(candidates.genes, candidates.offset(i), params);
+            double value = fitness.evaluate(params);
+            report.recordEvaluation(value);
+            candidates.fitness[i] = value;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// CMA-ES (Covariance Matrix Adaptation Evolution Strategy) no espaço normalizado [0,1]^d.
+// A cada geração sorteia lambda = populationSize candidatos de N(m, sigma^2 C), avalia todos em lote
+// (em paralelo, ver BatchEvaluator) e atualiza a média m pelos mu melhores, a matriz de covariância C
+// (caminho de evolução + rank-mu) e o passo sigma (controle pelo comprimento do caminho).
+// Diferente da mutação de sigma fixo do GA, C aprende a escala e as correlações entre os parâmetros
+// (por exemplo, escala x translação).
+//
+// O ângulo periódico dá a volta em [0, 1); nas demais dimensões o candidato é limitado à borda e o
+// passo usado na atualização é o do ponto corrigido. Orçamento igual ao do GA: populationSize *
+// (maxGenerations + 1) avaliações.
+public class CMAES {
+    private static final double MAX_SIGMA = 1.0;    // Passo máximo (o intervalo inteiro)
+    private static final double MIN_EIGENVALUE = 1e-20;
+
+    private final FitnessFunction fitness;
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final Random random = new Random();
+    private RunReport report;
+
+    public CMAES(FitnessFunction fitness, RegistrationConfig config) {
+        config.validate();
+        this.fitness = fitness;
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+    }
+
+    public Solution run() {
+        report = new RunReport("CMAES/" + fitness.metricName(), fitness.isMaximized(), fitness.target(), config);
+        int n = space.size();
+        int lambda = config.populationSize;
+        int mu = lambda / 2;
+
+        // Pesos de recombinação (log-decrescentes) e constantes de adaptação (valores padrão de Hansen):
+        double[] weights = new double[mu];
+        double sum = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+            sum += weights[i];
+        }
+        double sumSquares = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] /= sum;
+            sumSquares += weights[i] * weights[i];
+        }
+        double mueff = 1.0 / sumSquares;
+        double cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+        double cs = (mueff + 2) / (n + mueff + 5);
+        double c1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+        double cmu = Math.min(1 - c1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+        double damps = 1 + 2 * Math.max(0, Math.sqrt((mueff - 1) / (n + 1)) - 1) + cs;
+        double chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21.0 * n * n));
+
+        // Estado: média no palpite inicial (ou no centro do espaço), C = I.
+        double[] mean = new double[n];
+        Arrays.fill(mean, 0.5);
+        if (config.initialGuess != null) space.place(config.initialGuess, mean, 0, true);
+        double sigma = config.cmaSigma;
+        double[][] c = identity(n);
+        double[][] b = identity(n);   // Autovetores de C (colunas)
+        double[] d = new double[n];   // Raiz dos autovalores de C
+        Arrays.fill(d, 1.0);
+        double[] pc = new double[n];
+        double[] ps = new double[n];
+
+        Population samples = new Population(lambda, n);
+        double[][] steps = new double[lambda][n]; // y = (x - m) / sigma de cada candidato (já corrigido)
+        int[] order = new int[lambda];
+        double[] z = new double[n];
+        double[] yw = new double[n];
+        double[] tmp = new double[n];
+
+        double[] bestPosition = new double[n];
+        double bestFitness = fitness.worst();
+
+        try (BatchEvaluator evaluator = new BatchEvaluator(fitness, space, report, config)) {
+            for (int generation = 0; generation <= config.maxGenerations; generation++) {
+                report.beginGeneration(generation);
+
+                // Amostragem: x = m + sigma * B * D * z, com z ~ N(0, I):
+                for (int k = 0; k < lambda; k++) {
+                    for (int i = 0; i < n; i++) z[i] = d[i] * random.nextGaussian();
+                    int offset = samples.offset(k);
+                    for (int i = 0; i < n; i++) {
+                        double y = 0;
+                        for (int j = 0; j < n; j++) y += b[i][j] * z[j];
+                        double x = repair(i, mean[i] + sigma * y);
+                        samples.genes[offset + i] = x;
+                        steps[k][i] = space.normalizedDifference(i, x, mean[i]) / sigma;
+                    }
+                }
+                evaluator.evaluate(samples, 0);
+
+                // Ordena os candidatos do melhor para o pior (inserção; lambda é pequeno):
+                for (int k = 0; k < lambda; k++) {
+                    int j = k;
+                    while (j > 0 && fitness.isBetter(samples.fitness[k], samples.fitness[order[j - 1]])) {
+                        order[j] = order[j - 1];
+                        j--;
+                    }
+                    order[j] = k;
+                }
+                if (fitness.isBetter(samples.fitness[order[0]], bestFitness)) {
+                    bestFitness = samples.fitness[order[0]];
+                    samples.copyParameters(order[0], bestPosition);
+                }
+
+                // Nova média: m += sigma * soma(w_i * y_i) dos mu melhores.
+                Arrays.fill(yw, 0);
+                for (int r = 0; r < mu; r++) {
+                    double[] y = steps[order[r]];
+                    for (int i = 0; i < n; i++) yw[i] += weights[r] * y[i];
+                }
+                for (int i = 0; i < n; i++) mean[i] = repair(i, mean[i] + sigma * yw[i]);
+
+                // Caminho de sigma: ps = (1 - cs) ps + sqrt(cs (2 - cs) mueff) * C^(-1/2) * yw
+                for (int i = 0; i < n; i++) {
+                    double t = 0;
+                    for (int j = 0; j < n; j++) t += b[j][i] * yw[j];
+                    tmp[i] = t / d[i];
+                }
+                double psNorm = 0;
+                for (int i = 0; i < n; i++) {
+                    double t = 0;
+                    for (int j = 0; j < n; j++) t += b[i][j] * tmp[j];
+                    ps[i] = (1 - cs) * ps[i] + Math.sqrt(cs * (2 - cs) * mueff) * t;
+                    psNorm += ps[i] * ps[i];
+                }
+                psNorm = Math.sqrt(psNorm);
+
+                // Caminho de C (interrompido quando ps é grande demais, ex.: após um passo longo):
+                boolean hsig = psNorm / Math.sqrt(1 - Math.pow(1 - cs, 2.0 * (generation + 1))) / chiN < 1.4 + 2.0 / (n + 1);
+                for (int i = 0; i < n; i++) {
+                    pc[i] = (1 - cc) * pc[i] + (hsig ? Math.sqrt(cc * (2 - cc) * mueff) * yw[i] : 0);
+                }
+
+                // C = (1 - c1 - cmu) C + c1 (pc pc^T + correção) + cmu * soma(w_i y_i y_i^T):
+                double correction = hsig ? 0 : cc * (2 - cc);
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j <= i; j++) {
+                        double rankMu = 0;
+                        for (int r = 0; r < mu; r++) {
+                            double[] y = steps[order[r]];
+                            rankMu += weights[r] * y[i] * y[j];
+                        }
+                        c[i][j] = (1 - c1 - cmu) * c[i][j]
+                                + c1 * (pc[i] * pc[j] + correction * c[i][j])
+                                + cmu * rankMu;
+                        c[j][i] = c[i][j];
+                    }
+                }
+
+                sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1));
+                sigma = Math.min(sigma, MAX_SIGMA);
+
+                // B e D para a próxima amostragem (C é 5x5, então a decomposição a cada geração é barata):
+                eigen(c, b, d);
+                for (int i = 0; i < n; i++) d[i] = Math.sqrt(Math.max(d[i], MIN_EIGENVALUE));
+
+                report.endGeneration(bestFitness);
+
+                if (fitness.reachedTarget(bestFitness)) {
+                    report.setStopReason("fitness alvo atingido");
+                    break;
+                }
+                if (config.stopRequested()) break;
+            }
+            return new Solution(space.denormalize(bestPosition), bestFitness);
+        } finally {
+            report.finish();
+        }
+    }
+
+    // Mantém a coordenada em [0, 1] (o ângulo periódico dá a volta):
+    private double repair(int i, double x) {
+        if (space.isPeriodic(i)) return x - Math.floor(x);
+        return Math.max(0.0, Math.min(1.0, x));
+    }
+
+    private static double[][] identity(int n) {
+        double[][] m = new double[n][n];
+        for (int i = 0; i < n; i++) m[i][i] = 1.0;
+        return m;
+    }
+
+    // Autovalores/autovetores da matriz simétrica a (método de Jacobi): vectors recebe os autovetores
+    // nas colunas e values os autovalores. a não é alterada.
+    static void eigen(double[][] a, double[][] vectors, double[] values) {
+        int n = values.length;
+        double[][] m = new double[n][];
+        for (int i = 0; i < n; i++) {
+            m[i] = a[i].clone();
+            Arrays.fill(vectors[i], 0.0);
+            vectors[i][i] = 1.0;
+        }
+
+        for (int sweep = 0; sweep < 50; sweep++) {
+            double off = 0;
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) off += m[p][q] * m[p][q];
+            }
+            if (off < 1e-30) break;
+
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    if (m[p][q] == 0) continue;
+                    // Rotação que zera m[p][q]:
+                    double theta = (m[q][q] - m[p][p]) / (2 * m[p][q]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) t = 1;
+                    double cos = 1 / Math.sqrt(t * t + 1);
+                    double sin = t * cos;
+                    for (int k = 0; k < n; k++) {
+                        double mkp = m[k][p];
+                        double mkq = m[k][q];
+                        m[k][p] = cos * mkp - sin * mkq;
+                        m[k][q] = sin * mkp + cos * mkq;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double mpk = m[p][k];
+                        double mqk = m[q][k];
+                        m[p][k] = cos * mpk - sin * mqk;
+                        m[q][k] = sin * mpk + cos * mqk;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double vkp = vectors[k][p];
+                        double vkq = vectors[k][q];
+                        vectors[k][p] = cos * vkp - sin * vkq;
+                        vectors[k][q] = sin * vkp + cos * vkq;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) values[i] = m[i][i];
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Checkpoint de uma execução do GA ou do PSO (runGA/runPSO): os vetores da população/enxame (e pBest, gBest e
+// velocidades no PSO), a próxima geração/iteração e o estado do gerador aleatório (RestorableRandom). Retomar
+// de um checkpoint reproduz exatamente a execução que não foi interrompida.
+//
+// Arquivo binário (DataOutputStream): assinatura, versão, nome do otimizador, impressão digital da
+// configuração (para recusar um checkpoint de outra configuração), geração, gerador e os vetores, cada um
+// precedido do tamanho. A gravação vai para um arquivo temporário que depois substitui o anterior, então um
+// processo morto no meio da gravação deixa o checkpoint anterior intacto.
+final class Checkpoint {
+    private static final int MAGIC = 0x52434B50; // "RCKP"
+    private static final int VERSION = 1;
+
+    final String engine;     // "GA/MSE", "PSO/MI", ...
+    final long configHash;   // Ver fingerprint
+    final int generation;    // Próxima geração/iteração a executar
+    final long[] random;     // RestorableRandom.state()
+    final double[][] arrays; // Estado do otimizador, na ordem definida por cada otimizador
+
+    // Os vetores são copiados: o otimizador continua alterando os originais enquanto a gravação acontece.
+    Checkpoint(String engine, RegistrationConfig config, int generation, RestorableRandom random, double[]... arrays) {
+        this(engine, fingerprint(config), generation, random.state(), copy(arrays));
+    }
+
+    private Checkpoint(String engine, long configHash, int generation, long[] random, double[][] arrays) {
+        this.engine = engine;
+        this.configHash = configHash;
+        this.generation = generation;
+        this.random = random;
+        this.arrays = arrays;
+    }
+
+    private static double[][] copy(double[][] arrays) {
+        double[][] copies = new double[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) copies[i] = arrays[i].clone();
+        return copies;
+    }
+
+    // Checkpoint a retomar: com config.resume e o arquivo existente, lê e confere se é do mesmo otimizador e
+    // da mesma configuração; senão, null (a execução começa do zero).
+    static Checkpoint resume(String engine, RegistrationConfig config) {
+        if (config.checkpointFile == null || !config.resume) return null;
+        Path path = Paths.get(config.checkpointFile);
+        if (!Files.exists(path)) return null;
+        Checkpoint checkpoint;
+        try {
+            checkpoint = read(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Checkpoint ilegível em " + path + ": " + e.getMessage());
+        }
+        if (!checkpoint.engine.equals(engine)) {
+            throw new IllegalArgumentException("Checkpoint de " + checkpoint.engine + ", não de " + engine + ": " + path);
+        }
+        if (checkpoint.configHash != fingerprint(config)) {
+            throw new IllegalArgumentException("Checkpoint gravado com outra configuração: " + path);
+        }
+        RunReport.message(config, engine, "Retomando da geração " + checkpoint.generation + " (" + path + ")");
+        return checkpoint;
+    }
+
+    // Copia o vetor index do checkpoint para target (que já tem o tamanho da configuração atual):
+    void restore(int index, double[] target) {
+        if (index >= arrays.length || arrays[index].length != target.length) {
+            throw new IllegalArgumentException("Checkpoint incompatível com a população/enxame atual");
+        }
+        System.arraycopy(arrays[index], 0, target, 0, target.length);
+    }
+
+    // Valor único (vetor de tamanho 1) gravado na posição index:
+    double value(int index) {
+        double[] value = new double[1];
+        restore(index, value);
+        return value[0];
+    }
+
+    // Impressão digital da configuração, sem as chaves que não mudam a trajetória da busca (o próprio checkpoint
+    // e os limites da execução, para retomar, por exemplo, uma execução que parou no prazo):
+    static long fingerprint(RegistrationConfig config) {
+        RegistrationConfig canonical = config.copy();
+        canonical.checkpointFile = null;
+        canonical.checkpointInterval = 1;
+        canonical.resume = false;
+        canonical.timeoutMillis = 0;
+        canonical.maxThreads = 0;
+        canonical.maxMemoryMB = 0;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) hash = (hash << 8) | (digest[i] & 0xFF);
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(engine);
+            out.writeLong(configHash);
+            out.writeInt(generation);
+            for (long value : random) out.writeLong(value);
+            out.writeInt(arrays.length);
+            for (double[] array : arrays) {
+                out.writeInt(array.length);
+                for (double value : array) out.writeDouble(value);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Checkpoint read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException("não é um arquivo de checkpoint");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("versão " + version + " não suportada");
+            String engine = in.readUTF();
+            long configHash = in.readLong();
+            int generation = in.readInt();
+            long[] random = {in.readLong(), in.readLong(), in.readLong()};
+            int count = in.readInt();
+            if (count < 0 || count > 64) throw new IOException("número de vetores inválido: " + count);
+            double[][] arrays = new double[count][];
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > 1 << 24) throw new IOException("tamanho de vetor inválido: " + length);
+                arrays[i] = new double[length];
+                for (int j = 0; j < length; j++) arrays[i][j] = in.readDouble();
+            }
+            return new Checkpoint(engine, configHash, generation, random, arrays);
+        }
+    }
+
+    // Gravação em segundo plano: o laço do otimizador só copia os vetores (submit) e segue; uma thread grava.
+    // Se um checkpoint chega enquanto o anterior ainda está sendo gravado, só o mais recente é gravado depois.
+    static final class Writer {
+        private final Path path;
+        private final int interval;
+        private final RegistrationConfig config; // Para informar falhas de gravação (ProgressListener.message)
+        private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+        private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "checkpoint-writer"));
+
+        private Writer(Path path, int interval, RegistrationConfig config) {
+            this.path = path;
+            this.interval = interval;
+            this.config = config;
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        // null se config.checkpointFile não estiver definido:
+        static Writer forConfig(RegistrationConfig config) {
+            return config.checkpointFile == null ? null : new Writer(Paths.get(config.checkpointFile), config.checkpointInterval, config);
+        }
+
+        // true se o checkpoint deve ser gravado depois de concluir a geração/iteração generation:
+        boolean due(int generation) {
+            return (generation + 1) % interval == 0;
+        }
+
+        void submit(Checkpoint checkpoint) {
+            if (pending.getAndSet(checkpoint) == null) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            Checkpoint checkpoint = pending.getAndSet(null);
+            if (checkpoint == null) return;
+            try {
+                checkpoint.write(path);
+            } catch (IOException e) {
+                RunReport.message(config, checkpoint.engine, "Falha ao gravar o checkpoint " + path + ": " + e.getMessage());
+            }
+        }
+
+        // Espera a gravação pendente terminar (fim da execução):
+        void close() {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Random;
+
+// Evolução Diferencial (DE) no espaço normalizado [0,1]^d. Para cada indivíduo x, o vetor mutante é
+//   RAND_1: v = a + F * (b - c)        (a, b, c aleatórios e distintos de x)
+//   BEST_1: v = best + F * (b - c)     (converge mais rápido, explora menos)
+// e o candidato (trial) troca cada coordenada de x pela de v com probabilidade CR (crossover binomial,
+// com ao menos uma coordenada de v). O trial substitui x se não for pior.
+//
+// Todos os trials de uma geração são gerados antes de avaliar, então a geração é avaliada em lote,
+// em paralelo (ver BatchEvaluator). Orçamento igual ao do GA: populationSize * (maxGenerations + 1).
+public class DifferentialEvolution {
+    enum Strategy { RAND_1, BEST_1 }
+
+    private final FitnessFunction fitness;
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final Random random = new Random();
+    private RunReport report;
+
+    public DifferentialEvolution(FitnessFunction fitness, RegistrationConfig config) {
+        config.validate();
+        // A mutação usa 3 indivíduos distintos do alvo:
+        if (config.populationSize < 4) throw new IllegalArgumentException("DE precisa de populationSize >= 4");
+        this.fitness = fitness;
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+    }
+
+    public Solution run() {
+        report = new RunReport("DE/" + fitness.metricName(), fitness.isMaximized(), fitness.target(), config);
+        int n = config.populationSize;
+        int dim = space.size();
+        Population population = new Population(n, dim);
+        Population trials = new Population(n, dim);
+
+        try (BatchEvaluator evaluator = new BatchEvaluator(fitness, space, report, config)) {
+            for (int k = 0; k < population.genes.length; k++) population.genes[k] = random.nextDouble();
+            if (config.initialGuess != null) space.place(config.initialGuess, population.genes, 0, true);
+            evaluator.evaluate(population, 0);
+            int best = population.bestIndex(fitness.isMaximized());
+
+            for (int generation = 0; generation < config.maxGenerations; generation++) {
+                report.beginGeneration(generation);
+
+                for (int i = 0; i < n; i++) createTrial(population, best, i, trials);
+                evaluator.evaluate(trials, 0);
+
+                // Seleção um a um (o trial empata ou vence o alvo):
+                for (int i = 0; i < n; i++) {
+                    if (!fitness.isBetter(population.fitness[i], trials.fitness[i])) {
+                        population.copyFrom(trials, i, i);
+                        if (fitness.isBetter(population.fitness[i], population.fitness[best])) best = i;
+                    }
+                }
+
+                double bestFitness = population.fitness[best];
+                report.endGeneration(bestFitness);
+
+                if (fitness.reachedTarget(bestFitness)) {
+                    report.setStopReason("fitness alvo atingido");
+                    break;
+                }
+                if (config.stopRequested()) break;
+            }
+            return new Solution(space.denormalize(population.parameters(best)), population.fitness[best]);
+        } finally {
+            report.finish();
+        }
+    }
+
+    // Trial do indivíduo i (mutação diferencial + crossover binomial), gravado em trials[i]:
+    private void createTrial(Population population, int best, int i, Population trials) {
+        int n = population.size;
+        int a;
+        int b;
+        int c;
+        do { a = random.nextInt(n); } while (a == i);
+        do { b = random.nextInt(n); } while (b == i || b == a);
+        do { c = random.nextInt(n); } while (c == i || c == a || c == b);
+        int base = config.deStrategy == Strategy.BEST_1 ? best : a;
+
+        double[] genes = population.genes;
+        int target = population.offset(i);
+        int out = trials.offset(i);
+        int forced = random.nextInt(space.size()); // Coordenada que sempre vem do mutante
+        for (int j = 0; j < space.size(); j++) {
+            double x = genes[target + j];
+            if (j != forced && random.nextDouble() >= config.deCR) {
+                trials.genes[out + j] = x;
+                continue;
+            }
+            double v = genes[population.offset(base) + j]
+                     + config.deF * space.normalizedDifference(j, genes[population.offset(b) + j], genes[population.offset(c) + j]);
+            trials.genes[out + j] = repair(j, v, x);
+        }
+    }
+
+    // Mantém a coordenada em [0, 1]: o ângulo periódico dá a volta; nas demais dimensões, o valor que sai
+    // volta para o ponto médio entre o alvo e a borda (preserva diversidade melhor que limitar à borda).
+    private double repair(int j, double v, double x) {
+        if (space.isPeriodic(j)) return v - Math.floor(v);
+        if (v < 0.0) return x / 2;
+        if (v > 1.0) return (x + 1.0) / 2;
+        return v;
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
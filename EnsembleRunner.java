@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Executa várias combinações ALGORITMO/MÉTRICA sobre o mesmo par de imagens, até concurrentRuns ao mesmo
+// tempo (0 = todas). As imagens são decodificadas uma vez e compartilhadas por todas as execuções, assim
+// como os bins da MI do modelo (PixelImage.bins). Os kernels das métricas dividem as linhas da imagem no
+// ForkJoinPool comum, então as execuções simultâneas disputam o mesmo conjunto de threads em vez de cada
+// uma criar o seu; os otimizadores com avaliação em lote (asyncWorkers = 0) dividem os núcleos entre si.
+//
+// Com stopOnTarget, a primeira execução que termina no fitness alvo da sua métrica aciona um StopToken
+// compartilhado e as demais param antes da próxima avaliação, devolvendo o melhor encontrado até ali
+// (marcadas como interrompidas no resultado); as que ainda não tinham começado voltam como puladas
+// (RegistrationResult.skipped), também marcadas como interrompidas.
+class EnsembleRunner {
+    private EnsembleRunner() {
+    }
+
+    // Resultados na ordem das combinações (null para uma execução que falhou; RegistrationResult.skipped para
+    // uma que não chegou a começar):
+    static ImageRegistration.RegistrationResult[] run(List<String> combinations, PixelImage model, PixelImage scene,
+                                                      RegistrationConfig config) {
+        config.validate();
+        List<String[]> parsed = new ArrayList<>();
+        for (String combination : combinations) {
+            String[] parts = combination.split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Combinação inválida: " + combination + " (use ALGORITMO/MÉTRICA, ex.: GA/MSE)");
+            }
+            parsed.add(parts);
+        }
+
+        int runs = parsed.size();
+        int threads = config.concurrentRuns == 0 ? runs : Math.min(config.concurrentRuns, runs);
+        RegistrationConfig shared = config.copy();
+        if (config.stopOnTarget && shared.stop == null) shared.stop = new StopToken();
+        if (threads > 1 && shared.asyncWorkers == 0) {
+            shared.asyncWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        }
+
+        ImageRegistration.RegistrationResult[] results = new ImageRegistration.RegistrationResult[runs];
+        if (threads <= 1) {
+            for (int i = 0; i < runs; i++) results[i] = runOne(parsed.get(i), model, scene, shared);
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ImageRegistration.RegistrationResult>> futures = new ArrayList<>();
+            for (String[] parts : parsed) futures.add(executor.submit(() -> runOne(parts, model, scene, shared)));
+            for (int i = 0; i < runs; i++) {
+                try {
+                    results[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    RunReport.message(shared, String.join("/", parsed.get(i)), "falhou: " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (shared.stop != null) shared.stop.stop("interrompido");
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+    private static ImageRegistration.RegistrationResult runOne(String[] parts, PixelImage model, PixelImage scene,
+                                                               RegistrationConfig config) {
+        // Uma execução que começa depois da parada nem chega a rodar:
+        if (config.stopRequested()) {
+            String metric = parts[1].toUpperCase(Locale.ROOT);
+            return ImageRegistration.RegistrationResult.skipped(parts[0].toUpperCase(Locale.ROOT) + "/" + metric, metric,
+                                                                config.stop.reason());
+        }
+        ImageRegistration.RegistrationResult result = ImageRegistration.execute(parts[0], parts[1], model, scene, config);
+        if (result == null || config.stop == null) return result;
+
+        // As execuções paradas pelo token já voltam marcadas (ImageRegistration.execute):
+        if (!result.stopped && reachedTarget(result, config)) config.stop.stop(result.name + " atingiu o alvo");
+        return result;
+    }
+
+    private static boolean reachedTarget(ImageRegistration.RegistrationResult result, RegistrationConfig config) {
+        switch (result.fitnessType) {
+            case "MI": return result.fitness > config.targetMI;
+            case "GC": return result.fitness > config.targetGC;
+            default:   return result.fitness < config.targetMSE;
+        }
+    }
+}
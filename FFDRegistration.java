@@ -0,0 +1,226 @@
+import java.util.Locale;
+
+// Registro deformável por FFD (FreeFormDeformation), do grosso para o fino: começa com ffdGrid células por
+// lado e, a cada um dos ffdLevels níveis, a grade é subdividida (o dobro de células, mesma deformação).
+// Em cada nível, busca por coordenadas: cada ponto de controle tenta andar +passo/-passo em x e em y e fica
+// com o movimento que melhora a métrica; uma varredura sem nenhum movimento aceito divide o passo por 2.
+//
+// A métrica (MSE ou MI, mesmas definições de RegistrationMetrics) é incremental: o deslocamento, o erro
+// (MSE) e o bin da cena (MI) de cada pixel ficam guardados, e mover um ponto só reavalia os pixels das 4x4
+// células que ele influencia, atualizando a soma dos erros ou o histograma conjunto. Cada tentativa conta
+// como uma avaliação no relatório.
+public class FFDRegistration {
+    private static final double MIN_STEP = 0.5;         // Passo (pixels) abaixo do qual o nível termina
+    private static final double MAX_DISPLACEMENT = 0.4; // Deslocamento máximo de um ponto, em células (evita dobras)
+
+    private final PixelImage model;
+    private final PixelImage scene;
+    private final RegistrationConfig config;
+    private final boolean mutualInformation; // true para MI, false para MSE
+    private final double[][] base;           // Transformação global aplicada antes da deformação
+    private final int w;
+    private final int h;
+    private RunReport report;
+    private FreeFormDeformation deformation;
+
+    // Estado por pixel (índice y * w + x):
+    private final double[] baseU;     // base^-1(x), sem deformação
+    private final double[] baseV;
+    private final double[] dispX;     // D(x) atual
+    private final double[] dispY;
+    private final int[] value;        // MSE: erro quadrático do pixel; MI: bin da cena
+    private final int[] trial;        // O mesmo, para o movimento em teste
+    private final int[] modelBins;    // MI: bins do modelo (PixelImage.bins, índice da imagem do modelo)
+    private long sumSquaredError;
+    private long[] jointHistogram;
+    private double fitness;
+
+    public FFDRegistration(String metric, PixelImage model, PixelImage scene, double[][] base, RegistrationConfig config) {
+        config.validate();
+        switch (metric.toUpperCase(Locale.ROOT)) {
+            case "MSE": this.mutualInformation = false; break;
+            case "MI":  this.mutualInformation = true; break;
+            default:
+                throw new IllegalArgumentException("Métrica desconhecida: " + metric + " (use MSE ou MI)");
+        }
+        this.model = model;
+        this.scene = scene;
+        this.config = config;
+        this.base = base;
+        this.w = Math.min(this.model.width, this.scene.width);
+        this.h = Math.min(this.model.height, this.scene.height);
+        int n = w * h;
+        this.baseU = new double[n];
+        this.baseV = new double[n];
+        this.dispX = new double[n];
+        this.dispY = new double[n];
+        this.value = new int[n];
+        this.trial = new int[n];
+        this.modelBins = mutualInformation ? model.bins(config.numBins) : null;
+
+        double[][] invBase = RegistrationMetrics.inverse(base);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int k = y * w + x;
+                double s = invBase[2][0] * x + invBase[2][1] * y + invBase[2][2];
+                baseU[k] = (invBase[0][0] * x + invBase[0][1] * y + invBase[0][2]) / s;
+                baseV[k] = (invBase[1][0] * x + invBase[1][1] * y + invBase[1][2]) / s;
+            }
+        }
+    }
+
+    public Solution run() {
+        String metricName = mutualInformation ? "MI" : "MSE";
+        report = new RunReport("FFD/" + metricName, mutualInformation, mutualInformation ? config.targetMI : config.targetMSE, config);
+        try {
+            deformation = new FreeFormDeformation(w, h, config.ffdGrid, config.ffdGrid);
+            int generation = 0;
+            levels:
+            for (int level = 0; level < config.ffdLevels; level++) {
+                if (level > 0) deformation = deformation.refine();
+                evaluateAll();
+                double step = config.ffdStep * Math.min(deformation.spacingX, deformation.spacingY);
+
+                for (int sweep = 0; sweep < config.ffdIterations && step >= MIN_STEP; sweep++) {
+                    report.beginGeneration(generation);
+                    int moves = sweep(step);
+                    report.endGeneration(fitness);
+                    generation++;
+                    if (moves == 0) step /= 2;
+
+                    if (mutualInformation ? fitness > config.targetMI : fitness < config.targetMSE) {
+                        report.setStopReason("fitness alvo atingido");
+                        break levels;
+                    }
+                    if (config.stopRequested()) break levels;
+                }
+            }
+            return new Solution(deformation.parameters(), fitness);
+        } finally {
+            report.finish();
+        }
+    }
+
+    // Uma varredura por todos os pontos de controle; devolve o número de movimentos aceitos:
+    private int sweep(double step) {
+        int moves = 0;
+        for (int j = 0; j < deformation.cellsY + 3; j++) {
+            for (int i = 0; i < deformation.stride; i++) {
+                // Parada pedida (cancelamento, prazo): a grade fica como está, com a métrica já atualizada.
+                if (config.stopRequested()) return moves;
+                for (int axis = 0; axis < 2; axis++) {
+                    if (tryMove(i, j, axis, step) || tryMove(i, j, axis, -step)) moves++;
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Avaliação completa da grade atual (início de cada nível):
+    private void evaluateAll() {
+        double[] d = new double[2];
+        sumSquaredError = 0;
+        jointHistogram = new long[config.numBins * config.numBins];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int k = y * w + x;
+                deformation.displacement(x, y, d);
+                dispX[k] = d[0];
+                dispY[k] = d[1];
+                value[k] = sample(x, y, k, d[0], d[1]);
+                if (mutualInformation) {
+                    jointHistogram[modelBins[y * model.width + x] * config.numBins + value[k]]++;
+                } else {
+                    sumSquaredError += value[k];
+                }
+            }
+        }
+        fitness = currentFitness();
+        report.recordEvaluation(fitness);
+    }
+
+    // Move o ponto (i, j) de delta pixels no eixo dado se isso melhorar a métrica:
+    private boolean tryMove(int i, int j, int axis, double delta) {
+        FreeFormDeformation f = deformation;
+        int p = j * f.stride + i;
+        double[] phi = axis == 0 ? f.phiX : f.phiY;
+        double limit = MAX_DISPLACEMENT * (axis == 0 ? f.spacingX : f.spacingY);
+        if (Math.abs(phi[p] + delta) > limit) return false;
+
+        // Pixels das células (i-3 .. i) x (j-3 .. j), as únicas em que o ponto tem peso:
+        int x0 = f.cellStartX[Math.max(0, i - 3)];
+        int x1 = f.cellStartX[Math.min(f.cellsX - 1, i) + 1];
+        int y0 = f.cellStartY[Math.max(0, j - 3)];
+        int y1 = f.cellStartY[Math.min(f.cellsY - 1, j) + 1];
+        int bins = config.numBins;
+
+        long trialSum = sumSquaredError;
+        for (int y = y0; y < y1; y++) {
+            double by = f.basisY[y * 4 + (j - f.cellY[y])];
+            for (int x = x0; x < x1; x++) {
+                int k = y * w + x;
+                double step = delta * f.basisX[x * 4 + (i - f.cellX[x])] * by;
+                int v = axis == 0 ? sample(x, y, k, dispX[k] + step, dispY[k]) : sample(x, y, k, dispX[k], dispY[k] + step);
+                trial[k] = v;
+                if (mutualInformation) {
+                    jointHistogram[modelBins[y * model.width + x] * bins + value[k]]--;
+                    jointHistogram[modelBins[y * model.width + x] * bins + v]++;
+                } else {
+                    trialSum += v - value[k];
+                }
+            }
+        }
+        double candidate = mutualInformation
+                ? RegistrationMetrics.mutualInformation(jointHistogram, (long) w * h, bins)
+                : (double) trialSum / (3L * w * h);
+        report.recordEvaluation(candidate);
+        boolean accept = mutualInformation ? candidate > fitness : candidate < fitness;
+
+        // Aceito: o ponto e o estado dos pixels passam a ser os do teste. Recusado: desfaz o histograma.
+        for (int y = y0; y < y1; y++) {
+            double by = f.basisY[y * 4 + (j - f.cellY[y])];
+            for (int x = x0; x < x1; x++) {
+                int k = y * w + x;
+                if (accept) {
+                    double step = delta * f.basisX[x * 4 + (i - f.cellX[x])] * by;
+                    if (axis == 0) dispX[k] += step; else dispY[k] += step;
+                    value[k] = trial[k];
+                } else if (mutualInformation) {
+                    jointHistogram[modelBins[y * model.width + x] * bins + trial[k]]--;
+                    jointHistogram[modelBins[y * model.width + x] * bins + value[k]]++;
+                }
+            }
+        }
+        if (accept) {
+            phi[p] += delta;
+            sumSquaredError = trialSum;
+            fitness = candidate;
+        }
+        return accept;
+    }
+
+    // Erro quadrático (MSE) ou bin da cena (MI) do pixel com o deslocamento (dx, dy):
+    private int sample(int x, int y, int k, double dx, double dy) {
+        int sceneRGB = scene.bilinearInterpolate(baseU[k] + dx, baseV[k] + dy);
+        if (mutualInformation) return RegistrationMetrics.quantize(sceneRGB, config.numBins);
+        int modelRGB = model.rgb[y * model.width + x];
+        int dr = ((modelRGB >> 16) & 0xFF) - ((sceneRGB >> 16) & 0xFF);
+        int dg = ((modelRGB >> 8) & 0xFF) - ((sceneRGB >> 8) & 0xFF);
+        int db = (modelRGB & 0xFF) - (sceneRGB & 0xFF);
+        return dr * dr + dg * dg + db * db;
+    }
+
+    private double currentFitness() {
+        return mutualInformation
+                ? RegistrationMetrics.mutualInformation(jointHistogram, (long) w * h, config.numBins)
+                : (double) sumSquaredError / (3L * w * h);
+    }
+
+    public FreeFormDeformation getDeformation() {
+        return deformation;
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
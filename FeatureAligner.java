@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Alinhamento por pontos de interesse (initializerMethod=features):
+//   1. Cantos de Harris nas duas imagens (supressão de não-máximos, os featureCount mais fortes).
+//   2. Descritor de cada canto: patch 8x8 amostrado em um círculo de raio PATCH_RADIUS, girado pela
+//      orientação do centróide de intensidade (invariante à rotação) e normalizado (média 0, norma 1,
+//      invariante a brilho e contraste).
+//   3. Correspondências por força bruta (O(n^2) com n = featureCount) com teste de razão de Lowe.
+//   4. RANSAC com a afim de 3 pontos (ImageTransforms.solveLinearSystem) e ajuste final por mínimos
+//      quadrados sobre os inliers; a afim é projetada nos parâmetros (sx, sy, theta, tx, ty).
+// O descritor tem tamanho fixo, então mudanças de escala grandes (além de ~25%) reduzem as correspondências.
+class FeatureAligner {
+    static final int PATCH_RADIUS = 8;     // Raio (pixels) do patch do descritor
+    static final int PATCH_GRID = 8;       // Amostras por lado do descritor (8x8 = 64 valores)
+    static final double HARRIS_K = 0.04;
+    static final int SUPPRESSION_RADIUS = 4;
+    static final double RATIO = 0.8;       // Teste de razão: melhor distância < RATIO * segunda melhor
+
+    // Ponto de interesse com orientação e descritor:
+    static class Keypoint {
+        final double x;
+        final double y;
+        final double response;
+        double angle;
+        double[] descriptor;
+
+        Keypoint(double x, double y, double response) {
+            this.x = x;
+            this.y = y;
+            this.response = response;
+        }
+    }
+
+    // Estimativa, ou null se não há correspondências suficientes para uma afim:
+    static Initializer.Estimate estimate(PixelImage model, PixelImage scene, RegistrationConfig config) {
+        double[] modelGray = luminance(model);
+        double[] sceneGray = luminance(scene);
+        List<Keypoint> modelPoints = describe(modelGray, model.width, model.height, config.featureCount);
+        List<Keypoint> scenePoints = describe(sceneGray, scene.width, scene.height, config.featureCount);
+
+        // Correspondências cena -> modelo:
+        List<Keypoint[]> matches = match(scenePoints, modelPoints);
+        if (matches.size() < 3) {
+            RunReport.message(config, "Features", String.format("%d cantos no modelo, %d na cena, só %d correspondências",
+                                                                modelPoints.size(), scenePoints.size(), matches.size()));
+            return null;
+        }
+
+        double[][] affine = ransac(matches, config.ransacIterations, config.ransacThreshold);
+        int inliers = countInliers(matches, affine, config.ransacThreshold, null);
+        RunReport.message(config, "Features", String.format("%d cantos no modelo, %d na cena, %d correspondências, %d inliers",
+                                                            modelPoints.size(), scenePoints.size(), matches.size(), inliers));
+        return new Initializer.Estimate(toParameters(affine), (double) inliers / matches.size(),
+                                        inliers >= config.minInliers);
+    }
+
+    /* DETECÇÃO */
+
+    // Cantos de Harris com orientação e descritor (ignora a borda, onde o patch girado não cabe):
+    static List<Keypoint> describe(double[] gray, int w, int h, int maxPoints) {
+        int margin = (int) Math.ceil(PATCH_RADIUS * Math.sqrt(2)) + 2;
+        double[] response = harris(gray, w, h);
+
+        double max = 0;
+        for (double r : response) max = Math.max(max, r);
+        double threshold = 0.01 * max;
+
+        List<Keypoint> points = new ArrayList<>();
+        for (int y = margin; y < h - margin; y++) {
+            for (int x = margin; x < w - margin; x++) {
+                double r = response[y * w + x];
+                if (r <= threshold || !isLocalMaximum(response, w, h, x, y, r)) continue;
+                points.add(new Keypoint(x, y, r));
+            }
+        }
+        points.sort((a, b) -> Double.compare(b.response, a.response));
+        if (points.size() > maxPoints) points = new ArrayList<>(points.subList(0, maxPoints));
+
+        for (Keypoint p : points) {
+            p.angle = orientation(gray, w, p);
+            p.descriptor = descriptor(gray, w, h, p);
+        }
+        return points;
+    }
+
+    // Resposta de Harris: det(S) - k * tr(S)^2, com S o tensor de estrutura (gradientes de Sobel, janela 5x5):
+    private static double[] harris(double[] gray, int w, int h) {
+        double[] xx = new double[w * h];
+        double[] yy = new double[w * h];
+        double[] xy = new double[w * h];
+        for (int y = 1; y < h - 1; y++) {
+            for (int x = 1; x < w - 1; x++) {
+                int k = y * w + x;
+                double gx = (gray[k - w + 1] + 2 * gray[k + 1] + gray[k + w + 1])
+                          - (gray[k - w - 1] + 2 * gray[k - 1] + gray[k + w - 1]);
+                double gy = (gray[k + w - 1] + 2 * gray[k + w] + gray[k + w + 1])
+                          - (gray[k - w - 1] + 2 * gray[k - w] + gray[k - w + 1]);
+                xx[k] = gx * gx;
+                yy[k] = gy * gy;
+                xy[k] = gx * gy;
+            }
+        }
+        xx = boxFilter(xx, w, h, 2);
+        yy = boxFilter(yy, w, h, 2);
+        xy = boxFilter(xy, w, h, 2);
+
+        double[] response = new double[w * h];
+        for (int k = 0; k < response.length; k++) {
+            double trace = xx[k] + yy[k];
+            response[k] = xx[k] * yy[k] - xy[k] * xy[k] - HARRIS_K * trace * trace;
+        }
+        return response;
+    }
+
+    // Média em janela (2r+1)x(2r+1), separável:
+    private static double[] boxFilter(double[] values, int w, int h, int r) {
+        double[] rows = new double[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double sum = 0;
+                for (int d = -r; d <= r; d++) sum += values[y * w + Math.max(0, Math.min(w - 1, x + d))];
+                rows[y * w + x] = sum;
+            }
+        }
+        double[] out = new double[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double sum = 0;
+                for (int d = -r; d <= r; d++) sum += rows[Math.max(0, Math.min(h - 1, y + d)) * w + x];
+                out[y * w + x] = sum;
+            }
+        }
+        return out;
+    }
+
+    private static boolean isLocalMaximum(double[] response, int w, int h, int x, int y, double r) {
+        for (int dy = -SUPPRESSION_RADIUS; dy <= SUPPRESSION_RADIUS; dy++) {
+            int yy = y + dy;
+            if (yy < 0 || yy >= h) continue;
+            for (int dx = -SUPPRESSION_RADIUS; dx <= SUPPRESSION_RADIUS; dx++) {
+                int xx = x + dx;
+                if (xx < 0 || xx >= w || (dx == 0 && dy == 0)) continue;
+                double other = response[yy * w + xx];
+                // Empates: fica o primeiro na ordem de varredura.
+                if (other > r || (other == r && (dy < 0 || (dy == 0 && dx < 0)))) return false;
+            }
+        }
+        return true;
+    }
+
+    /* DESCRITOR */
+
+    // Orientação pelo centróide de intensidade no círculo de raio PATCH_RADIUS:
+    private static double orientation(double[] gray, int w, Keypoint p) {
+        double m10 = 0;
+        double m01 = 0;
+        int cx = (int) p.x;
+        int cy = (int) p.y;
+        for (int dy = -PATCH_RADIUS; dy <= PATCH_RADIUS; dy++) {
+            for (int dx = -PATCH_RADIUS; dx <= PATCH_RADIUS; dx++) {
+                if (dx * dx + dy * dy > PATCH_RADIUS * PATCH_RADIUS) continue;
+                double v = gray[(cy + dy) * w + cx + dx];
+                m10 += dx * v;
+                m01 += dy * v;
+            }
+        }
+        return Math.atan2(m01, m10);
+    }
+
+    // Patch PATCH_GRID x PATCH_GRID girado pela orientação, com média 0 e norma 1:
+    private static double[] descriptor(double[] gray, int w, int h, Keypoint p) {
+        double cos = Math.cos(p.angle);
+        double sin = Math.sin(p.angle);
+        double[] d = new double[PATCH_GRID * PATCH_GRID];
+        double step = 2.0 * PATCH_RADIUS / (PATCH_GRID - 1);
+        double mean = 0;
+        for (int i = 0; i < PATCH_GRID; i++) {
+            double v = -PATCH_RADIUS + i * step;
+            for (int j = 0; j < PATCH_GRID; j++) {
+                double u = -PATCH_RADIUS + j * step;
+                double x = p.x + cos * u - sin * v;
+                double y = p.y + sin * u + cos * v;
+                d[i * PATCH_GRID + j] = bilinear(gray, w, h, x, y);
+                mean += d[i * PATCH_GRID + j];
+            }
+        }
+        mean /= d.length;
+        double norm = 0;
+        for (int k = 0; k < d.length; k++) {
+            d[k] -= mean;
+            norm += d[k] * d[k];
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 1e-9) {
+            for (int k = 0; k < d.length; k++) d[k] /= norm;
+        }
+        return d;
+    }
+
+    /* CORRESPONDÊNCIAS */
+
+    // Para cada ponto de from, o mais próximo em to (distância Euclidiana dos descritores) se passar no
+    // teste de razão. Resultado: pares {from, to}.
+    static List<Keypoint[]> match(List<Keypoint> from, List<Keypoint> to) {
+        List<Keypoint[]> matches = new ArrayList<>();
+        if (to.size() < 2) return matches;
+        for (Keypoint a : from) {
+            double best = Double.MAX_VALUE;
+            double second = Double.MAX_VALUE;
+            Keypoint bestPoint = null;
+            for (Keypoint b : to) {
+                double dist = 0;
+                for (int k = 0; k < a.descriptor.length; k++) {
+                    double diff = a.descriptor[k] - b.descriptor[k];
+                    dist += diff * diff;
+                }
+                if (dist < best) {
+                    second = best;
+                    best = dist;
+                    bestPoint = b;
+                } else if (dist < second) {
+                    second = dist;
+                }
+            }
+            // Teste de razão nas distâncias ao quadrado:
+            if (best < RATIO * RATIO * second) matches.add(new Keypoint[] {a, bestPoint});
+        }
+        return matches;
+    }
+
+    /* RANSAC */
+
+    // Afim (2x3, cena -> modelo) com mais inliers entre iterations hipóteses de 3 correspondências,
+    // reajustada por mínimos quadrados sobre os inliers:
+    static double[][] ransac(List<Keypoint[]> matches, int iterations, double threshold) {
+        Random random = new Random();
+        int n = matches.size();
+        double[][] best = null;
+        int bestCount = -1;
+        for (int it = 0; it < iterations; it++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            int c = random.nextInt(n);
+            if (a == b || a == c || b == c) continue;
+            double[][] affine = fitAffine(Arrays.asList(matches.get(a), matches.get(b), matches.get(c)));
+            if (affine == null) continue;
+            int count = countInliers(matches, affine, threshold, null);
+            if (count > bestCount) {
+                bestCount = count;
+                best = affine;
+            }
+        }
+        if (best == null) return new double[][] {{1, 0, 0}, {0, 1, 0}};
+
+        // Reajuste sobre os inliers (duas passadas: os inliers do ajuste também são recontados):
+        for (int pass = 0; pass < 2; pass++) {
+            List<Keypoint[]> inliers = new ArrayList<>();
+            countInliers(matches, best, threshold, inliers);
+            double[][] refined = inliers.size() >= 3 ? fitAffine(inliers) : null;
+            if (refined == null) break;
+            best = refined;
+        }
+        return best;
+    }
+
+    // Correspondências com erro de reprojeção abaixo de threshold (guardadas em inliers, se não for null):
+    private static int countInliers(List<Keypoint[]> matches, double[][] affine, double threshold, List<Keypoint[]> inliers) {
+        int count = 0;
+        double limit = threshold * threshold;
+        for (Keypoint[] m : matches) {
+            double dx = affine[0][0] * m[0].x + affine[0][1] * m[0].y + affine[0][2] - m[1].x;
+            double dy = affine[1][0] * m[0].x + affine[1][1] * m[0].y + affine[1][2] - m[1].y;
+            if (dx * dx + dy * dy <= limit) {
+                count++;
+                if (inliers != null) inliers.add(m);
+            }
+        }
+        return count;
+    }
+
+    // Afim por mínimos quadrados (equações normais; com 3 pontos, a solução exata). null se degenerada.
+    private static double[][] fitAffine(List<Keypoint[]> pairs) {
+        double[][] ata = new double[3][3];
+        double[] atx = new double[3];
+        double[] aty = new double[3];
+        for (Keypoint[] m : pairs) {
+            double[] row = {m[0].x, m[0].y, 1};
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) ata[i][j] += row[i] * row[j];
+                atx[i] += row[i] * m[1].x;
+                aty[i] += row[i] * m[1].y;
+            }
+        }
+        try {
+            return new double[][] {ImageTransforms.solveLinearSystem(ata, atx), ImageTransforms.solveLinearSystem(ata, aty)};
+        } catch (RuntimeException e) {
+            return null; // Pontos colineares.
+        }
+    }
+
+    // Afim geral -> (sx, sy, theta, tx, ty) da matriz [[sx cos, -sx sin, tx], [sy sin, sy cos, ty]]:
+    // o ângulo é a média dos ângulos das duas linhas (iguais quando a afim não tem cisalhamento).
+    static double[] toParameters(double[][] affine) {
+        double sx = Math.hypot(affine[0][0], affine[0][1]);
+        double sy = Math.hypot(affine[1][0], affine[1][1]);
+        double cos = affine[0][0] / sx + affine[1][1] / sy;
+        double sin = -affine[0][1] / sx + affine[1][0] / sy;
+        return new double[] {sx, sy, Math.toDegrees(Math.atan2(sin, cos)), affine[0][2], affine[1][2]};
+    }
+
+    /* AUXILIARES */
+
+    private static double[] luminance(PixelImage image) {
+        double[] gray = new double[image.width * image.height];
+        for (int k = 0; k < gray.length; k++) {
+            int c = image.rgb[k];
+            gray[k] = 0.299 * ((c >> 16) & 0xFF) + 0.587 * ((c >> 8) & 0xFF) + 0.114 * (c & 0xFF);
+        }
+        return gray;
+    }
+
+    private static double bilinear(double[] values, int w, int h, double x, double y) {
+        if (x < 0 || y < 0 || x >= w - 1 || y >= h - 1) return 0.0;
+        int x1 = (int) x;
+        int y1 = (int) y;
+        double wx = x - x1;
+        double wy = y - y1;
+        int k = y1 * w + x1;
+        return (1 - wx) * (1 - wy) * values[k] + wx * (1 - wy) * values[k + 1]
+             + (1 - wx) * wy * values[k + w] + wx * wy * values[k + w + 1];
+    }
+}
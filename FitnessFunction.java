@@ -0,0 +1,141 @@
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+
+// Função objetivo usada pelos otimizadores que não são ligados a uma métrica (IslandGA, ...).
+// As implementações só leem as imagens, então podem ser chamadas por várias threads ao mesmo tempo.
+public interface FitnessFunction {
+    // Avalia os parâmetros reais (sx, sy, theta em graus, tx, ty) ou, no modo homografia, os deslocamentos dos cantos:
+    double evaluate(double[] params);
+
+    // "MSE", "MI" ou "GC":
+    String metricName();
+
+    // true se um valor maior é melhor (MI, GC), false se menor é melhor (MSE):
+    boolean isMaximized();
+
+    // Fitness alvo (critério de parada):
+    double target();
+
+    default boolean isBetter(double a, double b) {
+        return isMaximized() ? a > b : a < b;
+    }
+
+    default boolean reachedTarget(double fitness) {
+        return isMaximized() ? fitness > target() : fitness < target();
+    }
+
+    // Pior valor possível (ponto de partida das buscas pelo melhor):
+    default double worst() {
+        return isMaximized() ? Double.NEGATIVE_INFINITY : Double.MAX_VALUE;
+    }
+
+    // concurrentCandidates: quantas avaliações o otimizador faz ao mesmo tempo (ver RegistrationMetrics.chooseMode).
+    static FitnessFunction forMetric(String metric, BufferedImage model, BufferedImage scene,
+                                     RegistrationConfig config, int concurrentCandidates) {
+        return forMetric(metric, PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene),
+                         config, concurrentCandidates);
+    }
+
+    // Com as imagens já decodificadas (ex.: o modelo reaproveitado entre os quadros de uma sequência):
+    static FitnessFunction forMetric(String metric, PixelImage model, PixelImage scene,
+                                     RegistrationConfig config, int concurrentCandidates) {
+        int candidates = ResourceLimits.kernelCandidates(config, concurrentCandidates);
+        switch (metric.toUpperCase(Locale.ROOT)) {
+            case "MSE": return meanSquaredError(model, scene, config, candidates);
+            case "MI":  return mutualInformation(model, scene, config, candidates);
+            case "GC":  return gradientCorrelation(model, scene, config, candidates);
+            default:
+                throw new IllegalArgumentException("Métrica desconhecida: " + metric + " (use MSE, MI ou GC)");
+        }
+    }
+
+    static FitnessFunction meanSquaredError(PixelImage modelPixels, PixelImage scenePixels,
+                                            RegistrationConfig config, int concurrentCandidates) {
+        double target = config.targetMSE;
+        return new FitnessFunction() {
+            @Override
+            public double evaluate(double[] params) {
+                return RegistrationMetrics.meanSquaredError(modelPixels, scenePixels,
+                                                            ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height),
+                                                            concurrentCandidates);
+            }
+
+            @Override
+            public String metricName() {
+                return "MSE";
+            }
+
+            @Override
+            public boolean isMaximized() {
+                return false;
+            }
+
+            @Override
+            public double target() {
+                return target;
+            }
+        };
+    }
+
+    static FitnessFunction mutualInformation(PixelImage modelPixels, PixelImage scenePixels,
+                                             RegistrationConfig config, int concurrentCandidates) {
+        int numBins = config.numBins;
+        double target = config.targetMI;
+        return new FitnessFunction() {
+            @Override
+            public double evaluate(double[] params) {
+                return RegistrationMetrics.mutualInformation(modelPixels, scenePixels,
+                                                             ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height),
+                                                             numBins, concurrentCandidates);
+            }
+
+            @Override
+            public String metricName() {
+                return "MI";
+            }
+
+            @Override
+            public boolean isMaximized() {
+                return true;
+            }
+
+            @Override
+            public double target() {
+                return target;
+            }
+        };
+    }
+
+    // Os gradientes das duas imagens e a lista de bordas do modelo são calculados aqui, uma vez por execução
+    // (os gradientes ficam em cache na PixelImage); cada avaliação só visita os pixels da lista:
+    static FitnessFunction gradientCorrelation(PixelImage modelPixels, PixelImage scenePixels,
+                                               RegistrationConfig config, int concurrentCandidates) {
+        GradientMap modelGradients = modelPixels.gradients();
+        GradientMap sceneGradients = scenePixels.gradients();
+        GradientMap.Edges edges = modelGradients.edges(config.edgeThreshold);
+        double target = config.targetGC;
+        return new FitnessFunction() {
+            @Override
+            public double evaluate(double[] params) {
+                return RegistrationMetrics.gradientCorrelation(modelGradients, edges, sceneGradients,
+                                                               ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height),
+                                                               concurrentCandidates);
+            }
+
+            @Override
+            public String metricName() {
+                return "GC";
+            }
+
+            @Override
+            public boolean isMaximized() {
+                return true;
+            }
+
+            @Override
+            public double target() {
+                return target;
+            }
+        };
+    }
+}
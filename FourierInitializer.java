@@ -0,0 +1,311 @@
+// Estimativa inicial da transformação no domínio da frequência, antes da busca do GA/PSO:
+//   1. Rotação e escala (Fourier-Mellin): o módulo do espectro não depende da translação, e rotação/escala
+//      da imagem viram rotação/escala do espectro. Em coordenadas log-polares elas viram deslocamentos,
+//      medidos por correlação de fase.
+//   2. Translação: a cena é desfeita da rotação/escala estimada e a translação restante é medida por
+//      correlação de fase direta. O espectro é simétrico, então o ângulo tem ambiguidade de 180 graus:
+//      as duas opções são testadas, junto com a translação pura, e fica a de pico de correlação mais alto.
+// Tudo em O(N log N) com uma FFT radix-2 própria. As imagens (em tons de cinza) são reduzidas até
+// MAX_SIZE e completadas com zeros até uma potência de 2. Usada por Initializer (initializerMethod=fft).
+class FourierInitializer {
+    static final int MAX_SIZE = 256; // Lado máximo da imagem usada na estimativa
+
+    // Imagem em tons de cinza (reduzida por um fator inteiro factor):
+    private static class Gray {
+        final int width;
+        final int height;
+        final int factor;
+        final double[] values;
+
+        Gray(int width, int height, int factor, double[] values) {
+            this.width = width;
+            this.height = height;
+            this.factor = factor;
+            this.values = values;
+        }
+    }
+
+    // Estimativa (a confiança é a altura do pico da correlação de fase da translação, em (0, 1]):
+    static Initializer.Estimate estimate(PixelImage model, PixelImage scene) {
+        int factor = Math.max(1, (int) Math.ceil(Math.max(Math.max(model.width, model.height),
+                                                          Math.max(scene.width, scene.height)) / (double) MAX_SIZE));
+        Gray m = toGray(model, factor);
+        Gray s = toGray(scene, factor);
+        int n = nextPowerOfTwo(Math.max(Math.max(m.width, m.height), Math.max(s.width, s.height)));
+
+        // 1. Rotação e escala pelo espectro de módulo em coordenadas log-polares:
+        int angles = n;      // Amostras de ângulo em [0, 180)
+        int radii = n / 2;   // Amostras de raio (escala logarítmica de 1 até n/2)
+        double logBase = Math.exp(Math.log(n / 2.0) / radii);
+        double[] modelPolar = logPolarSpectrum(m, n, angles, radii, logBase);
+        double[] scenePolar = logPolarSpectrum(s, n, angles, radii, logBase);
+        double[] shift = phaseCorrelation(modelPolar, scenePolar, angles, radii);
+        double theta = shift[0] * Math.PI / angles;
+        double scale = Math.pow(logBase, -shift[1]); // Escala maior na imagem = espectro menor
+
+        // 2. Translação para as duas opções de ângulo (theta e theta + 180) e para a translação pura
+        //    (rotação/escala mal estimadas, ex.: escalas diferentes em x e y, que o espectro não separa):
+        Initializer.Estimate best = translation(m, s, n, 1.0, 0.0);
+        for (int k = 0; k < 2; k++) {
+            Initializer.Estimate candidate = translation(m, s, n, scale, theta + k * Math.PI);
+            if (candidate.confidence > best.confidence) best = candidate;
+        }
+        return best;
+    }
+
+    // Desfaz rotação/escala da cena (em torno do centro) e mede a translação restante:
+    private static Initializer.Estimate translation(Gray model, Gray scene, int n, double scale, double theta) {
+        double cx = (model.width - 1) / 2.0;
+        double cy = (model.height - 1) / 2.0;
+        double cos = Math.cos(theta);
+        double sin = Math.sin(theta);
+
+        // warped(x) = scene(A^-1 (x - c) + c), onde A = escala * rotação:
+        double[] warped = new double[n * n];
+        double[] reference = new double[n * n];
+        for (int y = 0; y < model.height; y++) {
+            for (int x = 0; x < model.width; x++) {
+                double dx = x - cx;
+                double dy = y - cy;
+                double u = (cos * dx + sin * dy) / scale + cx;
+                double v = (-sin * dx + cos * dy) / scale + cy;
+                warped[y * n + x] = sample(scene, u, v);
+                reference[y * n + x] = model.values[y * model.width + x];
+            }
+        }
+        window(reference, model.width, model.height, n);
+        window(warped, model.width, model.height, n);
+        double[] peak = phaseCorrelation(reference, warped, n, n);
+
+        // Translação na resolução reduzida (dx, dy) e, na original, M x = A x + (c - A c + d):
+        double f = model.factor;
+        double dx = peak[1] * f;
+        double dy = peak[0] * f;
+        double ccx = cx * f;
+        double ccy = cy * f;
+        double tx = ccx - scale * (cos * ccx - sin * ccy) + dx;
+        double ty = ccy - scale * (sin * ccx + cos * ccy) + dy;
+        double degrees = Math.toDegrees(Math.atan2(sin, cos));
+        return new Initializer.Estimate(new double[] {scale, scale, degrees, tx, ty}, peak[2], false);
+    }
+
+    /* ESPECTRO */
+
+    // Módulo do espectro (centralizado, com filtro passa-alta) amostrado em coordenadas log-polares.
+    // Resultado em angles x radii (linha = ângulo).
+    private static double[] logPolarSpectrum(Gray image, int n, int angles, int radii, double logBase) {
+        double[] re = new double[n * n];
+        double[] im = new double[n * n];
+        for (int y = 0; y < image.height; y++) {
+            System.arraycopy(image.values, y * image.width, re, y * n, image.width);
+        }
+        window(re, image.width, image.height, n);
+        fft2d(re, im, n, n, false);
+
+        // Módulo com a frequência zero no centro e passa-alta (realça as bordas, que definem a rotação):
+        double[] magnitude = new double[n * n];
+        int half = n / 2;
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int sy = (y + half) % n;
+                int sx = (x + half) % n;
+                double fy = (sy - half) / (double) n;
+                double fx = (sx - half) / (double) n;
+                double c = Math.cos(Math.PI * fx) * Math.cos(Math.PI * fy);
+                double highPass = (1 - c) * (2 - c);
+                int k = y * n + x;
+                magnitude[sy * n + sx] = Math.hypot(re[k], im[k]) * highPass;
+            }
+        }
+
+        double[] polar = new double[angles * radii];
+        for (int a = 0; a < angles; a++) {
+            double angle = Math.PI * a / angles;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            for (int r = 0; r < radii; r++) {
+                double radius = Math.pow(logBase, r);
+                polar[a * radii + r] = bilinear(magnitude, n, n, half + radius * cos, half + radius * sin);
+            }
+        }
+        return polar;
+    }
+
+    // Correlação de fase entre a e b (rows x cols): devolve o deslocamento (linha, coluna) de b para a,
+    // com refinamento subpixel, e a altura do pico.
+    private static double[] phaseCorrelation(double[] a, double[] b, int rows, int cols) {
+        int size = rows * cols;
+        double[] aRe = a.clone();
+        double[] aIm = new double[size];
+        double[] bRe = b.clone();
+        double[] bIm = new double[size];
+        fft2d(aRe, aIm, rows, cols, false);
+        fft2d(bRe, bIm, rows, cols, false);
+
+        // Espectro de potência cruzado normalizado: A * conj(B) / |A * conj(B)|
+        for (int k = 0; k < size; k++) {
+            double re = aRe[k] * bRe[k] + aIm[k] * bIm[k];
+            double im = aIm[k] * bRe[k] - aRe[k] * bIm[k];
+            double norm = Math.hypot(re, im);
+            if (norm < 1e-12) {
+                aRe[k] = 0;
+                aIm[k] = 0;
+            } else {
+                aRe[k] = re / norm;
+                aIm[k] = im / norm;
+            }
+        }
+        fft2d(aRe, aIm, rows, cols, true);
+
+        int peak = 0;
+        for (int k = 1; k < size; k++) {
+            if (aRe[k] > aRe[peak]) peak = k;
+        }
+        int row = peak / cols;
+        int col = peak % cols;
+        double dRow = row + subpixel(aRe[((row - 1 + rows) % rows) * cols + col], aRe[peak], aRe[((row + 1) % rows) * cols + col]);
+        double dCol = col + subpixel(aRe[row * cols + (col - 1 + cols) % cols], aRe[peak], aRe[row * cols + (col + 1) % cols]);
+        // Deslocamentos acima da metade são negativos (a correlação é circular):
+        if (dRow > rows / 2.0) dRow -= rows;
+        if (dCol > cols / 2.0) dCol -= cols;
+        return new double[] {dRow, dCol, aRe[peak]};
+    }
+
+    // Vértice da parábola pelos três pontos em torno do pico (deslocamento em [-0.5, 0.5]):
+    private static double subpixel(double left, double center, double right) {
+        double denominator = left - 2 * center + right;
+        if (denominator >= 0) return 0;
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (left - right) / denominator));
+    }
+
+    /* FFT */
+
+    // FFT 2D in-place (linhas e depois colunas); inverse normaliza por rows * cols.
+    static void fft2d(double[] re, double[] im, int rows, int cols, boolean inverse) {
+        double[] rowRe = new double[cols];
+        double[] rowIm = new double[cols];
+        for (int y = 0; y < rows; y++) {
+            System.arraycopy(re, y * cols, rowRe, 0, cols);
+            System.arraycopy(im, y * cols, rowIm, 0, cols);
+            fft(rowRe, rowIm, inverse);
+            System.arraycopy(rowRe, 0, re, y * cols, cols);
+            System.arraycopy(rowIm, 0, im, y * cols, cols);
+        }
+        double[] colRe = new double[rows];
+        double[] colIm = new double[rows];
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) {
+                colRe[y] = re[y * cols + x];
+                colIm[y] = im[y * cols + x];
+            }
+            fft(colRe, colIm, inverse);
+            for (int y = 0; y < rows; y++) {
+                re[y * cols + x] = colRe[y];
+                im[y * cols + x] = colIm[y];
+            }
+        }
+        if (inverse) {
+            double scale = 1.0 / (rows * cols);
+            for (int k = 0; k < re.length; k++) {
+                re[k] *= scale;
+                im[k] *= scale;
+            }
+        }
+    }
+
+    // FFT 1D radix-2 iterativa (Cooley-Tukey), in-place; o tamanho deve ser potência de 2.
+    static void fft(double[] re, double[] im, boolean inverse) {
+        int n = re.length;
+        // Permutação por inversão de bits:
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = 2 * Math.PI / len * (inverse ? 1 : -1);
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                double curRe = 1;
+                double curIm = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int p = i + k;
+                    int q = p + len / 2;
+                    double tRe = re[q] * curRe - im[q] * curIm;
+                    double tIm = re[q] * curIm + im[q] * curRe;
+                    re[q] = re[p] - tRe;
+                    im[q] = im[p] - tIm;
+                    re[p] += tRe;
+                    im[p] += tIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+
+    /* AUXILIARES */
+
+    // Tons de cinza (luminância), reduzidos pela média de blocos factor x factor e com média zero:
+    private static Gray toGray(PixelImage image, int factor) {
+        int w = image.width / factor;
+        int h = image.height / factor;
+        double[] values = new double[w * h];
+        double mean = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double sum = 0;
+                for (int by = 0; by < factor; by++) {
+                    for (int bx = 0; bx < factor; bx++) {
+                        int c = image.rgb[(y * factor + by) * image.width + x * factor + bx];
+                        sum += 0.299 * ((c >> 16) & 0xFF) + 0.587 * ((c >> 8) & 0xFF) + 0.114 * (c & 0xFF);
+                    }
+                }
+                values[y * w + x] = sum / (factor * factor);
+                mean += values[y * w + x];
+            }
+        }
+        mean /= values.length;
+        for (int k = 0; k < values.length; k++) values[k] -= mean;
+        return new Gray(w, h, factor, values);
+    }
+
+    // Janela de Hann sobre a região w x h (reduz o vazamento espectral das bordas da imagem):
+    private static void window(double[] values, int w, int h, int stride) {
+        for (int y = 0; y < h; y++) {
+            double wy = 0.5 - 0.5 * Math.cos(2 * Math.PI * y / Math.max(1, h - 1));
+            for (int x = 0; x < w; x++) {
+                double wx = 0.5 - 0.5 * Math.cos(2 * Math.PI * x / Math.max(1, w - 1));
+                values[y * stride + x] *= wx * wy;
+            }
+        }
+    }
+
+    private static double sample(Gray image, double x, double y) {
+        if (x < 0 || y < 0 || x >= image.width - 1 || y >= image.height - 1) return 0.0;
+        return bilinear(image.values, image.width, image.height, x, y);
+    }
+
+    private static double bilinear(double[] values, int w, int h, double x, double y) {
+        if (x < 0 || y < 0 || x >= w - 1 || y >= h - 1) return 0.0;
+        int x1 = (int) x;
+        int y1 = (int) y;
+        double wx = x - x1;
+        double wy = y - y1;
+        int k = y1 * w + x1;
+        return (1 - wx) * (1 - wy) * values[k] + wx * (1 - wy) * values[k + 1]
+             + (1 - wx) * wy * values[k + w] + wx * wy * values[k + w + 1];
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        int p = 1;
+        while (p < n) p <<= 1;
+        return p;
+    }
+}
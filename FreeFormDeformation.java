@@ -0,0 +1,155 @@
+import java.awt.image.BufferedImage;
+
+// Deformação livre (FFD) por B-splines cúbicas: uma grade de (cellsX + 3) x (cellsY + 3) pontos de controle
+// cobre a imagem com cellsX x cellsY células, e o deslocamento do pixel (x, y) é
+//   D(x, y) = soma_{l,m = 0..3} B_l(u) B_m(v) * phi[cy + m][cx + l]
+// onde (cx, cy) é a célula do pixel e (u, v) a posição dentro dela. Cada ponto só influencia as 4x4 células
+// ao seu redor, então movê-lo muda D só nessa região (ver FFDRegistration).
+// As bases dependem só da coluna (ou da linha) do pixel: ficam em tabelas calculadas uma vez por grade.
+//
+// O ponto da cena usado para o pixel x do modelo é base^-1(x) + D(x), onde base é a transformação global
+// (afim ou homografia) obtida antes, ex.: pelo initialGuess.
+class FreeFormDeformation {
+    final int width;
+    final int height;
+    final int cellsX;
+    final int cellsY;
+    final int stride;          // Pontos de controle por linha da grade (cellsX + 3)
+    final double spacingX;     // Tamanho da célula (pixels)
+    final double spacingY;
+    final double[] phiX;       // Deslocamento de cada ponto de controle (pixels), em [j * stride + i]
+    final double[] phiY;
+
+    // Tabelas: célula de cada coluna/linha, os 4 pesos da B-spline ([x * 4 + l]) e a primeira coluna/linha
+    // de cada célula (com width/height na última posição):
+    final int[] cellX;
+    final int[] cellY;
+    final double[] basisX;
+    final double[] basisY;
+    final int[] cellStartX;
+    final int[] cellStartY;
+
+    FreeFormDeformation(int width, int height, int cellsX, int cellsY) {
+        this.width = width;
+        this.height = height;
+        this.cellsX = cellsX;
+        this.cellsY = cellsY;
+        this.stride = cellsX + 3;
+        this.spacingX = (double) width / cellsX;
+        this.spacingY = (double) height / cellsY;
+        this.phiX = new double[stride * (cellsY + 3)];
+        this.phiY = new double[stride * (cellsY + 3)];
+        this.cellX = new int[width];
+        this.cellY = new int[height];
+        this.basisX = new double[width * 4];
+        this.basisY = new double[height * 4];
+        this.cellStartX = new int[cellsX + 1];
+        this.cellStartY = new int[cellsY + 1];
+        tabulate(width, spacingX, cellsX, cellX, basisX, cellStartX);
+        tabulate(height, spacingY, cellsY, cellY, basisY, cellStartY);
+    }
+
+    private static void tabulate(int size, double spacing, int cells, int[] cell, double[] basis, int[] cellStart) {
+        int current = -1;
+        for (int x = 0; x < size; x++) {
+            double t = x / spacing;
+            int c = Math.min(cells - 1, (int) t);
+            cell[x] = c;
+            double u = t - c;
+            double u2 = u * u;
+            double u3 = u2 * u;
+            basis[x * 4] = (1 - u) * (1 - u) * (1 - u) / 6;
+            basis[x * 4 + 1] = (3 * u3 - 6 * u2 + 4) / 6;
+            basis[x * 4 + 2] = (-3 * u3 + 3 * u2 + 3 * u + 1) / 6;
+            basis[x * 4 + 3] = u3 / 6;
+            while (current < c) cellStart[++current] = x;
+        }
+        while (current < cells) cellStart[++current] = size;
+    }
+
+    int points() {
+        return phiX.length;
+    }
+
+    // Deslocamento do pixel (x, y) em out[0] (x) e out[1] (y):
+    void displacement(int x, int y, double[] out) {
+        int cx = cellX[x];
+        int cy = cellY[y];
+        double dx = 0;
+        double dy = 0;
+        for (int m = 0; m < 4; m++) {
+            int row = (cy + m) * stride + cx;
+            double by = basisY[y * 4 + m];
+            for (int l = 0; l < 4; l++) {
+                double w = basisX[x * 4 + l] * by;
+                dx += w * phiX[row + l];
+                dy += w * phiY[row + l];
+            }
+        }
+        out[0] = dx;
+        out[1] = dy;
+    }
+
+    // A mesma deformação numa grade com o dobro de células por lado (subdivisão exata da B-spline:
+    // pontos novos nos nós antigos = (P[a-1] + 6 P[a] + P[a+1]) / 8, no meio das células = (P[a] + P[a+1]) / 2):
+    FreeFormDeformation refine() {
+        FreeFormDeformation fine = new FreeFormDeformation(width, height, cellsX * 2, cellsY * 2);
+        refine(phiX, fine.phiX);
+        refine(phiY, fine.phiY);
+        return fine;
+    }
+
+    private void refine(double[] coarse, double[] fine) {
+        int fineStride = cellsX * 2 + 3;
+        int rows = cellsY + 3;
+        // Primeiro ao longo de x (linhas da grade grossa), depois ao longo de y:
+        double[] half = new double[rows * fineStride];
+        for (int j = 0; j < rows; j++) {
+            for (int b = 0; b < fineStride; b++) {
+                half[j * fineStride + b] = subdivide(coarse, j * stride, 1, b);
+            }
+        }
+        for (int b = 0; b < cellsY * 2 + 3; b++) {
+            for (int i = 0; i < fineStride; i++) {
+                fine[b * fineStride + i] = subdivide(half, i, fineStride, b);
+            }
+        }
+    }
+
+    // Ponto b da grade fina a partir dos pontos grossos p[start + a * step]:
+    private static double subdivide(double[] p, int start, int step, int b) {
+        int a = (b + 1) / 2;
+        if (b % 2 == 1) {
+            return (p[start + (a - 1) * step] + 6 * p[start + a * step] + p[start + (a + 1) * step]) / 8;
+        }
+        return (p[start + a * step] + p[start + (a + 1) * step]) / 2;
+    }
+
+    // Deslocamentos dos pontos de controle (dx, dy intercalados, linha a linha da grade):
+    double[] parameters() {
+        double[] params = new double[2 * phiX.length];
+        for (int k = 0; k < phiX.length; k++) {
+            params[2 * k] = phiX[k];
+            params[2 * k + 1] = phiY[k];
+        }
+        return params;
+    }
+
+    // Cena registrada (do tamanho coberto pela grade) pela transformação global base seguida da deformação:
+    BufferedImage warp(BufferedImage scene, double[][] base) {
+        PixelImage scenePixels = PixelImage.fromBufferedImage(scene);
+        double[][] invBase = RegistrationMetrics.inverse(base);
+        BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        double[] d = new double[2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double s = invBase[2][0] * x + invBase[2][1] * y + invBase[2][2];
+                double u = (invBase[0][0] * x + invBase[0][1] * y + invBase[0][2]) / s;
+                double v = (invBase[1][0] * x + invBase[1][1] * y + invBase[1][2]) / s;
+                displacement(x, y, d);
+                dst.setRGB(x, y, scenePixels.bilinearInterpolate(u + d[0], v + d[1]));
+            }
+        }
+        return dst;
+    }
+}
@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Evento JFR emitido a cada geração (GA) ou iteração (PSO).
+// Gravação: java -XX:StartFlightRecording=filename=registro.jfr ImageRegistration
+@Name("imageregistration.Generation")
+@Label("Geração do otimizador")
+@Category({"Image Registration"})
+@Description("Uma geração do GA ou iteração do PSO")
+class GenerationEvent extends Event {
+    @Label("Algoritmo")
+    String engine;
+
+    @Label("Geração")
+    int generation;
+
+    @Label("Melhor fitness")
+    double bestFitness;
+
+    @Label("Avaliações na geração")
+    long evaluations;
+
+    @Label("Bytes alocados")
+    long allocatedBytes;
+}
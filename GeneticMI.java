@@ -1,28 +1,24 @@
 import java.awt.GridLayout;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Random;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 // Classe que implementa o Algoritmo Genético com MI como função objetivo:
 public class GeneticMI {
-    private static final int POPULATION_SIZE = 50;
-    private static final int MAX_GENERATIONS = 50; 
-    private static final double MUTATION_RATE = 0.1;
-    private static final double CROSSOVER_RATE = 0.8;
-    private static final int NUM_PARAMETERS = 5; // Parâmetros da Transformação Afim
-    private static final int NUM_BINS = 32;     // Número de caixas (bins) para o Histograma Conjunto (MI)
+    private final int numParameters; // 5 (afim) ou 8 (homografia), ver config.transform
     
-    // Intervalos de busca para os parâmetros de transformação:
-    private static final double[] MIN_BOUNDS = {0.1, 0.1, -90, -150, -150}; 
-    private static final double[] MAX_BOUNDS = {2.0, 2.0, 90, 150, 150}; 
-
-    private BufferedImage modelImage; 
-    private BufferedImage sceneImage; 
-    private Random random;
+    private final RegistrationConfig config; // Parâmetros do otimizador (ver RegistrationConfig)
+    private PixelImage modelPixels; 
+    private PixelImage scenePixels; 
+    private final ParameterSpace space;  // Limites, unidades e periodicidade dos parâmetros
+    private final GeneticOperators ops;  // Torneio, BLX-alpha e mutação (sobre os vetores da população)
+    private final RestorableRandom random; // Gerador dos operadores (o estado vai para o checkpoint)
+    private final double[] scratch; // Parâmetros do indivíduo em avaliação
+    private final int kernelCandidates; // Candidatos simultâneos informados ao kernel (ver ResourceLimits)
+    private final SurrogateModel surrogate; // Triagem k-NN dos filhos (null se config.surrogate == false)
+    private RunReport report; // Relatório da última execução (curva de convergência, avaliações, alocação)
 
     // Estrutura para o indivíduo/solução:
     static class Individual {
@@ -35,191 +31,143 @@ public class GeneticMI {
     }
 
     public GeneticMI(BufferedImage model, BufferedImage scene) {
-        this.modelImage = model;
-        this.sceneImage = scene;
-        this.random = new Random();
+        this(model, scene, RegistrationConfig.balanced());
     }
 
-    // Converte RGB para um valor de intensidade quantizado (0 a NUM_BINS-1)
-    private static int getQuantizedIntensity(int rgb) {
-        // Extrai componentes RGB
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
-        
-        // Converte para escala de cinza (simples média)
-        int gray = (r + g + b) / 3;
-        
-        // Quantiza para o número de bins
-        return Math.min(NUM_BINS - 1, (int) (gray * NUM_BINS / 256.0));
+    public GeneticMI(BufferedImage model, BufferedImage scene, RegistrationConfig config) {
+        this(PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene), config);
+    }
+
+    // Com as imagens já decodificadas:
+    public GeneticMI(PixelImage model, PixelImage scene, RegistrationConfig config) {
+        config.validate();
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+        this.numParameters = space.size();
+        this.scratch = new double[numParameters];
+        this.kernelCandidates = ResourceLimits.kernelCandidates(config, 1);
+        this.modelPixels = model;
+        this.scenePixels = scene;
+        this.random = new RestorableRandom();
+        this.ops = new GeneticOperators(config, space, true, random);
+        this.surrogate = SurrogateModel.fromConfig(config, space, true);
     }
 
     // Calcula o Mutual Information (MI) entre a imagem transformada e o modelo.
     private double calculateMI(double[] params) {
-        double[][] affineMatrix = ImageTransforms.createAffineMatrix(params[0], params[1],params[2],params[3],params[4]);
-
-        BufferedImage transformedScene = ImageTransforms.applyTransform(sceneImage, affineMatrix);
-
-        int w = Math.min(modelImage.getWidth(), transformedScene.getWidth());
-        int h = Math.min(modelImage.getHeight(), transformedScene.getHeight());
-
-        long[][] jointHistogram = new long[NUM_BINS][NUM_BINS];
-        long totalPixels = 0;
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                // Obtém a intensidade quantizada de Model (a) e Scene (b)
-                int modelIntensity = getQuantizedIntensity(modelImage.getRGB(x, y));
-                int sceneIntensity = getQuantizedIntensity(transformedScene.getRGB(x, y));
-                
-                jointHistogram[modelIntensity][sceneIntensity]++;
-                totalPixels++;
-            }
-        }
-        
-        if (totalPixels == 0) return 0.0;
-
-        double[][] pAB = new double[NUM_BINS][NUM_BINS];
-        double[] pA = new double[NUM_BINS]; // Marginal de Model
-        double[] pB = new double[NUM_BINS]; // Marginal de Scene
-        
-        for (int i = 0; i < NUM_BINS; i++) {
-            for (int j = 0; j < NUM_BINS; j++) {
-                pAB[i][j] = (double) jointHistogram[i][j] / totalPixels;
-                pA[i] += pAB[i][j];
-                pB[j] += pAB[i][j]; 
-            }
-        }
+        double[][] matrix = ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height);
 
-        // Calcula o MI:
-        double mi = 0.0;
-        for (int i = 0; i < NUM_BINS; i++) {
-            for (int j = 0; j < NUM_BINS; j++) {
-                if (pAB[i][j] > 1e-10 && pA[i] > 1e-10 && pB[j] > 1e-10) {
-                    mi += pAB[i][j] * Math.log(pAB[i][j] / (pA[i] * pB[j]));
-                }
-            }
-        }
-        
-        return mi / Math.log(2); 
+        // Transformação inversa + histograma conjunto em um único passo (sem gerar a imagem transformada):
+        double mi = RegistrationMetrics.mutualInformation(modelPixels, scenePixels, matrix, config.numBins, kernelCandidates);
+        if (report != null) report.recordEvaluation(mi);
+        return mi;
     }
 
     // --- FUNÇÕES PRINCIPAIS DO GA ---
 
     // 1. Inicializa a população com parâmetros aleatórios dentro dos limites
-    private Individual[] initializePopulation() {
-        Individual[] population = new Individual[POPULATION_SIZE];
-        for (int i = 0; i < POPULATION_SIZE; i++) {
-            double[] params = new double[NUM_PARAMETERS];
-            for (int j = 0; j < NUM_PARAMETERS; j++) {
-                params[j] = MIN_BOUNDS[j] + (MAX_BOUNDS[j] - MIN_BOUNDS[j]) * random.nextDouble();
-            }
-            population[i] = new Individual(params);
+    private Population initializePopulation() {
+        Population population = new Population(config.populationSize, numParameters);
+        for (int i = 0; i < population.size; i++) {
+            ops.randomParameters(population.genes, population.offset(i));
         }
+        // Palpite inicial (ex.: estimativa por FFT) no lugar do primeiro indivíduo:
+        if (config.initialGuess != null) space.place(config.initialGuess, population.genes, 0, false);
         return population;
     }
 
-    // 2. Calcula o valor Fitness (MI) para cada indivíduo
-    private void evaluatePopulation(Individual[] population) {
-        for (Individual individual : population) {
-            individual.fitness = calculateMI(individual.parameters);
-        }
-    }
-
-    // 3. Seleção (Tournament Selection - Torneio)
-    private Individual selectParent(Individual[] population) {
-        int tournamentSize = 5;
-        Individual best = null;
-        for (int i = 0; i < tournamentSize; i++) {
-            Individual current = population[random.nextInt(POPULATION_SIZE)];
-            // Como MI (fitness) é maximizado, o maior é o melhor:
-            if (best == null || current.fitness > best.fitness) {
-                best = current;
-            }
-        }
-        return best;
+    // População e gerador como estavam no checkpoint:
+    private Population restorePopulation(Checkpoint checkpoint) {
+        Population population = new Population(config.populationSize, numParameters);
+        checkpoint.restore(0, population.genes);
+        checkpoint.restore(1, population.fitness);
+        random.restore(checkpoint.random);
+        return population;
     }
 
-    // 4. Crossover (BLX-alpha - Blend Crossover)
-    private Individual crossover(Individual parent1, Individual parent2) {
-        double[] childParams = new double[NUM_PARAMETERS];
-        
-        if (random.nextDouble() < CROSSOVER_RATE) {
-            double alpha = 0.5;
-            for (int i = 0; i < NUM_PARAMETERS; i++) {
-                double min = Math.min(parent1.parameters[i], parent2.parameters[i]);
-                double max = Math.max(parent1.parameters[i], parent2.parameters[i]);
-                double range = max - min;
-                
-                double lower = min - alpha * range;
-                double upper = max + alpha * range;
-
-                childParams[i] = lower + random.nextDouble() * (upper - lower);
-                
-                // Limita o parâmetro ao range de busca global:
-                childParams[i] = Math.max(MIN_BOUNDS[i], Math.min(MAX_BOUNDS[i], childParams[i]));
+    // 2. Calcula o valor Fitness (MI) para os indivíduos a partir de from. Com surrogate, só a fração mais
+    // promissora (segundo a previsão k-NN) é avaliada de verdade; os demais ficam com o fitness previsto.
+    private void evaluatePopulation(Population population, int from) {
+        if (surrogate != null) surrogate.screen(population, from, config.surrogateFraction, false);
+        for (int i = from; i < population.size; i++) {
+            if (population.estimated[i]) continue;
+            // Parada pedida (cancelamento, prazo): os indivíduos restantes ficam com o pior fitness.
+            if (config.stopRequested()) {
+                population.fitness[i] = Double.NEGATIVE_INFINITY;
+                continue;
             }
-        } else {
-            // Se não houver crossover, um dos pais é escolhido (elitismo)
-            childParams = (random.nextBoolean() ? parent1.parameters : parent2.parameters).clone();
+            population.copyParameters(i, scratch);
+            population.fitness[i] = calculateMI(scratch);
+            if (surrogate != null) surrogate.add(i, scratch, population.fitness[i]);
         }
-        
-        return new Individual(childParams);
     }
 
-    // 5. Mutação (Adição de ruído Gaussiano)
-    private void mutate(Individual individual) {
-        for (int i = 0; i < NUM_PARAMETERS; i++) {
-            if (random.nextDouble() < MUTATION_RATE) {
-                // Adiciona um pequeno ruído Gaussiano (sigma=0.05)
-                individual.parameters[i] += random.nextGaussian() * 0.05;
-
-                // Limita o parâmetro ao range de busca:
-                individual.parameters[i] = Math.max(MIN_BOUNDS[i], Math.min(MAX_BOUNDS[i], individual.parameters[i]));
-            }
-        }
-    }
+    // 3-5. Seleção por torneio, crossover BLX-alpha e mutação Gaussiana: ver GeneticOperators
 
     // --- FUNÇÃO DE OTIMIZAÇÃO PRINCIPAL ---
     public Individual runGA() {
-        Individual[] population = initializePopulation();
-        evaluatePopulation(population);
-
-        for (int generation = 0; generation < MAX_GENERATIONS; generation++) {
-            // Ordena a população (o melhor, maior MI, fica na primeira posição)
-            // Usamos -i.fitness para ordenar de forma decrescente
-            Arrays.sort(population, Comparator.comparingDouble(i -> -i.fitness)); 
-            Individual bestIndividual = population[0];
-            
-            // Log de progresso:
-            System.out.printf("Geração %d: Melhor MI = %.6f (Bits)\n", generation, bestIndividual.fitness);
+        report = new RunReport("GA/MI", true, config.targetMI, config);
+        report.setSurrogate(surrogate);
+        // Retomada de um checkpoint (config.resume) ou população nova:
+        Checkpoint checkpoint = Checkpoint.resume("GA/MI", config);
+        Population population = checkpoint != null ? restorePopulation(checkpoint) : initializePopulation();
+        // Buffer da próxima geração (os dois são alternados, sem alocar a cada geração)
+        Population next = new Population(config.populationSize, numParameters);
+        if (checkpoint == null) evaluatePopulation(population, 0);
+        Checkpoint.Writer checkpoints = Checkpoint.Writer.forConfig(config);
+
+        for (int generation = checkpoint != null ? checkpoint.generation : 0; generation < config.maxGenerations; generation++) {
+            report.beginGeneration(generation);
+
+            // Melhor indivíduo (maior MI) em uma passada, sem ordenar a população
+            int best = population.bestIndex(true);
+            double bestFitness = population.fitness[best];
             
             // Condição de parada opcional:
-            if (bestIndividual.fitness > 3.0) { 
-                System.out.println("Convergência de MI atingida.");
+            if (bestFitness > config.targetMI) { 
+                report.setStopReason("fitness alvo atingido");
+                report.endGeneration(bestFitness);
                 break;
             }
 
-            Individual[] newPopulation = new Individual[POPULATION_SIZE];
-            // Elitismo: Mantém o melhor indivíduo da geração anterior:
-            newPopulation[0] = bestIndividual;
+            // Elitismo: Mantém o melhor indivíduo da geração anterior (já avaliado):
+            next.copyFrom(population, best, 0);
 
             // Gera o restante da nova população:
-            for (int i = 1; i < POPULATION_SIZE; i++) {
-                Individual parent1 = selectParent(population);
-                Individual parent2 = selectParent(population);
-                Individual child = crossover(parent1, parent2);
-                mutate(child);
-                newPopulation[i] = child;
+            for (int i = 1; i < config.populationSize; i++) {
+                int parent1 = ops.selectParent(population.fitness, population.size);
+                int parent2 = ops.selectParent(population.fitness, population.size);
+                ops.crossover(population.genes, population.offset(parent1),
+                              population.genes, population.offset(parent2),
+                              next.genes, next.offset(i));
+                ops.mutate(next.genes, next.offset(i));
             }
 
-            population = newPopulation;
-            evaluatePopulation(population);
+            Population previous = population;
+            population = next;
+            next = previous;
+            evaluatePopulation(population, 1);
+            report.endGeneration(bestFitness);
+            // Parada pedida de fora (ex.: outra execução do EnsembleRunner atingiu o alvo, prazo esgotado). A
+            // geração pode ter ficado incompleta, então não vira checkpoint:
+            if (config.stopRequested()) break;
+            if (checkpoints != null && checkpoints.due(generation)) {
+                checkpoints.submit(new Checkpoint("GA/MI", config, generation + 1, random, population.genes, population.fitness));
+            }
         }
 
         // Retorna o melhor indivíduo após todas as gerações:
-        Arrays.sort(population, Comparator.comparingDouble(i -> -i.fitness));
-        return population[0];
+        int best = population.bestIndex(true);
+        Individual bestIndividual = new Individual(population.parameters(best));
+        bestIndividual.fitness = population.fitness[best];
+        if (surrogate != null) report.message(surrogate.summary(report.getEvaluations()));
+        report.finish(); // Logo ao sair do laço: fixa o motivo da parada antes de esperar os checkpoints
+        if (checkpoints != null) checkpoints.close();
+        return bestIndividual;
+    }
+
+    public RunReport getLastReport() {
+        return report;
     }
     
     // --- FUNÇÃO MAIN PARA TESTE ---
@@ -237,6 +185,10 @@ public class GeneticMI {
             return;
         }
 
+        // Parâmetros: --preset=fast|balanced|accurate, --config=arquivo, --chave=valor
+        RegistrationConfig config = RegistrationConfig.fromArgs(args);
+        config.progress = ProgressListener.CONSOLE;
+
         System.out.printf("Iniciando GA com MI. Modelo: %dx%d, Cena: %dx%d\n", 
                           modelImage.getWidth(), modelImage.getHeight(), 
                           sceneImage.getWidth(), sceneImage.getHeight());
@@ -244,22 +196,22 @@ public class GeneticMI {
         // --- 2. EXECUÇÃO DO ALGORITMO GENÉTICO ---
         
         long startTime = System.currentTimeMillis();
-        GeneticMI ga = new GeneticMI(modelImage, sceneImage);
+        GeneticMI ga = new GeneticMI(modelImage, sceneImage, config);
         Individual bestSolution = ga.runGA();
         long endTime = System.currentTimeMillis();
 
-        double[][] resultMatrix = ImageTransforms.createAffineMatrix(bestSolution.parameters[0], bestSolution.parameters[1],bestSolution.parameters[2],bestSolution.parameters[3],bestSolution.parameters[4]);
+        double[][] resultMatrix = ParameterSpace.toMatrix(bestSolution.parameters, modelImage.getWidth(), modelImage.getHeight());
 
         // Aplica a solução encontrada para obter a imagem registrada:
         BufferedImage registeredImage = ImageTransforms.applyTransform(sceneImage, resultMatrix);
         
         // Salva o resultado na pasta 'images'
-        ImageTransforms.saveImage(registeredImage, "images/registeredImage_GA_MI_Result.png");
+        ImageTransforms.saveImageAsync(registeredImage, "images/registeredImage_GA_MI_Result.png");
 
         System.out.println("\n--- Solução Encontrada (GA/MI) ---");
         System.out.printf("Melhor MI: %.6f (Bits)\n", bestSolution.fitness);
         System.out.printf("Tempo de execução: %.2f segundos\n", (endTime - startTime) / 1000.0);
-        System.out.println("Parâmetros Afins Encontrados (sx, sy, theta, tx, ty):");
+        System.out.println("Parâmetros Encontrados (sx, sy, theta, tx, ty; ou os cantos no modo homography):");
         System.out.println(Arrays.toString(bestSolution.parameters));
         System.out.println("---------------------------------");
         
@@ -1,29 +1,25 @@
 import java.awt.GridLayout;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Random;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 // Classe que implementa o Algoritmo Genético com a métrica Mean Squared Error (MSE) como função objetivo.
 public class GeneticMSE {
-    private static final int POPULATION_SIZE = 50;
-    private static final int MAX_GENERATIONS = 50; 
-    private static final double MUTATION_RATE = 0.1;
-    private static final double CROSSOVER_RATE = 0.8;
-    private static final int NUM_PARAMETERS = 5; //sx,sy, theta, tx, ty
+    private final int numParameters; // 5 (afim) ou 8 (homografia), ver config.transform
     
-    // Intervalos de busca para os parâmetros de transformação:
-    //sx,sy, theta, tx, ty
-    private static final double[] MIN_BOUNDS = {0.1, 0.1, -90, -150, -150}; 
-    private static final double[] MAX_BOUNDS = {2.0, 2.0, 90, 150, 150};
+    private final RegistrationConfig config; // Parâmetros do otimizador (ver RegistrationConfig)
+    private PixelImage modelPixels; 
+    private PixelImage scenePixels; 
     
-    private BufferedImage modelImage; 
-    private BufferedImage sceneImage; 
-    
-    private Random random;
+    private final ParameterSpace space;  // Limites, unidades e periodicidade dos parâmetros
+    private final GeneticOperators ops;  // Torneio, BLX-alpha e mutação (sobre os vetores da população)
+    private final RestorableRandom random; // Gerador dos operadores (o estado vai para o checkpoint)
+    private final double[] scratch; // Parâmetros do indivíduo em avaliação
+    private final int kernelCandidates; // Candidatos simultâneos informados ao kernel (ver ResourceLimits)
+    private final SurrogateModel surrogate; // Triagem k-NN dos filhos (null se config.surrogate == false)
+    private RunReport report; // Relatório da última execução (curva de convergência, avaliações, alocação)
 
     // Estrutura para o indivíduo:
     public static class Individual {
@@ -48,161 +44,139 @@ public class GeneticMSE {
     }
 
     public GeneticMSE(BufferedImage model, BufferedImage scene) {
-        this.modelImage = model;
-        this.sceneImage = scene;
-        this.random = new Random();
+        this(model, scene, RegistrationConfig.balanced());
     }
 
-    // Inicializa a população com parâmetros aleatórios dentro dos limites:
-    private Individual[] initializePopulation() {
-        Individual[] population = new Individual[POPULATION_SIZE];
-        for (int i = 0; i < POPULATION_SIZE; i++) {
-            double[] params = new double[NUM_PARAMETERS];
-            for (int j = 0; j < NUM_PARAMETERS; j++) {
-                params[j] = MIN_BOUNDS[j] + (MAX_BOUNDS[j] - MIN_BOUNDS[j]) * random.nextDouble();
-            }
-            population[i] = new Individual(params);
-        }
-        return population;
+    public GeneticMSE(BufferedImage model, BufferedImage scene, RegistrationConfig config) {
+        this(PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene), config);
     }
 
-    // Calcula o valor do MSE para cada indivíduo:
-    private void evaluatePopulation(Individual[] population) {
-        for (Individual individual : population) {
-            individual.setFitness(calculateMSE(individual.getParameters()));
-        }
+    // Imagens já decodificadas (ex.: o modelo reaproveitado entre os quadros de uma sequência):
+    public GeneticMSE(PixelImage model, PixelImage scene, RegistrationConfig config) {
+        config.validate();
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+        this.numParameters = space.size();
+        this.scratch = new double[numParameters];
+        this.kernelCandidates = ResourceLimits.kernelCandidates(config, 1);
+        this.modelPixels = model;
+        this.scenePixels = scene;
+        this.random = new RestorableRandom();
+        this.ops = new GeneticOperators(config, space, false, random);
+        this.surrogate = SurrogateModel.fromConfig(config, space, false);
     }
 
     // Função Objetivo: Calcula o MSE entre a imagem transformada e o modelo.
     private double calculateMSE(double[] params) {    //sx,sy, theta, tx, ty
-        double[][] affineMatrix = ImageTransforms.createAffineMatrix(params[0], params[1],params[2],params[3],params[4]);
-
-        // Aplica a transformação inversa:
-        BufferedImage transformedScene = ImageTransforms.applyTransform(sceneImage, affineMatrix);
-
-        // Calcula o MSE entre a imagem transformada e o modelo:
-        long sumSquaredError = 0;
-        int count = 0;
-        int w = Math.min(modelImage.getWidth(), transformedScene.getWidth());
-        int h = Math.min(modelImage.getHeight(), transformedScene.getHeight());
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int modelRGB = modelImage.getRGB(x, y);
-                int sceneRGB = transformedScene.getRGB(x, y);
-
-                // Separa os canais de cor:
-                int rModel = (modelRGB >> 16) & 0xFF;
-                int gModel = (modelRGB >> 8) & 0xFF;
-                int bModel = modelRGB & 0xFF;
-
-                int rScene = (sceneRGB >> 16) & 0xFF;
-                int gScene = (sceneRGB >> 8) & 0xFF;
-                int bScene = sceneRGB & 0xFF;
-                
-                // Erro Quadrático Total (todas as cores):
-                sumSquaredError += Math.pow(rModel - rScene, 2);
-                sumSquaredError += Math.pow(gModel - gScene, 2);
-                sumSquaredError += Math.pow(bModel - bScene, 2);
-                
-                count += 3; // 3 canais (R, G e b) por pixel.
-            }
-        }
-
-        if (count == 0) {
-            return Double.MAX_VALUE; 
-        }
+        double[][] matrix = ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height);
 
-        // Retorna o MSE:
-        return (double) sumSquaredError / count;
+        // Aplica a transformação inversa e calcula o MSE em um único passo (sem gerar a imagem transformada):
+        double mse = RegistrationMetrics.meanSquaredError(modelPixels, scenePixels, matrix, kernelCandidates);
+        if (report != null) report.recordEvaluation(mse);
+        return mse;
     }
 
-    // Seleção por torneio:
-    private Individual selectParent(Individual[] population) {
-        int tournamentSize = 5;
-        Individual best = null;
-        for (int i = 0; i < tournamentSize; i++) {
-            Individual current = population[random.nextInt(POPULATION_SIZE)];
-            if (best == null || current.fitness < best.fitness) {
-                best = current;
-            }
+    // Inicializa a população com parâmetros aleatórios dentro dos limites:
+    private Population initializePopulation() {
+        Population population = new Population(config.populationSize, numParameters);
+        for (int i = 0; i < population.size; i++) {
+            ops.randomParameters(population.genes, population.offset(i));
         }
-        return best;
+        // Palpite inicial (ex.: estimativa por FFT) no lugar do primeiro indivíduo:
+        if (config.initialGuess != null) space.place(config.initialGuess, population.genes, 0, false);
+        return population;
     }
 
-    // Crossover:
-    private Individual crossover(Individual parent1, Individual parent2) {
-        double[] childParams = new double[NUM_PARAMETERS];
-        
-        if (random.nextDouble() < CROSSOVER_RATE) {
-            double alpha = 0.5;
-            for (int i = 0; i < NUM_PARAMETERS; i++) {
-                double min = Math.min(parent1.parameters[i], parent2.parameters[i]);
-                double max = Math.max(parent1.parameters[i], parent2.parameters[i]);
-                double range = max - min;
-                
-                double lower = min - alpha * range;
-                double upper = max + alpha * range;
-
-                childParams[i] = lower + random.nextDouble() * (upper - lower);
-                
-                // Limita o parâmetro ao range de busca global:
-                childParams[i] = Math.max(MIN_BOUNDS[i], Math.min(MAX_BOUNDS[i], childParams[i]));
-            }
-        } else {
-            // Se não houver crossover, um dos pais é escolhido:
-            childParams = (random.nextBoolean() ? parent1.parameters : parent2.parameters).clone();
-        }
-        
-        return new Individual(childParams);
+    // População gravada no checkpoint (já avaliada), com o gerador no estado em que estava:
+    private Population restorePopulation(Checkpoint checkpoint) {
+        Population population = new Population(config.populationSize, numParameters);
+        checkpoint.restore(0, population.genes);
+        checkpoint.restore(1, population.fitness);
+        random.restore(checkpoint.random);
+        return population;
     }
 
-    // Mutação com ruído Gaussiano:
-    private void mutate(Individual individual) {
-        for (int i = 0; i < NUM_PARAMETERS; i++) {
-            if (random.nextDouble() < MUTATION_RATE) {
-                // Adiciona um pequeno ruído Gaussiano:
-                individual.parameters[i] += random.nextGaussian() * 0.05;
-
-                // Limita o parâmetro ao range de busca:
-                individual.parameters[i] = Math.max(MIN_BOUNDS[i], Math.min(MAX_BOUNDS[i], individual.parameters[i]));
+    // Calcula o valor MSE para os indivíduos a partir de from. Com surrogate, só a fração mais
+    // promissora (segundo a previsão k-NN) é avaliada de verdade; os demais ficam com o fitness previsto.
+    private void evaluatePopulation(Population population, int from) {
+        if (surrogate != null) surrogate.screen(population, from, config.surrogateFraction, false);
+        for (int i = from; i < population.size; i++) {
+            if (population.estimated[i]) continue;
+            // Parada pedida (cancelamento, prazo): os indivíduos restantes ficam com o pior fitness.
+            if (config.stopRequested()) {
+                population.fitness[i] = Double.MAX_VALUE;
+                continue;
             }
+            population.copyParameters(i, scratch);
+            population.fitness[i] = calculateMSE(scratch);
+            if (surrogate != null) surrogate.add(i, scratch, population.fitness[i]);
         }
     }
 
     // Função de otimização (roda o algoritmo):
     public Individual runGA() {
-        Individual[] population = initializePopulation();
-        evaluatePopulation(population);
-
-        for (int generation = 0; generation < MAX_GENERATIONS; generation++) {
-            // Ordena a população (o menor MSE, fica na primeira posição):
-            Arrays.sort(population, Comparator.comparingDouble(i -> i.fitness));
-            Individual bestIndividual = population[0];
-            
-            Individual[] newPopulation = new Individual[POPULATION_SIZE];
-
-            // Elitismo (Mantém o melhor indivíduo da geração anterior):
-            newPopulation[0] = bestIndividual;
-
-            System.out.printf("Geração %d: Melhor MSE = %.6f\n", generation, bestIndividual.fitness);
-
-            // Gera o restante da nova população::
-            for (int i = 1; i < POPULATION_SIZE; i++) {
-                Individual parent1 = selectParent(population);
-                Individual parent2 = selectParent(population);
-                Individual child = crossover(parent1, parent2);
-                mutate(child);
-                newPopulation[i] = child;
+        report = new RunReport("GA/MSE", false, config.targetMSE, config);
+        report.setSurrogate(surrogate);
+        // Retomada (config.resume): população já avaliada e gerador no estado do checkpoint.
+        Checkpoint checkpoint = Checkpoint.resume("GA/MSE", config);
+        Population population = checkpoint != null ? restorePopulation(checkpoint) : initializePopulation();
+        // Buffer da próxima geração (os dois são alternados, sem alocar a cada geração):
+        Population next = new Population(config.populationSize, numParameters);
+        if (checkpoint == null) evaluatePopulation(population, 0);
+        Checkpoint.Writer checkpoints = Checkpoint.Writer.forConfig(config);
+
+        for (int generation = checkpoint != null ? checkpoint.generation : 0; generation < config.maxGenerations; generation++) {
+            report.beginGeneration(generation);
+
+            // Melhor indivíduo (menor MSE) em uma passada, sem ordenar a população:
+            int best = population.bestIndex(false);
+            double bestFitness = population.fitness[best];
+
+            // Condição de parada opcional (como no GA/MI e no PSO):
+            if (bestFitness < config.targetMSE) {
+                report.setStopReason("fitness alvo atingido");
+                report.endGeneration(bestFitness);
+                break;
             }
 
-            population = newPopulation;
-            evaluatePopulation(population);
+            // Elitismo (Mantém o melhor indivíduo da geração anterior, já avaliado):
+            next.copyFrom(population, best, 0);
+
+            // Gera o restante da nova população:
+            for (int i = 1; i < config.populationSize; i++) {
+                int parent1 = ops.selectParent(population.fitness, population.size);
+                int parent2 = ops.selectParent(population.fitness, population.size);
+                ops.crossover(population.genes, population.offset(parent1),
+                              population.genes, population.offset(parent2),
+                              next.genes, next.offset(i));
+                ops.mutate(next.genes, next.offset(i));
+            }
+
+            Population previous = population;
+            population = next;
+            next = previous;
+            evaluatePopulation(population, 1);
+            report.endGeneration(bestFitness);
+            // Parada pedida de fora (ex.: outra execução do EnsembleRunner atingiu o alvo, prazo esgotado). A
+            // geração pode ter ficado incompleta, então não vira checkpoint:
+            if (config.stopRequested()) break;
+            if (checkpoints != null && checkpoints.due(generation)) {
+                checkpoints.submit(new Checkpoint("GA/MSE", config, generation + 1, random, population.genes, population.fitness));
+            }
         }
 
         // Retorna o melhor indivíduo após todas as gerações:
-        Arrays.sort(population, Comparator.comparingDouble(i -> i.fitness));
-        return population[0];
+        int best = population.bestIndex(false);
+        Individual bestIndividual = new Individual(population.parameters(best));
+        bestIndividual.setFitness(population.fitness[best]);
+        if (surrogate != null) report.message(surrogate.summary(report.getEvaluations()));
+        report.finish(); // Logo ao sair do laço: fixa o motivo da parada antes de esperar os checkpoints
+        if (checkpoints != null) checkpoints.close();
+        return bestIndividual;
+    }
+
+    public RunReport getLastReport() {
+        return report;
     }
 
     // Função para mostrar as imagens de teste:
@@ -234,26 +208,28 @@ public class GeneticMSE {
             return;
         }
 
+        // Parâmetros: --preset=fast|balanced|accurate, --config=arquivo, --chave=valor
+        RegistrationConfig config = RegistrationConfig.fromArgs(args);
+        config.progress = ProgressListener.CONSOLE;
+
         // Execução do G.A.: 
         long startTime = System.currentTimeMillis();
-        GeneticMSE ga = new GeneticMSE(modelImage, sceneImage);
+        GeneticMSE ga = new GeneticMSE(modelImage, sceneImage, config);
         Individual bestSolution = ga.runGA();
         long endTime = System.currentTimeMillis();
 
         double[] params = bestSolution.getParameters();
 
-        double[][] resultMatrix = ImageTransforms.createAffineMatrix(
-            params[0], params[1], params[2], params[3], params[4]
-        );
+        double[][] resultMatrix = ParameterSpace.toMatrix(params, modelImage.getWidth(), modelImage.getHeight());
 
         // Aplica a solução encontrada para obter a imagem registrada e a salva:
         BufferedImage registeredImage = ImageTransforms.applyTransform(sceneImage, resultMatrix);
-        ImageTransforms.saveImage(registeredImage, "images/registeredImage_GA_MSE_Result.png");
+        ImageTransforms.saveImageAsync(registeredImage, "images/registeredImage_GA_MSE_Result.png");
 
         System.out.println("\n--- Solução Encontrada (GA) ---");
         System.out.printf("Melhor MSE: %.6f\n", bestSolution.getFitness());
         System.out.printf("Tempo de execução: %.2f segundos\n", (endTime - startTime) / 1000.0);
-        System.out.println("Parâmetros Afins Encontrados (sx, sy, theta, tx, ty):");
+        System.out.println("Parâmetros Encontrados (sx, sy, theta, tx, ty; ou os cantos no modo homography):");
         System.out.println(Arrays.toString(params));
         System.out.println("---------------------------------");
         
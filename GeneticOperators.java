@@ -0,0 +1,106 @@
+import java.util.Random;
+
+// Operadores do GA (torneio, crossover BLX-alpha e mutação Gaussiana), usados por todas as variantes.
+// Trabalham direto nos vetores da população (ver Population): cada indivíduo é um trecho de um double[]
+// a partir de um offset, então gerar um filho não aloca nada. Random não é thread-safe: cada thread
+// (ilha, worker) usa sua própria instância.
+class GeneticOperators {
+    static final int TOURNAMENT_SIZE = 5;
+    static final double BLX_ALPHA = 0.5;
+    static final double MUTATION_SIGMA = 0.05; // Na unidade do parâmetro; para o ângulo, em radianos.
+
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final boolean maximize;
+    private final double[] sigma; // Desvio da mutação por dimensão
+    final Random random;
+
+    GeneticOperators(RegistrationConfig config, ParameterSpace space, boolean maximize, Random random) {
+        this.config = config;
+        this.space = space;
+        this.maximize = maximize;
+        this.random = random;
+        this.sigma = new double[space.size()];
+        for (int i = 0; i < sigma.length; i++) {
+            sigma[i] = space.units[i] == ParameterSpace.Unit.DEGREES ? Math.toDegrees(MUTATION_SIGMA) : MUTATION_SIGMA;
+        }
+    }
+
+    boolean isBetter(double a, double b) {
+        return maximize ? a > b : a < b;
+    }
+
+    // Parâmetros aleatórios uniformes dentro dos limites:
+    double[] randomParameters() {
+        double[] params = new double[space.size()];
+        randomParameters(params, 0);
+        return params;
+    }
+
+    void randomParameters(double[] genes, int offset) {
+        for (int j = 0; j < space.size(); j++) {
+            genes[offset + j] = space.denormalize(j, random.nextDouble());
+        }
+    }
+
+    // Seleção por torneio entre os size primeiros indivíduos; devolve o índice do vencedor:
+    int selectParent(double[] fitness, int size) {
+        int best = random.nextInt(size);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int current = random.nextInt(size);
+            if (isBetter(fitness[current], fitness[best])) best = current;
+        }
+        return best;
+    }
+
+    double[] crossover(double[] parent1, double[] parent2) {
+        double[] child = new double[parent1.length];
+        crossover(parent1, 0, parent2, 0, child, 0);
+        return child;
+    }
+
+    // Crossover BLX-alpha (no círculo para dimensões periódicas). Pais e filho são trechos de vetores:
+    void crossover(double[] genes1, int offset1, double[] genes2, int offset2, double[] child, int childOffset) {
+        int dim = space.size();
+        if (random.nextDouble() >= config.crossoverRate) {
+            // Se não houver crossover, um dos pais é escolhido:
+            if (random.nextBoolean()) {
+                System.arraycopy(genes1, offset1, child, childOffset, dim);
+            } else {
+                System.arraycopy(genes2, offset2, child, childOffset, dim);
+            }
+            return;
+        }
+
+        for (int i = 0; i < dim; i++) {
+            double a = genes1[offset1 + i];
+            double b = genes2[offset2 + i];
+            if (space.isPeriodic(i)) {
+                double arc = space.difference(i, b, a);
+                double lower = Math.min(0, arc) - BLX_ALPHA * Math.abs(arc);
+                double upper = Math.max(0, arc) + BLX_ALPHA * Math.abs(arc);
+                child[childOffset + i] = space.canonicalize(i, a + lower + random.nextDouble() * (upper - lower));
+            } else {
+                double min = Math.min(a, b);
+                double max = Math.max(a, b);
+                double range = max - min;
+                double lower = min - BLX_ALPHA * range;
+                double upper = max + BLX_ALPHA * range;
+                child[childOffset + i] = space.canonicalize(i, lower + random.nextDouble() * (upper - lower));
+            }
+        }
+    }
+
+    void mutate(double[] params) {
+        mutate(params, 0);
+    }
+
+    // Mutação com ruído Gaussiano (in-place, no indivíduo que começa em offset):
+    void mutate(double[] genes, int offset) {
+        for (int i = 0; i < space.size(); i++) {
+            if (random.nextDouble() < config.mutationRate) {
+                genes[offset + i] = space.canonicalize(i, genes[offset + i] + random.nextGaussian() * sigma[i]);
+            }
+        }
+    }
+}
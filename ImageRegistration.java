@@ -3,19 +3,44 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.GridLayout;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 // Classe principal para orquestrar e comparar os algoritmos de registro.
 public class ImageRegistration {
-    private static class RegistrationResult {
+    private static final String[] DEFAULT_COMBINATIONS = {"GA/MSE", "GA/MI", "PSO/MSE", "PSO/MI"};
+
+    static class RegistrationResult {
         String name;
         String fitnessType; 
         double fitness;
         long timeMillis;
+        double[] parameters;
         double[][] transformationMatrix;
+        FreeFormDeformation deformation; // Só no registro deformável (FFD), aplicada depois da matriz
+        boolean stopped; // Parada antes do fim por um StopToken (ex.: outra execução atingiu o alvo, prazo)
+        String stopReason; // Motivo da parada (só com stopped)
+        boolean skipped; // Nem chegou a rodar (parada antes do início): sem parâmetros nem relatório
+        RunReport report;
+
+        // Execução pulada (ex.: outra execução do conjunto já atingiu o alvo), marcada como parada:
+        static RegistrationResult skipped(String name, String fitnessType, String reason) {
+            RegistrationResult result = new RegistrationResult();
+            result.name = name;
+            result.fitnessType = fitnessType;
+            result.fitness = Double.NaN;
+            result.stopped = true;
+            result.stopReason = reason;
+            result.skipped = true;
+            return result;
+        }
         
         public String getFormattedTime() {
             return String.format("%.2f s", timeMillis / 1000.0);
@@ -23,6 +48,23 @@ public class ImageRegistration {
         public String getFormattedFitness() {
             return String.format("%.4f", fitness);
         }
+
+        // Resultado em JSON (usado pelo servidor de registro):
+        public String toJson() {
+            if (skipped) {
+                return "{\"name\":" + Json.quote(name) + ",\"fitnessType\":" + Json.quote(fitnessType)
+                     + ",\"skipped\":true,\"stopped\":true,\"stopReason\":" + Json.quote(stopReason) + "}";
+            }
+            return "{\"name\":" + Json.quote(name)
+                 + ",\"fitnessType\":" + Json.quote(fitnessType)
+                 + ",\"fitness\":" + Json.number(fitness)
+                 + ",\"timeMillis\":" + timeMillis
+                 + ",\"parameters\":" + Json.array(parameters)
+                 + ",\"matrix\":" + Json.matrix(transformationMatrix)
+                 + (deformation != null ? ",\"lattice\":[" + deformation.cellsX + "," + deformation.cellsY + "]" : "")
+                 + (stopped ? ",\"stopped\":true,\"stopReason\":" + Json.quote(stopReason) : "")
+                 + (report != null ? ",\"report\":" + report.toJson() : "") + "}";
+        }
     }
 
     public static void main(String[] args) {
@@ -36,23 +78,110 @@ public class ImageRegistration {
             System.err.println("Não foi possível carregar as imagens");
             return;
         }
-        // Execução dos modelos:
-        RegistrationResult[] results = new RegistrationResult[4];
+        // Parâmetros: --preset=fast|balanced|accurate, --config=arquivo, --chave=valor
+        RegistrationConfig config = RegistrationConfig.fromArgs(args);
+        // Progresso de cada geração no console (o servidor e as sequências não imprimem):
+        config.progress = ProgressListener.CONSOLE;
+
+        // Combinações a comparar (argumentos sem "--", ex.: GA/MSE IGA/MI). Padrão: os 4 modelos originais.
+        List<String> combinations = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) combinations.add(arg);
+        }
+        if (combinations.isEmpty()) combinations = Arrays.asList(DEFAULT_COMBINATIONS);
 
-        results[0] = executeGA_MSE(modelImage, sceneImage);        
-        results[1] = executeGA_MI(modelImage, sceneImage);
-        results[2] = executePSO_MSE(modelImage, sceneImage);
-        results[3] = executePSO_MI(modelImage, sceneImage);
+        // Execução dos modelos (uma após a outra ou, com --concurrentRuns, ao mesmo tempo), com as imagens
+        // decodificadas uma vez para todas:
+        RegistrationResult[] results;
+        try {
+            results = EnsembleRunner.run(combinations, PixelImage.fromBufferedImage(modelImage),
+                                         PixelImage.fromBufferedImage(sceneImage), config);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
         
-        // Exibe parâmetros no terminal:
+        // Exibe parâmetros no terminal e salva os relatórios de cada execução:
         printFinalResults(results);
+        writeReports(results);
 
         SwingUtilities.invokeLater(() -> showComparisonWindow(modelImage, sceneImage, results));
     }
 
-    private static RegistrationResult executeGA_MSE(BufferedImage model, BufferedImage scene) {
+    // Executa um algoritmo (GA, PSO, IGA, AGA, APSO, CMAES, DE ou FFD) com uma métrica (MSE ou MI; GC só nos
+    // otimizadores genéricos, IGA, AGA, APSO, CMAES e DE):
+    static RegistrationResult execute(String algorithm, String metric, BufferedImage model, BufferedImage scene,
+                                      RegistrationConfig config) {
+        return execute(algorithm, metric, PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene), config);
+    }
+
+    // O mesmo com as imagens já decodificadas: cada imagem é decodificada uma vez e compartilhada pela
+    // estimativa inicial, pelo otimizador e pela função objetivo (e, numa sequência, o modelo entre quadros).
+    static RegistrationResult execute(String algorithm, String metric, PixelImage model, PixelImage scene,
+                                      RegistrationConfig config) {
+        // Limites da execução (ResourceLimits): a memória é conferida antes de começar; o prazo vira um
+        // StopToken próprio, que também para com o token de fora (se houver).
+        ResourceLimits.checkMemory(algorithm, metric, model, scene, config);
+        if (config.timeoutMillis > 0) {
+            config = config.copy();
+            config.stop = StopToken.withDeadline(config.stop, config.timeoutMillis);
+        }
+
+        // Estimativa inicial (config.initializer), contada no tempo da execução:
         long startTime = System.currentTimeMillis();
-        GeneticMSE ga = new GeneticMSE(model, scene);
+        Initializer.Estimate estimate = Initializer.estimate(config, model, scene);
+        if (estimate != null && estimate.reliable && config.initializer == Initializer.Mode.REPLACE) {
+            return fromEstimate(metric, model, scene, config, estimate, startTime);
+        }
+        RegistrationConfig searchConfig = Initializer.configure(config, estimate);
+        long initializerMillis = System.currentTimeMillis() - startTime;
+
+        RegistrationResult result = run(algorithm, metric, model, scene, searchConfig);
+        if (result != null) {
+            result.timeMillis += initializerMillis;
+            // Decidido pelo que o otimizador registrou ao sair do laço, não pelo token agora: uma busca que
+            // usou o orçamento inteiro logo antes do prazo não é parcial (e pode ficar no cache do servidor).
+            String interruption = result.report != null ? result.report.getInterruptReason() : null;
+            if (interruption != null) {
+                result.stopped = true;
+                result.stopReason = interruption;
+            }
+        }
+        return result;
+    }
+
+    private static RegistrationResult run(String algorithm, String metric, PixelImage model, PixelImage scene,
+                                          RegistrationConfig config) {
+        switch (algorithm.toUpperCase() + "/" + metric.toUpperCase()) {
+            case "GA/MSE":  return executeGA_MSE(model, scene, config);
+            case "GA/MI":   return executeGA_MI(model, scene, config);
+            case "PSO/MSE": return executePSO_MSE(model, scene, config);
+            case "PSO/MI":  return executePSO_MI(model, scene, config);
+            case "IGA/MSE":
+            case "IGA/MI":
+            case "IGA/GC":  return executeIslandGA(metric, model, scene, config);
+            case "AGA/MSE":
+            case "AGA/MI":
+            case "AGA/GC":  return executeAsyncGA(metric, model, scene, config);
+            case "APSO/MSE":
+            case "APSO/MI":
+            case "APSO/GC": return executeAsyncPSO(metric, model, scene, config);
+            case "CMAES/MSE":
+            case "CMAES/MI":
+            case "CMAES/GC": return executeCMAES(metric, model, scene, config);
+            case "DE/MSE":
+            case "DE/MI":
+            case "DE/GC":   return executeDE(metric, model, scene, config);
+            case "FFD/MSE":
+            case "FFD/MI":  return executeFFD(metric, model, scene, config);
+            default:
+                throw new IllegalArgumentException("Combinação desconhecida: " + algorithm + "/" + metric);
+        }
+    }
+
+    private static RegistrationResult executeGA_MSE(PixelImage model, PixelImage scene, RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        GeneticMSE ga = new GeneticMSE(model, scene, config);
         GeneticMSE.Individual bestSolution = ga.runGA();
         long endTime = System.currentTimeMillis();
         
@@ -63,13 +192,15 @@ public class ImageRegistration {
         result.fitnessType = "MSE";
         result.timeMillis = endTime - startTime;
         result.fitness = bestSolution.getFitness();
-        result.transformationMatrix = buildMatrix(bestSolution.getParameters());
+        result.parameters = bestSolution.getParameters().clone();
+        result.transformationMatrix = ParameterSpace.toMatrix(bestSolution.getParameters(), model.getWidth(), model.getHeight());
+        result.report = ga.getLastReport();
         return result;
     }
     
-    private static RegistrationResult executeGA_MI(BufferedImage model, BufferedImage scene) {
+    private static RegistrationResult executeGA_MI(PixelImage model, PixelImage scene, RegistrationConfig config) {
         long startTime = System.currentTimeMillis();
-        GeneticMI ga = new GeneticMI(model, scene);
+        GeneticMI ga = new GeneticMI(model, scene, config);
         GeneticMI.Individual bestSolution = ga.runGA();
         long endTime = System.currentTimeMillis();
         
@@ -80,13 +211,15 @@ public class ImageRegistration {
         result.fitnessType = "MI";
         result.timeMillis = endTime - startTime;
         result.fitness = bestSolution.fitness;
-        result.transformationMatrix = buildMatrix(bestSolution.parameters);
+        result.parameters = bestSolution.parameters.clone();
+        result.transformationMatrix = ParameterSpace.toMatrix(bestSolution.parameters, model.getWidth(), model.getHeight());
+        result.report = ga.getLastReport();
         return result;
     }
     
-    private static RegistrationResult executePSO_MSE(BufferedImage model, BufferedImage scene) {
+    private static RegistrationResult executePSO_MSE(PixelImage model, PixelImage scene, RegistrationConfig config) {
         long startTime = System.currentTimeMillis();
-        PSOMSE pso = new PSOMSE(model, scene);
+        PSOMSE pso = new PSOMSE(model, scene, config);
         PSOMSE.Particle bestSolution = pso.runPSO();
         long endTime = System.currentTimeMillis();
 
@@ -97,13 +230,15 @@ public class ImageRegistration {
         result.fitnessType = "MSE";
         result.timeMillis = endTime - startTime;
         result.fitness = bestSolution.pBestFitness;
-        result.transformationMatrix = buildMatrix(bestSolution.position);
+        result.parameters = bestSolution.position.clone();
+        result.transformationMatrix = ParameterSpace.toMatrix(bestSolution.position, model.getWidth(), model.getHeight());
+        result.report = pso.getLastReport();
         return result;
     }
 
-    private static RegistrationResult executePSO_MI(BufferedImage model, BufferedImage scene) {
+    private static RegistrationResult executePSO_MI(PixelImage model, PixelImage scene, RegistrationConfig config) {
         long startTime = System.currentTimeMillis();
-        PSOMI pso = new PSOMI(model, scene);
+        PSOMI pso = new PSOMI(model, scene, config);
         PSOMI.Particle bestSolution = pso.runPSO();
         long endTime = System.currentTimeMillis();
 
@@ -114,30 +249,153 @@ public class ImageRegistration {
         result.fitnessType = "MI";
         result.timeMillis = endTime - startTime;
         result.fitness = bestSolution.pBestFitness;
-        result.transformationMatrix = buildMatrix(bestSolution.position);
+        result.parameters = bestSolution.position.clone();
+        result.transformationMatrix = ParameterSpace.toMatrix(bestSolution.position, model.getWidth(), model.getHeight());
+        result.report = pso.getLastReport();
         return result;
     }
     
-    // Escala + Rotação + Translação (Coordenadas Homogêneas):
-    // [x']   [sx*cosθ  -sx*sinθ  tx] [x]
-    // [y'] = [sy*sinθ   sy*cosθ  ty] [y]
-    // [w']   [   0        0       1] [1]
-    private static double[][] buildMatrix(double[] params) {
-        return new double[][] {
-            {params[0]*Math.cos(params[2]), -params[0]*Math.sin(params[2]), params[3]},
-            {params[1]*Math.sin(params[2]), params[1]*Math.cos(params[2]), params[4]},
-            {0,         0,         1}
-        };
+    private static RegistrationResult executeIslandGA(String metric, PixelImage model, PixelImage scene,
+                                                      RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        // As ilhas avaliam ao mesmo tempo, então cada avaliação usa menos paralelismo interno:
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, config.islands);
+        IslandGA ga = new IslandGA(fitness, config);
+        Solution bestSolution = ga.run();
+        long endTime = System.currentTimeMillis();
+
+        return toResult("IGA/" + fitness.metricName(), fitness, bestSolution, ga.getLastReport(), endTime - startTime, model);
+    }
+
+    private static RegistrationResult executeAsyncGA(String metric, PixelImage model, PixelImage scene,
+                                                     RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, AsyncGA.workers(config));
+        AsyncGA ga = new AsyncGA(fitness, config);
+        Solution bestSolution = ga.run();
+        long endTime = System.currentTimeMillis();
+
+        return toResult("AGA/" + fitness.metricName(), fitness, bestSolution, ga.getLastReport(), endTime - startTime, model);
+    }
+
+    private static RegistrationResult executeAsyncPSO(String metric, PixelImage model, PixelImage scene,
+                                                      RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, AsyncGA.workers(config));
+        AsyncPSO pso = new AsyncPSO(fitness, config);
+        Solution bestSolution = pso.run();
+        long endTime = System.currentTimeMillis();
+
+        return toResult("APSO/" + fitness.metricName(), fitness, bestSolution, pso.getLastReport(), endTime - startTime, model);
+    }
+
+    private static RegistrationResult executeCMAES(String metric, PixelImage model, PixelImage scene,
+                                                   RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        // Cada geração é avaliada em lote por asyncWorkers threads:
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, AsyncGA.workers(config));
+        CMAES cma = new CMAES(fitness, config);
+        Solution bestSolution = cma.run();
+        long endTime = System.currentTimeMillis();
+
+        return toResult("CMAES/" + fitness.metricName(), fitness, bestSolution, cma.getLastReport(), endTime - startTime, model);
+    }
+
+    private static RegistrationResult executeDE(String metric, PixelImage model, PixelImage scene,
+                                                RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, AsyncGA.workers(config));
+        DifferentialEvolution de = new DifferentialEvolution(fitness, config);
+        Solution bestSolution = de.run();
+        long endTime = System.currentTimeMillis();
+
+        return toResult("DE/" + fitness.metricName(), fitness, bestSolution, de.getLastReport(), endTime - startTime, model);
+    }
+
+    // Registro deformável sobre a transformação do initialGuess (ex.: o resultado de um registro afim ou a
+    // estimativa do initializer); sem palpite, a deformação parte da identidade:
+    private static RegistrationResult executeFFD(String metric, PixelImage model, PixelImage scene,
+                                                 RegistrationConfig config) {
+        long startTime = System.currentTimeMillis();
+        double[][] base = config.initialGuess != null
+                ? ParameterSpace.toMatrix(config.initialGuess, model.getWidth(), model.getHeight())
+                : ImageTransforms.createAffineMatrix(1, 1, 0, 0, 0);
+        FFDRegistration ffd = new FFDRegistration(metric, model, scene, base, config);
+        Solution bestSolution = ffd.run();
+        long endTime = System.currentTimeMillis();
+
+        RegistrationResult result = new RegistrationResult();
+        result.name = "FFD/" + metric.toUpperCase(Locale.ROOT);
+        result.fitnessType = metric.toUpperCase(Locale.ROOT);
+        result.timeMillis = endTime - startTime;
+        result.fitness = bestSolution.getFitness();
+        result.parameters = bestSolution.getParameters();
+        result.transformationMatrix = base;
+        result.deformation = ffd.getDeformation();
+        result.report = ffd.getLastReport();
+        return result;
+    }
+
+    // Estimativa inicial usada como resultado, sem busca (initializer=replace): uma única avaliação da métrica.
+    private static RegistrationResult fromEstimate(String metric, PixelImage model, PixelImage scene,
+                                                   RegistrationConfig config, Initializer.Estimate estimate, long startTime) {
+        FitnessFunction fitness = FitnessFunction.forMetric(metric, model, scene, config, 1);
+        String name = config.initializerMethod + "/" + fitness.metricName();
+        RunReport report = new RunReport(name, fitness.isMaximized(), fitness.target(), config);
+        report.beginGeneration(0);
+        double value = fitness.evaluate(estimate.parameters);
+        report.recordEvaluation(value);
+        report.endGeneration(value);
+        report.finish();
+        return toResult(name, fitness, new Solution(estimate.parameters.clone(), value), report,
+                        System.currentTimeMillis() - startTime, model);
+    }
+
+    // Resultado dos otimizadores genéricos (FitnessFunction -> Solution):
+    private static RegistrationResult toResult(String name, FitnessFunction fitness, Solution solution,
+                                               RunReport report, long timeMillis, PixelImage model) {
+        if (solution == null) return null;
+
+        RegistrationResult result = new RegistrationResult();
+        result.name = name;
+        result.fitnessType = fitness.metricName();
+        result.timeMillis = timeMillis;
+        result.fitness = solution.getFitness();
+        result.parameters = solution.getParameters().clone();
+        result.transformationMatrix = ParameterSpace.toMatrix(solution.getParameters(), model.getWidth(), model.getHeight());
+        result.report = report;
+        return result;
+    }
+
+    // Salva o relatório (JSON) de cada execução em reports/:
+    private static void writeReports(RegistrationResult[] results) {
+        for (RegistrationResult result : results) {
+            if (result == null || result.report == null) continue;
+            try {
+                result.report.writeTo(Paths.get("reports", result.name.replace("/", "_") + ".json"));
+            } catch (IOException e) {
+                System.err.println("Não foi possível salvar o relatório de " + result.name + ": " + e.getMessage());
+            }
+        }
     }
 
     // Imprime os parâmetros finais no terminal:
     private static void printFinalResults(RegistrationResult[] results) {
         for (RegistrationResult result : results) {
-            if (result != null) {
-                System.out.printf("[%s] -> Fitness(%s): %s | Tempo: %s\n", 
-                                  result.name, result.fitnessType, 
-                                  result.getFormattedFitness(), result.getFormattedTime());
+            if (result != null && result.skipped) {
+                System.out.printf("[%s] -> Não executado: %s\n", result.name, result.stopReason);
+            } else if (result != null) {
+                System.out.printf("[%s] -> Fitness(%s): %s | Tempo: %s%s\n",
+                                  result.name, result.fitnessType,
+                                  result.getFormattedFitness(), result.getFormattedTime(),
+                                  result.stopped ? " (interrompido: " + result.stopReason + ")" : "");
                 System.out.printf("   Parâmetros: %s\n", Arrays.toString(result.transformationMatrix[0]) + Arrays.toString(result.transformationMatrix[1]));
+                if (result.deformation != null) {
+                    System.out.printf("   Deformação: grade de %dx%d células (%d pontos de controle)\n",
+                                      result.deformation.cellsX, result.deformation.cellsY, result.deformation.points());
+                } else if (result.parameters.length == ParameterSpace.HOMOGRAPHY_PARAMETERS) {
+                    System.out.printf("   Linha projetiva: %s\n", Arrays.toString(result.transformationMatrix[2]));
+                }
             } else {
                  System.out.println("Algoritmo falhou.");
             }
@@ -145,21 +403,25 @@ public class ImageRegistration {
     }
 
     private static void showComparisonWindow(BufferedImage model, BufferedImage scene, RegistrationResult[] results) {
-        JFrame frame = new JFrame("Comparação de Registro (4 Modelos)");
+        JFrame frame = new JFrame("Comparação de Registro (" + results.length + " Modelos)");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
-        // Modelo + Cena + 4 Modelos = 6 painéis (2 linhas de 3):
-        JPanel panel = new JPanel(new GridLayout(2, 3, 10, 10));
+        // Modelo + Cena + N Modelos, em linhas de 3 (4 modelos = 2 linhas de 3):
+        JPanel panel = new JPanel(new GridLayout((results.length + 2 + 2) / 3, 3, 10, 10));
         
         panel.add(new ImagePanel(model, "0. Modelo (Fixed)", ""));
         panel.add(new ImagePanel(scene, "1. Cena (Moving)", ""));
         
         for (int i = 0; i < results.length; i++) {
             RegistrationResult res = results[i];
-            if (res != null) {
-                BufferedImage registered = ImageTransforms.applyTransform(scene, res.transformationMatrix);
+            if (res != null && res.skipped) {
+                panel.add(new ImagePanel(null, (i+2) + ". " + res.name, "Não executado: " + res.stopReason));
+            } else if (res != null) {
+                BufferedImage registered = res.deformation != null
+                        ? res.deformation.warp(scene, res.transformationMatrix)
+                        : ImageTransforms.applyTransform(scene, res.transformationMatrix);
                 panel.add(new ImagePanel(registered, (i+2) + ". " + res.name, "Tempo: " + res.getFormattedTime()));
-                ImageTransforms.saveImage(registered, "images/registeredImage_" + res.name.replace("/", "_") + "_Result.png");
+                ImageTransforms.saveImageAsync(registered, "images/registeredImage_" + res.name.replace("/", "_") + "_Result.png");
             } else {
                 panel.add(new ImagePanel(null, (i+2) + ". Falha", ""));
             }
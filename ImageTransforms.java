@@ -4,6 +4,12 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ImageTransforms {
     // public static void main(String[] args) throws Exception {
@@ -66,8 +72,20 @@ public class ImageTransforms {
 
     /* FUNÇÕES PARA CARREGAR, SALVAR E MOSTRAR IMAGENS */
 
-    // Carrega a imagem:
+    // Gravações em segundo plano (saveImageAsync), em ordem, numa única thread. A thread não é daemon, então a
+    // JVM só termina depois das gravações pendentes; ociosa, ela encerra sozinha após 1 s.
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "image-writer"));
+    static {
+        WRITER.allowCoreThreadTimeOut(true);
+    }
+
+    // Carrega a imagem (PGM/PPM pelo leitor próprio, os demais formatos pelo ImageIO):
     public static BufferedImage loadImage(String path) {
+        if (Netpbm.handles(path)) {
+            PixelImage pixels = loadPixels(path);
+            return pixels != null ? pixels.toBufferedImage() : null;
+        }
         try {
             return ImageIO.read(new File(path));
         } catch (IOException e) {
@@ -76,15 +94,66 @@ public class ImageTransforms {
         }
     }
 
-    // Salva a imagem:
+    // Carrega a imagem direto no buffer primitivo usado pelos otimizadores (sem BufferedImage no PGM/PPM):
+    public static PixelImage loadPixels(String path) {
+        if (Netpbm.handles(path)) {
+            try {
+                return Netpbm.read(Paths.get(path));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        BufferedImage img = loadImage(path);
+        return img != null ? PixelImage.fromBufferedImage(img) : null;
+    }
+
+    // Salva a imagem no formato da extensão do arquivo: png, bmp e gif (sem perdas), jpg/jpeg, ou pgm/ppm/pnm
+    // (gravados diretamente, sem ImageIO). Outra extensão é um erro, em vez de gravar um formato diferente do nome.
     public static void saveImage(BufferedImage img, String path) {
         try {
-            ImageIO.write(img, "jpg", new File(path));
+            if (Netpbm.handles(path)) {
+                Netpbm.write(PixelImage.fromBufferedImage(img), Paths.get(path));
+                return;
+            }
+            String format = formatFor(path);
+            // JPEG e BMP não têm canal alfa: imagens ARGB são convertidas para RGB antes da gravação.
+            BufferedImage output = !format.equals("png") && !format.equals("gif") && img.getColorModel().hasAlpha()
+                    ? PixelImage.fromBufferedImage(img).toBufferedImage()
+                    : img;
+            if (!ImageIO.write(output, format, new File(path))) {
+                throw new IOException("Nenhum codificador " + format + " disponível para " + path);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    // Salva a imagem em segundo plano (a imagem não deve ser alterada até a gravação terminar). O futuro
+    // completa quando o arquivo foi escrito; erros são impressos, como em saveImage.
+    public static CompletableFuture<Void> saveImageAsync(BufferedImage img, String path) {
+        formatFor(path); // Extensão inválida é rejeitada já na chamada
+        return CompletableFuture.runAsync(() -> saveImage(img, path), WRITER);
+    }
+
+    private static String formatFor(String path) {
+        String name = new File(path).getName().toLowerCase(Locale.ROOT);
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        switch (extension) {
+            case "png":
+            case "bmp":
+            case "gif":
+            case "pgm":
+            case "ppm":
+            case "pnm":  return extension;
+            case "jpg":
+            case "jpeg": return "jpg";
+            default:
+                throw new IllegalArgumentException("Formato de imagem não suportado: " + path
+                                                   + " (use png, jpg, bmp, gif, pgm ou ppm)");
+        }
+    }
+
     // Abre o painel de visualização:
     public static void showImagesWindow(BufferedImage original, BufferedImage scaled, BufferedImage rotated, BufferedImage translated, BufferedImage perspective, BufferedImage affine) {
         JFrame frame = new JFrame("Imagem Original e Imagens Transformadas");
@@ -385,6 +454,7 @@ public class ImageTransforms {
     // [x']   [sx*cosθ  -sx*sinθ  tx] [x]
     // [y'] = [sy*sinθ   sy*cosθ  ty] [y]
     // [w']   [   0        0       1] [1]
+    // theta em radianos (os otimizadores trabalham em graus e convertem via ParameterSpace.toMatrix).
     public static double[][] createAffineMatrix(double sx, double sy, double theta, double tx, double ty) {
         double cos = Math.cos(theta);
         double sin = Math.sin(theta);
@@ -0,0 +1,86 @@
+// Estimativa inicial da transformação, antes da busca do otimizador (config.initializerMethod):
+//   FFT      - correlação de fase / Fourier-Mellin (FourierInitializer)
+//   FEATURES - cantos + descritores + RANSAC (FeatureAligner)
+// e como ela alimenta a busca (config.initializer):
+//   SEED    - a estimativa vira o initialGuess (entra na população/enxame inicial)
+//   NARROW  - também restringe os limites a initializerRadius do intervalo em torno dela
+//   REPLACE - a estimativa é o resultado, sem busca, quando é confiável (FEATURES com ao menos
+//             minInliers correspondências); caso contrário, age como SEED
+// No modo homografia (config.transform), a estimativa afim vira os deslocamentos dos cantos equivalentes.
+class Initializer {
+    enum Mode { NONE, SEED, NARROW, REPLACE }
+    enum Method { FFT, FEATURES }
+
+    // Parâmetros (sx, sy, theta em graus, tx, ty, ou os cantos no modo homografia), confiança (pico da correlação para FFT, fração de inliers
+    // para FEATURES) e se a estimativa pode substituir a busca:
+    static class Estimate {
+        final double[] parameters;
+        final double confidence;
+        final boolean reliable;
+
+        Estimate(double[] parameters, double confidence, boolean reliable) {
+            this.parameters = parameters;
+            this.confidence = confidence;
+            this.reliable = reliable;
+        }
+    }
+
+    // Estimativa pelo método configurado (null se config.initializer == NONE ou se não houve estimativa):
+    static Estimate estimate(RegistrationConfig config, PixelImage modelPixels, PixelImage scenePixels) {
+        if (config.initializer == Mode.NONE) return null;
+
+        long start = System.nanoTime();
+        Estimate estimate = config.initializerMethod == Method.FEATURES
+                ? FeatureAligner.estimate(modelPixels, scenePixels, config)
+                : FourierInitializer.estimate(modelPixels, scenePixels);
+        if (estimate == null) {
+            RunReport.message(config, "Inicialização", "Sem estimativa inicial (" + config.initializerMethod + "); a busca começa do zero.");
+            return null;
+        }
+        double[] p = estimate.parameters;
+        RunReport.message(config, "Inicialização", String.format(
+                "Estimativa inicial (%s): sx=%.4f sy=%.4f theta=%.2f tx=%.2f ty=%.2f (confiança %.3f, %.1f ms)",
+                config.initializerMethod, p[0], p[1], p[2], p[3], p[4], estimate.confidence,
+                (System.nanoTime() - start) / 1e6));
+        if (config.transform == ParameterSpace.Transform.HOMOGRAPHY) {
+            double[] corners = ParameterSpace.cornerDisplacements(ParameterSpace.toMatrix(p), modelPixels.width, modelPixels.height);
+            return new Estimate(corners, estimate.confidence, estimate.reliable);
+        }
+        return estimate;
+    }
+
+    // Configuração para a busca: a própria config sem estimativa; senão, uma cópia com o palpite
+    // (e, no modo NARROW, os limites restritos em torno dele).
+    static RegistrationConfig configure(RegistrationConfig config, Estimate estimate) {
+        if (estimate == null) return config;
+
+        RegistrationConfig seeded = config.copy();
+        ParameterSpace space = ParameterSpace.fromConfig(config);
+        seeded.initialGuess = new double[space.size()];
+        space.place(estimate.parameters, seeded.initialGuess, 0, false);
+        if (config.initializer == Mode.NARROW) narrow(seeded, space, config.initializerRadius);
+        return seeded;
+    }
+
+    // Limites a radius (fração do intervalo de space) em torno de config.initialGuess (dentro dos limites de
+    // space; o ângulo periódico fica livre das bordas, então o intervalo pode passar de -180/180):
+    static void narrow(RegistrationConfig config, ParameterSpace space, double radius) {
+        // Na homografia com limites ±cornerRange, os limites passam a ser um intervalo por deslocamento:
+        if (config.minBounds.length != space.size()) {
+            config.minBounds = space.min.clone();
+            config.maxBounds = space.max.clone();
+        }
+        for (int i = 0; i < space.size(); i++) {
+            double center = config.initialGuess[i];
+            double half = radius * space.range(i);
+            if (space.isPeriodic(i)) {
+                if (2 * half >= ParameterSpace.FULL_TURN) continue;
+                config.minBounds[i] = center - half;
+                config.maxBounds[i] = center + half;
+            } else {
+                config.minBounds[i] = Math.max(space.min[i], center - half);
+                config.maxBounds[i] = Math.min(space.max[i], center + half);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Algoritmo Genético em modelo de ilhas: a população é dividida em N subpopulações que evoluem de forma
+// independente, cada uma em sua thread, e a cada migrationInterval gerações trocam seus melhores indivíduos
+// (topologia em anel ou completa). Só há sincronização nas migrações, não a cada geração, e as ilhas
+// isoladas preservam diversidade (menos convergência prematura que uma única população).
+public class IslandGA {
+    // Para onde vão os migrantes de cada ilha:
+    enum Topology {
+        RING, // Ilha i envia para a ilha i+1
+        FULL  // Cada ilha recebe os melhores migrantes de todas as outras
+    }
+
+    private final FitnessFunction fitness;
+    private final RegistrationConfig config;
+    private final ParameterSpace space;
+    private final Random seeds = new Random();
+    private RunReport report;
+
+    // Subpopulação de uma ilha (vetores SoA alternados entre gerações, ver Population):
+    private class Island {
+        Population population;
+        Population next;
+        final GeneticOperators ops;
+        final boolean maximize = IslandGA.this.fitness.isMaximized();
+        final double[] scratch;
+
+        Island(int size, long seed) {
+            this.population = new Population(size, space.size());
+            this.next = new Population(size, space.size());
+            this.ops = new GeneticOperators(config, space, maximize, new Random(seed));
+            this.scratch = new double[space.size()];
+            for (int i = 0; i < size; i++) {
+                ops.randomParameters(population.genes, population.offset(i));
+                // Cada ilha começa com o palpite inicial (se houver) no primeiro indivíduo:
+                if (i == 0 && config.initialGuess != null) space.place(config.initialGuess, population.genes, 0, false);
+                population.fitness[i] = evaluate(i);
+            }
+        }
+
+        private double evaluate(int i) {
+            population.copyParameters(i, scratch);
+            return IslandGA.this.evaluate(scratch);
+        }
+
+        int bestIndex() {
+            return population.bestIndex(maximize);
+        }
+
+        double bestFitness() {
+            return population.fitness[bestIndex()];
+        }
+
+        // Uma geração: elitismo (o melhor é mantido sem reavaliação) + filhos por torneio, crossover e mutação.
+        void evolve() {
+            int size = population.size;
+            next.copyFrom(population, bestIndex(), 0);
+            for (int i = 1; i < size; i++) {
+                int parent1 = ops.selectParent(population.fitness, size);
+                int parent2 = ops.selectParent(population.fitness, size);
+                ops.crossover(population.genes, population.offset(parent1),
+                              population.genes, population.offset(parent2),
+                              next.genes, next.offset(i));
+                ops.mutate(next.genes, next.offset(i));
+            }
+
+            Population previous = population;
+            population = next;
+            next = previous;
+            for (int i = 1; i < size; i++) population.fitness[i] = evaluate(i);
+        }
+
+        // Cópia dos count melhores indivíduos (seleção parcial, sem ordenar a ilha):
+        Population emigrants(int count) {
+            count = Math.min(count, population.size);
+            int[] order = population.selectBest(count, maximize);
+            Population emigrants = new Population(count, space.size());
+            for (int k = 0; k < count; k++) emigrants.copyFrom(population, order[k], k);
+            return emigrants;
+        }
+
+        // Substitui os piores indivíduos pelos imigrantes (o melhor local nunca é substituído):
+        void receive(Population immigrants) {
+            int count = Math.min(immigrants.size, population.size - 1);
+            int[] order = population.selectBest(population.size - count, maximize);
+            for (int k = 0; k < count; k++) {
+                population.copyFrom(immigrants, k, order[population.size - 1 - k]);
+            }
+        }
+    }
+
+    public IslandGA(FitnessFunction fitness, RegistrationConfig config) {
+        config.validate();
+        this.fitness = fitness;
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+    }
+
+    // Com parada pedida (cancelamento, prazo), devolve o pior fitness sem avaliar:
+    private double evaluate(double[] params) {
+        if (config.stopRequested()) return fitness.worst();
+        double value = fitness.evaluate(params);
+        report.recordEvaluation(value);
+        return value;
+    }
+
+    public Solution run() {
+        report = new RunReport("IGA/" + fitness.metricName(), fitness.isMaximized(), fitness.target(), config);
+        int islandCount = config.islands;
+        int threads = ResourceLimits.threads(config, Math.min(islandCount, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            // A população total (populationSize) é dividida entre as ilhas:
+            Island[] islands = new Island[islandCount];
+            List<Future<Island>> created = new ArrayList<>();
+            for (int k = 0; k < islandCount; k++) {
+                int size = config.populationSize / islandCount + (k < config.populationSize % islandCount ? 1 : 0);
+                long seed = seeds.nextLong();
+                created.add(executor.submit(() -> new Island(size, seed)));
+            }
+            for (int k = 0; k < islandCount; k++) islands[k] = created.get(k).get();
+
+            int generation = 0;
+            while (generation < config.maxGenerations) {
+                // Época: cada ilha evolui migrationInterval gerações sem sincronizar com as outras.
+                int epoch = Math.min(config.migrationInterval, config.maxGenerations - generation);
+                report.beginGeneration(generation);
+
+                List<Future<?>> running = new ArrayList<>();
+                for (Island island : islands) {
+                    running.add(executor.submit(() -> {
+                        for (int g = 0; g < epoch; g++) island.evolve();
+                    }));
+                }
+                for (Future<?> f : running) f.get();
+                generation += epoch;
+
+                if (islandCount > 1 && generation < config.maxGenerations) migrate(islands);
+
+                double best = bestFitness(islands);
+                report.endGeneration(best);
+
+                if (fitness.reachedTarget(best)) {
+                    report.setStopReason("fitness alvo atingido");
+                    break;
+                }
+                if (config.stopRequested()) break;
+            }
+
+            // Retorna o melhor indivíduo entre todas as ilhas:
+            Island bestIsland = islands[0];
+            for (Island island : islands) {
+                if (fitness.isBetter(island.bestFitness(), bestIsland.bestFitness())) bestIsland = island;
+            }
+            int index = bestIsland.bestIndex();
+            return new Solution(bestIsland.population.parameters(index), bestIsland.population.fitness[index]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execução interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha em uma ilha: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            report.finish();
+        }
+    }
+
+    // Troca os melhores indivíduos entre as ilhas (feita entre épocas, com todas as ilhas paradas):
+    private void migrate(Island[] islands) {
+        int n = islands.length;
+        Population[] emigrants = new Population[n];
+        for (int k = 0; k < n; k++) emigrants[k] = islands[k].emigrants(config.migrants);
+
+        for (int target = 0; target < n; target++) {
+            if (config.migrationTopology == Topology.RING) {
+                islands[target].receive(emigrants[(target - 1 + n) % n]);
+            } else {
+                // Completa: os melhores migrantes entre todas as outras ilhas.
+                Population pool = new Population((n - 1) * emigrants[0].size, space.size());
+                int count = 0;
+                for (int source = 0; source < n; source++) {
+                    if (source == target) continue;
+                    for (int k = 0; k < emigrants[source].size; k++) pool.copyFrom(emigrants[source], k, count++);
+                }
+                int[] order = pool.selectBest(config.migrants, fitness.isMaximized());
+                Population chosen = new Population(Math.min(config.migrants, pool.size), space.size());
+                for (int k = 0; k < chosen.size; k++) chosen.copyFrom(pool, order[k], k);
+                islands[target].receive(chosen);
+            }
+        }
+    }
+
+    private double bestFitness(Island[] islands) {
+        double best = fitness.worst();
+        for (Island island : islands) {
+            double value = island.bestFitness();
+            if (fitness.isBetter(value, best)) best = value;
+        }
+        return best;
+    }
+
+    public RunReport getLastReport() {
+        return report;
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Leitor/escritor JSON mínimo (sem dependências externas).
+// Objetos viram Map<String, Object>, listas viram List<Object>, números viram Double.
+public class Json {
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    // Lê um objeto JSON (ex.: {"algorithm":"GA","metric":"MSE"}):
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("JSON: era esperado um objeto");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("conteúdo extra após o valor");
+        }
+        return value;
+    }
+
+    // Escapa uma string para JSON (com aspas):
+    public static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Formata um vetor de doubles como lista JSON:
+    public static String array(double[] values) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(number(values[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    // Formata uma matriz como lista de listas JSON:
+    public static String matrix(double[][] m) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < m.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(array(m[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    // JSON não aceita NaN/Infinito:
+    public static String number(double v) {
+        return Double.isFinite(v) ? Double.toString(v) : "null";
+    }
+
+    /* LEITURA */
+
+    private Object readValue() {
+        skipWhitespace();
+        if (pos >= text.length()) throw error("fim inesperado");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default:  return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++; // '{'
+        skipWhitespace();
+        if (peek() == '}') { pos++; return map; }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') throw error("':' esperado");
+            pos++;
+            map.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == '}') return map;
+            if (c != ',') throw error("',' ou '}' esperado");
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++; // '['
+        skipWhitespace();
+        if (peek() == ']') { pos++; return list; }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == ']') return list;
+            if (c != ',') throw error("',' ou ']' esperado");
+        }
+    }
+
+    private String readString() {
+        if (peek() != '"') throw error("string esperada");
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            char e = peek();
+            pos++;
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u': sb.append(readUnicodeEscape()); break;
+                default:  sb.append(e);
+            }
+        }
+        throw error("string não terminada");
+    }
+
+    // Os 4 dígitos hexadecimais de um escape unicode (malformado = 400, não uma exceção de índice):
+    private char readUnicodeEscape() {
+        if (pos + 4 > text.length()) throw error("escape \\u incompleto");
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(text.charAt(pos), 16);
+            if (digit < 0) throw error("escape \\u inválido");
+            value = value * 16 + digit;
+            pos++;
+        }
+        return (char) value;
+    }
+
+    private Double readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+        if (start == pos) throw error("valor inesperado");
+        return Double.valueOf(text.substring(start, pos));
+    }
+
+    private void expect(String word) {
+        if (!text.startsWith(word, pos)) throw error("'" + word + "' esperado");
+        pos += word.length();
+    }
+
+    private char peek() {
+        if (pos >= text.length()) throw error("fim inesperado");
+        return text.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON inválido (posição " + pos + "): " + message);
+    }
+}
@@ -0,0 +1,64 @@
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+// Custo por avaliação da função objetivo no modelo afim x homografia (mesmas imagens, mesma métrica):
+//   java KernelBenchmark [avaliações] [modelo] [cena]
+// Os candidatos ficam perto da identidade nos dois modelos (a maior parte dos pixels cai dentro da cena),
+// para que a comparação meça o kernel e não a fração de pixels que sai da imagem. O tempo inclui a montagem
+// da matriz (na homografia, o sistema 8x8 dos cantos).
+public class KernelBenchmark {
+    private static final int WARMUP = 200;
+
+    public static void main(String[] args) {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        String modelPath = args.length > 1 ? args[1] : "images/fixed.png";
+        String scenePath = args.length > 2 ? args[2] : "images/moving.png";
+
+        BufferedImage model = ImageTransforms.loadImage(modelPath);
+        BufferedImage scene = ImageTransforms.loadImage(scenePath);
+        if (model == null || scene == null) {
+            System.err.println("Não foi possível carregar as imagens");
+            return;
+        }
+        System.out.printf("Imagens %dx%d, %d avaliações por caso (após %d de aquecimento)\n",
+                          model.getWidth(), model.getHeight(), evaluations, WARMUP);
+
+        RegistrationConfig affine = RegistrationConfig.balanced();
+        RegistrationConfig homography = RegistrationConfig.balanced();
+        homography.transform = ParameterSpace.Transform.HOMOGRAPHY;
+
+        for (String metric : new String[] {"MSE", "MI", "GC"}) {
+            double affineMs = measure(FitnessFunction.forMetric(metric, model, scene, affine, 1), affine, evaluations);
+            double homographyMs = measure(FitnessFunction.forMetric(metric, model, scene, homography, 1), homography, evaluations);
+            System.out.printf("%-3s afim: %.3f ms/avaliação | homografia: %.3f ms/avaliação (%.2fx)\n",
+                              metric, affineMs, homographyMs, homographyMs / affineMs);
+        }
+    }
+
+    // Tempo médio (ms) de uma avaliação com candidatos aleatórios perto da identidade:
+    private static double measure(FitnessFunction fitness, RegistrationConfig config, int evaluations) {
+        Random random = new Random(42);
+        double[][] candidates = new double[evaluations][];
+        for (int i = 0; i < evaluations; i++) candidates[i] = candidate(config, random);
+
+        double sink = 0; // Evita que o JIT descarte as avaliações
+        for (int i = 0; i < WARMUP; i++) sink += fitness.evaluate(candidates[i % evaluations]);
+        long start = System.nanoTime();
+        for (double[] params : candidates) sink += fitness.evaluate(params);
+        long elapsed = System.nanoTime() - start;
+        if (Double.isNaN(sink)) System.out.println("(soma NaN)");
+        return elapsed / 1e6 / evaluations;
+    }
+
+    private static double[] candidate(RegistrationConfig config, Random random) {
+        if (config.transform == ParameterSpace.Transform.HOMOGRAPHY) {
+            double[] corners = new double[ParameterSpace.HOMOGRAPHY_PARAMETERS];
+            for (int k = 0; k < corners.length; k++) corners[k] = (random.nextDouble() * 2 - 1) * config.cornerRange;
+            return corners;
+        }
+        return new double[] {
+            0.9 + 0.2 * random.nextDouble(), 0.9 + 0.2 * random.nextDouble(),
+            (random.nextDouble() * 2 - 1) * 10, (random.nextDouble() * 2 - 1) * 20, (random.nextDouble() * 2 - 1) * 20
+        };
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Leitura e escrita de PGM/PPM (Netpbm) direto no buffer primitivo (PixelImage), sem passar pelo ImageIO.
+// O cabeçalho é texto: tipo (P2/P3 em texto, P5/P6 binários), largura, altura e valor máximo, separados por
+// espaços, com comentários iniciados por '#'. Em seguida vêm os pixels, 1 amostra (PGM, cinza replicado em
+// R, G e B) ou 3 (PPM) por pixel. Com valor máximo acima de 255, cada amostra binária ocupa 2 bytes
+// (big-endian); as amostras são reescaladas para 0..255.
+// A escrita é sempre binária com valor máximo 255; o PGM guarda a média (r + g + b) / 3, a mesma intensidade
+// usada pela MI (RegistrationMetrics.quantize).
+final class Netpbm {
+    private Netpbm() {
+    }
+
+    // Extensões tratadas por esta classe (.pnm é lido pelo tipo do cabeçalho e escrito como PPM):
+    static boolean handles(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".pgm") || lower.endsWith(".ppm") || lower.endsWith(".pnm");
+    }
+
+    // true se os bytes começam com a assinatura de um PGM/PPM suportado (P2, P3, P5 ou P6):
+    static boolean isNetpbm(byte[] bytes) {
+        return bytes.length > 2 && bytes[0] == 'P' && (bytes[1] == '2' || bytes[1] == '3' || bytes[1] == '5' || bytes[1] == '6');
+    }
+
+    static PixelImage read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in, Files.size(path));
+        }
+    }
+
+    // Lê de bytes já em memória (ex.: recebidos pelo servidor):
+    static PixelImage read(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    // Largura e altura declaradas no cabeçalho, sem ler os pixels (para conferir limites antes de decodificar):
+    static int[] size(byte[] bytes) throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes);
+        int type = readType(in);
+        int[] header = readHeader(in, type, bytes.length);
+        return new int[] {header[0], header[1]};
+    }
+
+    // available: tamanho total da entrada. O cabeçalho só é aceito se os pixels que ele declara cabem nela,
+    // então um arquivo pequeno com dimensões enormes é recusado antes de alocar o buffer da imagem.
+    private static PixelImage read(InputStream stream, long available) throws IOException {
+        InputStream in = new BufferedInputStream(stream, 1 << 16);
+        int type = readType(in);
+        int[] header = readHeader(in, type, available);
+        int width = header[0];
+        int height = header[1];
+        int maxValue = header[2];
+        boolean color = type == 3 || type == 6;
+        int[] rgb = new int[width * height];
+        if (type >= 5) {
+            readBinary(in, rgb, color, maxValue);
+        } else {
+            for (int k = 0; k < rgb.length; k++) {
+                int r = scale(readHeaderInt(in), maxValue);
+                int g = color ? scale(readHeaderInt(in), maxValue) : r;
+                int b = color ? scale(readHeaderInt(in), maxValue) : r;
+                rgb[k] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return new PixelImage(width, height, rgb);
+    }
+
+    private static int readType(InputStream in) throws IOException {
+        if (in.read() != 'P') throw new IOException("Não é um arquivo PGM/PPM");
+        int type = in.read() - '0';
+        if (type != 2 && type != 3 && type != 5 && type != 6) {
+            throw new IOException("Tipo Netpbm não suportado: P" + type + " (use P2, P3, P5 ou P6)");
+        }
+        return type;
+    }
+
+    // {largura, altura, valor máximo}, validados contra PixelImage.MAX_PIXELS e contra o tamanho da entrada:
+    // cada pixel ocupa ao menos 1 byte por amostra (2 acima de 255) no binário, e ao menos 1 dígito por amostra
+    // no texto.
+    private static int[] readHeader(InputStream in, int type, long available) throws IOException {
+        int width = readHeaderInt(in);
+        int height = readHeaderInt(in);
+        int maxValue = readHeaderInt(in);
+        if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 65535) {
+            throw new IOException("Cabeçalho inválido: " + width + "x" + height + ", valor máximo " + maxValue);
+        }
+        long pixels = (long) width * height;
+        if (pixels > PixelImage.MAX_PIXELS) {
+            throw new IOException("Imagem grande demais: " + width + "x" + height + " (máximo " + PixelImage.MAX_PIXELS + " pixels)");
+        }
+        int samples = type == 3 || type == 6 ? 3 : 1;
+        int bytesPerSample = type >= 5 && maxValue > 255 ? 2 : 1;
+        if (pixels * samples * bytesPerSample > available) {
+            throw new IOException("Arquivo PGM/PPM truncado: " + width + "x" + height + " não cabe em " + available + " bytes");
+        }
+        return new int[] {width, height, maxValue};
+    }
+
+    // Pixels binários, lidos em blocos (o cabeçalho termina em exatamente um espaço em branco):
+    private static void readBinary(InputStream in, int[] rgb, boolean color, int maxValue) throws IOException {
+        int bytesPerSample = maxValue > 255 ? 2 : 1;
+        int pixelBytes = (color ? 3 : 1) * bytesPerSample;
+        byte[] buffer = new byte[Math.max(1, (1 << 16) / pixelBytes) * pixelBytes];
+        int pixel = 0;
+        while (pixel < rgb.length) {
+            int length = Math.min(buffer.length, (rgb.length - pixel) * pixelBytes);
+            readFully(in, buffer, length);
+            for (int i = 0; i < length; i += pixelBytes, pixel++) {
+                int r = sample(buffer, i, bytesPerSample, maxValue);
+                int g = color ? sample(buffer, i + bytesPerSample, bytesPerSample, maxValue) : r;
+                int b = color ? sample(buffer, i + 2 * bytesPerSample, bytesPerSample, maxValue) : r;
+                rgb[pixel] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    private static int sample(byte[] buffer, int i, int bytesPerSample, int maxValue) {
+        int value = bytesPerSample == 1 ? buffer[i] & 0xFF : ((buffer[i] & 0xFF) << 8) | (buffer[i + 1] & 0xFF);
+        return scale(value, maxValue);
+    }
+
+    private static int scale(int value, int maxValue) {
+        return maxValue == 255 ? value : (int) Math.min(255, (value * 255L + maxValue / 2) / maxValue);
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(buffer, offset, length - offset);
+            if (n < 0) throw new IOException("Arquivo PGM/PPM truncado");
+            offset += n;
+        }
+    }
+
+    // Próximo inteiro do cabeçalho (ou de um arquivo em texto), pulando espaços e comentários:
+    private static int readHeaderInt(InputStream in) throws IOException {
+        int c = in.read();
+        while (c == '#' || Character.isWhitespace(c)) {
+            if (c == '#') {
+                while (c != '\n' && c != '\r' && c != -1) c = in.read();
+            }
+            c = in.read();
+        }
+        if (c < '0' || c > '9') throw new IOException("Cabeçalho PGM/PPM inválido (esperado um número)");
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > 1 << 24) throw new IOException("Valor fora do intervalo no cabeçalho PGM/PPM");
+            c = in.read();
+        }
+        // O caractere após o número (um espaço em branco) é consumido, como pede o formato.
+        return value;
+    }
+
+    static void write(PixelImage image, Path path) throws IOException {
+        boolean gray = path.toString().toLowerCase(Locale.ROOT).endsWith(".pgm");
+        int channels = gray ? 1 : 3;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            out.write(((gray ? "P5" : "P6") + "\n" + image.width + " " + image.height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            byte[] row = new byte[image.width * channels];
+            for (int y = 0; y < image.height; y++) {
+                int offset = y * image.width;
+                for (int x = 0; x < image.width; x++) {
+                    int rgb = image.rgb[offset + x];
+                    int r = (rgb >> 16) & 0xFF;
+                    int g = (rgb >> 8) & 0xFF;
+                    int b = rgb & 0xFF;
+                    if (gray) {
+                        row[x] = (byte) ((r + g + b) / 3);
+                    } else {
+                        row[3 * x] = (byte) r;
+                        row[3 * x + 1] = (byte) g;
+                        row[3 * x + 2] = (byte) b;
+                    }
+                }
+                out.write(row);
+            }
+        }
+    }
+}
@@ -1,35 +1,28 @@
 import java.awt.GridLayout;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
-import java.util.Random;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 // Classe que implementa o Particle Swarm Optimization com MI como função objetivo.
 public class PSOMI {
-    private static final int SWARM_SIZE = 50;       // Tamanho do enxame.
-    private static final int MAX_ITERATIONS = 50; 
-    private static final int NUM_PARAMETERS = 5; // Número de parâmetros da Transformação Afim
-    private static final int NUM_BINS = 32;     // Número de bins para o histograma conjunto.
+    private final int numParameters; // 5 (afim) ou 8 (homografia), ver config.transform
     
-    private static final double W_MAX = 0.9;  // Inércia máxima  (controla a exploração)
-    private static final double W_MIN = 0.4;  // Inércia mínima
-    private static final double C1 = 2.0;      // Coeficiente cognitivo (pBest - influência da melhor posição individual)
-    private static final double C2 = 2.0;     // Coeficiente social (gBest - influência da melhor posição global)
-
-    // Intervalos de busca:
-    private static final double[] MIN_BOUNDS = {0.1, 0.1, -90, -150, -150}; 
-    private static final double[] MAX_BOUNDS = {2.0, 2.0, 90, 150, 150}; 
-    private static final double V_MAX = 0.1; // Velocidade máxima
-
-    private BufferedImage modelImage;
-    private BufferedImage sceneImage;
-    private Random random;
-
-     // Estrutura para a partícula (solução candidata no espaço de busca):
+    private final RegistrationConfig config; // Parâmetros do otimizador (ver RegistrationConfig)
+    private PixelImage modelPixels;
+    private PixelImage scenePixels;
+    private final ParameterSpace space;    // Limites do espaço de busca (as partículas vivem em [0,1]^d)
+    private final double[] velocityLimits; // Velocidade máxima por dimensão, no espaço normalizado
+    private final RestorableRandom random; // Estado salvo no checkpoint
+    private final double[] scratch; // Parâmetros reais da partícula em avaliação
+    private final int kernelCandidates; // Candidatos simultâneos informados ao kernel (ver ResourceLimits)
+    private final SurrogateModel surrogate; // Triagem k-NN das partículas (null se config.surrogate == false)
+    private RunReport report; // Relatório da última execução (curva de convergência, avaliações, alocação)
+
+    // Estrutura para a partícula devolvida por runPSO (durante a busca o enxame fica em vetores, ver Population):
     static class Particle {
-        double[] position;     // Posição atual
+        double[] position;     // Posição (parâmetros reais)
         double[] velocity;     // Velocidade atual da partícula(direção e magnitude do movimento)
         double[] pBestPosition; // Melhor posição individual encontrada (pBest)
         double pBestFitness;   // Melhor fitness do pBest
@@ -45,173 +38,189 @@ public class PSOMI {
 
     // Construtor do otimizador:
     public PSOMI(BufferedImage model, BufferedImage scene) {
-        this.modelImage = model;
-        this.sceneImage = scene;
-        this.random = new Random();
+        this(model, scene, RegistrationConfig.balanced());
     }
 
-    // Converte RGB para um valor de intensidade quantizado (0 a NUM_BINS-1):
-    private static int getQuantizedIntensity(int rgb) {
-        // Extrai componentes RGB:
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
-        
-        // Converte para escala de cinza usando média simples:
-        int gray = (r + g + b) / 3;
-        
-        // Quantiza para o número de bins:
-        return Math.min(NUM_BINS - 1, (int) (gray * NUM_BINS / 256.0));
+    public PSOMI(BufferedImage model, BufferedImage scene, RegistrationConfig config) {
+        this(PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene), config);
+    }
+
+    // Com as imagens já decodificadas:
+    public PSOMI(PixelImage model, PixelImage scene, RegistrationConfig config) {
+        config.validate();
+        this.config = config;
+        this.space = ParameterSpace.fromConfig(config);
+        this.numParameters = space.size();
+        this.scratch = new double[numParameters];
+        this.kernelCandidates = ResourceLimits.kernelCandidates(config, 1);
+        this.velocityLimits = space.velocityLimits(config.vMax);
+        this.modelPixels = model;
+        this.scenePixels = scene;
+        this.random = new RestorableRandom();
+        this.surrogate = SurrogateModel.fromConfig(config, space, true);
     }
 
     // Função objetivo: Calcula a Mutual Information (MI) entre as imagens.
     private double calculateMI(double[] params) {
         // Aplica a transformação afim:
-        double[][] affineMatrix = ImageTransforms.createAffineMatrix(params[0], params[1],params[2],params[3],params[4]);
-
-        BufferedImage transformedScene = ImageTransforms.applyTransform(sceneImage, affineMatrix);
+        double[][] matrix = ParameterSpace.toMatrix(params, modelPixels.width, modelPixels.height);
 
-        // Determina a região de sobreposição:
-        int w = Math.min(modelImage.getWidth(), transformedScene.getWidth());
-        int h = Math.min(modelImage.getHeight(), transformedScene.getHeight());
-        
-        // Cria o Histograma Conjunto:
-        long[][] jointHistogram = new long[NUM_BINS][NUM_BINS];
-        long totalPixels = 0;
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                // Obtém a intensidades quantizadas:
-                int modelIntensity = getQuantizedIntensity(modelImage.getRGB(x, y));
-                int sceneIntensity = getQuantizedIntensity(transformedScene.getRGB(x, y));
-                
-                jointHistogram[modelIntensity][sceneIntensity]++;
-                totalPixels++;
-            }
-        }
-        
-        if (totalPixels == 0) return 0.0;
+        // Transformação inversa + histograma conjunto em um único passo (sem gerar a imagem transformada):
+        double mi = RegistrationMetrics.mutualInformation(modelPixels, scenePixels, matrix, config.numBins, kernelCandidates);
+        if (report != null) report.recordEvaluation(mi);
+        return mi;
+    }
 
-        // Calcula distribuições de probabilidade:
-        double[][] pAB = new double[NUM_BINS][NUM_BINS];  // Probabilidade conjunta P(A,B)
-        double[] pA = new double[NUM_BINS]; // Probabilidade marginal P(A) - imagem fixa.
-        double[] pB = new double[NUM_BINS];  // Probabilidade marginal P(B) - imagem móvel.
-        
-        for (int i = 0; i < NUM_BINS; i++) {
-            for (int j = 0; j < NUM_BINS; j++) {
-                pAB[i][j] = (double) jointHistogram[i][j] / totalPixels;
-                pA[i] += pAB[i][j];
-                pB[j] += pAB[i][j]; 
+    // Inicializa o enxame: posições e velocidades aleatórias; o pBest começa na posição inicial.
+    private void initializeSwarm(Population positions, double[] velocities, Population pBest) {
+        for (int p = 0; p < positions.size; p++) {
+            int offset = positions.offset(p);
+            for (int j = 0; j < numParameters; j++) {
+                // Posição inicial aleatória dentro dos limites (espaço normalizado):
+                positions.genes[offset + j] = random.nextDouble();
+                velocities[offset + j] = (random.nextDouble() * 2 - 1) * velocityLimits[j];
             }
+            // Palpite inicial (ex.: estimativa por FFT) na posição da primeira partícula:
+            if (p == 0 && config.initialGuess != null) space.place(config.initialGuess, positions.genes, offset, true);
+            positions.fitness[p] = evaluate(positions, p);
+            pBest.copyFrom(positions, p, p);
         }
+    }
 
-        // Calcula a Mutual Information (MI):
-        double mi = 0.0;
-        for (int i = 0; i < NUM_BINS; i++) {
-            for (int j = 0; j < NUM_BINS; j++) {
-                if (pAB[i][j] > 1e-10 && pA[i] > 1e-10 && pB[j] > 1e-10) {
-                    mi += pAB[i][j] * Math.log(pAB[i][j] / (pA[i] * pB[j]));
-                }
-            }
-        }
-        
-        // Converte de base e para base 2:
-        return mi / Math.log(2); 
+    // Avalia a partícula p (converte a posição normalizada para os parâmetros reais sem alocar):
+    // Com parada pedida (cancelamento, prazo), devolve o pior fitness sem avaliar: pBest e gBest não mudam.
+    private double evaluate(Population positions, int p) {
+        if (config.stopRequested()) return Double.NEGATIVE_INFINITY;
+        space.denormalize(positions.genes, positions.offset(p), scratch);
+        double value = calculateMI(scratch);
+        if (surrogate != null) surrogate.add(p, scratch, value);
+        return value;
     }
 
-    // Inicializa o enxame de partículas:
-    private Particle[] initializeSwarm() {
-        Particle[] swarm = new Particle[SWARM_SIZE];
-        for (int i = 0; i < SWARM_SIZE; i++) {
-            double[] pos = new double[NUM_PARAMETERS];
-            double[] vel = new double[NUM_PARAMETERS];
+    // Move a partícula p: nova velocidade (inércia w, atração para pBest e gBest) e nova posição.
+    private void move(Population positions, double[] velocities, Population pBest, double[] gBestPosition, int p, double w) {
+        int offset = positions.offset(p);
+        for (int i = 0; i < numParameters; i++) {
+            int k = offset + i;
+            // Fatores de aceleração aleatórios:
+            double r1 = random.nextDouble();
+            double r2 = random.nextDouble();
+
+            // Cálculo da nova Velocidade:
+            double cognitiveComponent = config.c1 * r1 * space.normalizedDifference(i, pBest.genes[k], positions.genes[k]); // Atrai para pBest.
+            double socialComponent = config.c2 * r2 * space.normalizedDifference(i, gBestPosition[i], positions.genes[k]);  // Atrai para gBest.
             
-            for (int j = 0; j < NUM_PARAMETERS; j++) {
-                // Posição inicial aleatória dentro dos limites:
-                pos[j] = MIN_BOUNDS[j] + (MAX_BOUNDS[j] - MIN_BOUNDS[j]) * random.nextDouble();
-                vel[j] = (random.nextDouble() * 2 * V_MAX) - V_MAX;
-            }
+            // Atualiza velocidade:
+            velocities[k] = w * velocities[k] + cognitiveComponent + socialComponent;
+            velocities[k] = Math.max(-velocityLimits[i], Math.min(velocityLimits[i], velocities[k]));
 
-            swarm[i] = new Particle(pos, vel);
-            swarm[i].currentFitness = calculateMI(pos);
-            swarm[i].pBestFitness = swarm[i].currentFitness;
-        }
-        return swarm;
-    }
+            // Cálculo da nova Posição (X_new = X_old + V_new):
+            positions.genes[k] += velocities[k];
 
-    // Encontra a melhor posição global (gBest):
-    private double[] findGBest(Particle[] swarm) {
-        double gBestFitness = Double.MIN_VALUE; 
-        double[] gBestPosition = null;
-
-        for (Particle p : swarm) {
-            if (p.pBestFitness > gBestFitness) { 
-                gBestFitness = p.pBestFitness;
-                gBestPosition = p.pBestPosition;
-            }
+            // Mantém a partícula em [0, 1] (clamp, reflexão ou absorção, conforme config.psoBoundary; o ângulo dá a volta):
+            space.confine(positions.genes, velocities, offset, i, config.psoBoundary);
         }
-        return gBestPosition;
     }
 
-    // Executa o algoritmo PSO para maximizar o Mutual Information:
+    // Função de otimização:
     public Particle runPSO() {
-        Particle[] swarm = initializeSwarm();
-        double[] gBestPosition = findGBest(swarm);
-        double gBestFitness = calculateMI(gBestPosition);
-        
-        System.out.printf("Início PSO: Melhor MI = %.6f (Bits)\n", gBestFitness);
-
-        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
-            // Fator de inércia que decai linearmente:
-            double w = W_MAX - iteration * (W_MAX - W_MIN) / MAX_ITERATIONS;
+        report = new RunReport("PSO/MI", true, config.targetMI, config);
+        report.setSurrogate(surrogate);
+
+        // Enxame em estrutura de vetores (ver Population): posição e fitness atuais, pBest e velocidades.
+        int n = config.swarmSize;
+        Population positions = new Population(n, numParameters);
+        Population pBest = new Population(n, numParameters);
+        double[] velocities = new double[n * numParameters];
+        double[] gBestPosition = new double[numParameters]; // Melhor posição global (gBest), atualizada por cópia
+        double gBestFitness;
+        int start = 0;
+
+        // Retomada (config.resume): enxame, pBest, gBest e gerador exatamente como no checkpoint.
+        Checkpoint checkpoint = Checkpoint.resume("PSO/MI", config);
+        if (checkpoint != null) {
+            checkpoint.restore(0, positions.genes);
+            checkpoint.restore(1, positions.fitness);
+            checkpoint.restore(2, pBest.genes);
+            checkpoint.restore(3, pBest.fitness);
+            checkpoint.restore(4, velocities);
+            checkpoint.restore(5, gBestPosition);
+            gBestFitness = checkpoint.value(6);
+            random.restore(checkpoint.random);
+            start = checkpoint.generation;
+        } else {
+            initializeSwarm(positions, velocities, pBest);
+            int best = pBest.bestIndex(true);
+            pBest.copyParameters(best, gBestPosition);
+            gBestFitness = pBest.fitness[best];
+        }
+        Checkpoint.Writer checkpoints = Checkpoint.Writer.forConfig(config);
 
-            for (Particle p : swarm) {
-                // Atualização de velocidade e posição para cada parâmetro:
-                for (int i = 0; i < NUM_PARAMETERS; i++) {
-                    double r1 = random.nextDouble();
-                    double r2 = random.nextDouble();
+        for (int iteration = start; iteration < config.maxIterations; iteration++) {
+            report.beginGeneration(iteration);
 
-                    // Cálculo da nova Velocidade:
-                    double cognitiveComponent = C1 * r1 * (p.pBestPosition[i] - p.position[i]);
-                    double socialComponent = C2 * r2 * (gBestPosition[i] - p.position[i]);
-                    
-                    p.velocity[i] = w * p.velocity[i] + cognitiveComponent + socialComponent;
-                    p.velocity[i] = Math.max(-V_MAX, Math.min(V_MAX, p.velocity[i]));
-
-                    // Cálculo da nova posição (X_new = X_old + V_new):
-                    p.position[i] += p.velocity[i];
+            // Fator de inércia que decai linearmente:
+            double w = config.wMax - iteration * (config.wMax - config.wMin) / config.maxIterations;
+
+            // Com o surrogate pronto, todas as partículas se movem primeiro e só a fração mais promissora
+            // (segundo a previsão) é avaliada; as demais mantêm a posição, mas não atualizam pBest/gBest.
+            boolean screening = surrogate != null && surrogate.isReady();
+            if (screening) {
+                for (int p = 0; p < n; p++) move(positions, velocities, pBest, gBestPosition, p, w);
+                surrogate.screen(positions, 0, config.surrogateFraction, true);
+            }
 
-                    // Aplica restrições de limite (clamp):
-                    p.position[i] = Math.max(MIN_BOUNDS[i], Math.min(MAX_BOUNDS[i], p.position[i]));
+            for (int p = 0; p < n; p++) {
+                if (!screening) {
+                    move(positions, velocities, pBest, gBestPosition, p, w);
+                } else if (positions.estimated[p]) {
+                    continue;
                 }
 
                 // Avalia o Fitness e atualiza pBest:
-                p.currentFitness = calculateMI(p.position);
-                if (p.currentFitness > p.pBestFitness) { 
-                    p.pBestFitness = p.currentFitness;
-                    p.pBestPosition = p.position.clone();
+                positions.fitness[p] = evaluate(positions, p);
+
+                // Atualização do melhor individual (cópia para o vetor do pBest, sem clone):
+                if (positions.fitness[p] > pBest.fitness[p]) {
+                    pBest.copyFrom(positions, p, p);
                     
-                    // Atualiza gBest se necessário:
-                    if (p.pBestFitness > gBestFitness) { 
-                        gBestFitness = p.pBestFitness;
-                        gBestPosition = p.pBestPosition.clone();
+                    // Atualização do melhor global:
+                    if (pBest.fitness[p] > gBestFitness) {
+                        gBestFitness = pBest.fitness[p];
+                        pBest.copyParameters(p, gBestPosition);
                     }
                 }
             }
 
-            System.out.printf("Iteração %d: Melhor MI = %.6f (Bits)\n", iteration, gBestFitness);
+            report.endGeneration(gBestFitness);
+            // Parada pedida de fora: a iteração pode ter ficado incompleta, então não vira checkpoint.
+            if (config.stopRequested()) break;
+            if (checkpoints != null && checkpoints.due(iteration)) {
+                checkpoints.submit(new Checkpoint("PSO/MI", config, iteration + 1, random, positions.genes, positions.fitness,
+                                                  pBest.genes, pBest.fitness, velocities, gBestPosition,
+                                                  new double[] {gBestFitness}));
+            }
 
-            if (gBestFitness > 3.0) { 
-                System.out.println("Convergência atingida.");
+            // Critério de parada por convergência:
+            if (gBestFitness > config.targetMI) { 
+                report.setStopReason("fitness alvo atingido");
                 break;
             }
         }
         
-        // Retorna a melhor partícula (que contém o gBest):
-        Particle bestParticle = new Particle(gBestPosition.clone(), new double[NUM_PARAMETERS]);
+        if (surrogate != null) report.message(surrogate.summary(report.getEvaluations()));
+        report.finish(); // Logo ao sair do laço: fixa o motivo da parada antes de esperar os checkpoints
+        if (checkpoints != null) checkpoints.close();
+
+        // Retorna a melhor partícula:
+        Particle bestParticle = new Particle(space.denormalize(gBestPosition), new double[numParameters]);
         bestParticle.pBestFitness = gBestFitness;
         return bestParticle;
     }
+
+    public RunReport getLastReport() {
+        return report;
+    }
     
     public static void main(String[] args) {
         String modelPath = "images/fixed.png";
@@ -225,25 +234,29 @@ public class PSOMI {
             return;
         }
 
+        // Parâmetros: --preset=fast|balanced|accurate, --config=arquivo, --chave=valor
+        RegistrationConfig config = RegistrationConfig.fromArgs(args);
+        config.progress = ProgressListener.CONSOLE;
+
         System.out.printf("Iniciando PSO com MI. Modelo: %dx%d, Cena: %dx%d\n", 
                           modelImage.getWidth(), modelImage.getHeight(), 
                           sceneImage.getWidth(), sceneImage.getHeight());
 
         // Execução do PSO:
         long startTime = System.currentTimeMillis();
-        PSOMI pso = new PSOMI(modelImage, sceneImage);
+        PSOMI pso = new PSOMI(modelImage, sceneImage, config);
         Particle bestSolution = pso.runPSO();
         long endTime = System.currentTimeMillis();
 
-        double[][] resultMatrix = ImageTransforms.createAffineMatrix(bestSolution.position[0], bestSolution.position[1],bestSolution.position[2],bestSolution.position[3],bestSolution.position[4]);
+        double[][] resultMatrix = ParameterSpace.toMatrix(bestSolution.position, modelImage.getWidth(), modelImage.getHeight());
 
         BufferedImage registeredImage = ImageTransforms.applyTransform(sceneImage, resultMatrix);
-        ImageTransforms.saveImage(registeredImage, "images/registeredImage_PSO_MI_Result.png");
+        ImageTransforms.saveImageAsync(registeredImage, "images/registeredImage_PSO_MI_Result.png");
 
         System.out.println("\n--- Solução Encontrada (PSO/MI) ---");
         System.out.printf("Melhor MI: %.6f (Bits)\n", bestSolution.pBestFitness);
         System.out.printf("Tempo de execução: %.2f segundos\n", (endTime - startTime) / 1000.0);
-        System.out.println("Parâmetros Afins Encontrados (sx, sy, theta, tx, ty):");
+        System.out.println("Parâmetros Encontrados (sx, sy, theta, tx, ty; ou os cantos no modo homography):");
         System.out.println(Arrays.toString(bestSolution.position));
         System.out.println("---------------------------------");
         
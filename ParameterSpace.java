@@ -0,0 +1,239 @@
+import java.util.Arrays;
+
+// Espaço de busca dos parâmetros de transformação: (sx, sy, theta, tx, ty) no modelo afim ou, no modelo
+// projetivo (homografia), os deslocamentos (dx, dy) dos quatro cantos da imagem.
+// Converte entre os valores reais e o espaço normalizado [0,1]^d, onde todas as dimensões têm a mesma escala:
+// um passo de 0.1 anda 10% do intervalo de qualquer parâmetro (escala, rotação ou translação).
+// Cada dimensão declara sua unidade. O ângulo é em graus e, quando o intervalo cobre uma volta inteira,
+// é periódico: -180 e 180 são o mesmo ponto, e distâncias e movimentos seguem o menor arco do círculo.
+public class ParameterSpace {
+    // Unidade de cada parâmetro:
+    enum Unit {
+        SCALE,   // Fator adimensional
+        DEGREES, // Ângulo em graus
+        PIXELS,  // Deslocamento em pixels
+        FRACTION // Fração do tamanho da imagem (largura para x, altura para y)
+    }
+
+    // Modelo de transformação buscado pelos otimizadores:
+    enum Transform {
+        AFFINE,     // 5 parâmetros (sx, sy, theta, tx, ty)
+        HOMOGRAPHY  // 8 parâmetros: deslocamentos dos cantos (0,0), (w-1,0), (w-1,h-1), (0,h-1)
+    }
+
+    static final double FULL_TURN = 360.0;
+
+    // Unidades dos parâmetros da transformação afim (sx, sy, theta, tx, ty):
+    static final Unit[] AFFINE_UNITS = {Unit.SCALE, Unit.SCALE, Unit.DEGREES, Unit.PIXELS, Unit.PIXELS};
+
+    // Homografia: (dx, dy) de cada canto, em frações da largura/altura da imagem:
+    static final int HOMOGRAPHY_PARAMETERS = 8;
+
+    // Tratamento de uma partícula que sai de [0, 1] em alguma dimensão:
+    enum BoundaryMode {
+        CLAMP,   // Posição limitada à borda, velocidade mantida
+        REFLECT, // Posição espelhada na borda, velocidade invertida
+        ABSORB   // Posição limitada à borda, velocidade zerada
+    }
+
+    final double[] min;
+    final double[] max;
+    final Unit[] units;
+    final boolean[] periodic;
+
+    public ParameterSpace(double[] min, double[] max, Unit[] units) {
+        if (min.length != max.length || min.length != units.length) {
+            throw new IllegalArgumentException("Limites com dimensões diferentes");
+        }
+        this.min = min.clone();
+        this.max = max.clone();
+        this.units = units.clone();
+        this.periodic = new boolean[min.length];
+        for (int i = 0; i < min.length; i++) {
+            // Um intervalo angular de uma volta ou mais vira exatamente uma volta [min, min + 360):
+            // intervalos maiores só repetiriam as mesmas transformações.
+            if (units[i] == Unit.DEGREES && max[i] - min[i] >= FULL_TURN) {
+                this.periodic[i] = true;
+                this.max[i] = min[i] + FULL_TURN;
+            }
+        }
+    }
+
+    public static ParameterSpace fromConfig(RegistrationConfig config) {
+        if (config.transform == Transform.HOMOGRAPHY) {
+            if (config.minBounds.length == HOMOGRAPHY_PARAMETERS) {
+                return new ParameterSpace(config.minBounds, config.maxBounds, homographyUnits());
+            }
+            // Cada canto se move até cornerRange do tamanho da imagem em x e em y:
+            double[] min = new double[HOMOGRAPHY_PARAMETERS];
+            double[] max = new double[HOMOGRAPHY_PARAMETERS];
+            Arrays.fill(min, -config.cornerRange);
+            Arrays.fill(max, config.cornerRange);
+            return new ParameterSpace(min, max, homographyUnits());
+        }
+        return new ParameterSpace(config.minBounds, config.maxBounds, AFFINE_UNITS);
+    }
+
+    private static Unit[] homographyUnits() {
+        Unit[] units = new Unit[HOMOGRAPHY_PARAMETERS];
+        Arrays.fill(units, Unit.FRACTION);
+        return units;
+    }
+
+    // Matriz afim dos parâmetros (sx, sy, theta em graus, tx, ty):
+    public static double[][] toMatrix(double[] params) {
+        return ImageTransforms.createAffineMatrix(params[0], params[1], Math.toRadians(params[2]), params[3], params[4]);
+    }
+
+    // Matriz 3x3 dos parâmetros de qualquer modelo (afim ou homografia, pelo número de parâmetros);
+    // width e height são as dimensões do modelo, onde ficam os cantos da homografia:
+    public static double[][] toMatrix(double[] params, int width, int height) {
+        if (params.length != HOMOGRAPHY_PARAMETERS) return toMatrix(params);
+        double[][] corners = corners(width, height);
+        double[][] moved = new double[4][2];
+        for (int k = 0; k < 4; k++) {
+            moved[k][0] = corners[k][0] + params[2 * k] * width;
+            moved[k][1] = corners[k][1] + params[2 * k + 1] * height;
+        }
+        return ImageTransforms.computeHomography(corners, moved);
+    }
+
+    // Deslocamentos dos cantos (parâmetros da homografia) que reproduzem a matriz M, ex.: uma estimativa afim:
+    public static double[] cornerDisplacements(double[][] M, int width, int height) {
+        double[][] corners = corners(width, height);
+        double[] params = new double[HOMOGRAPHY_PARAMETERS];
+        for (int k = 0; k < 4; k++) {
+            double[] p = ImageTransforms.multiplyMatVec(M, new double[] {corners[k][0], corners[k][1], 1});
+            params[2 * k] = (p[0] / p[2] - corners[k][0]) / width;
+            params[2 * k + 1] = (p[1] / p[2] - corners[k][1]) / height;
+        }
+        return params;
+    }
+
+    private static double[][] corners(int width, int height) {
+        return new double[][] {{0, 0}, {width - 1, 0}, {width - 1, height - 1}, {0, height - 1}};
+    }
+
+    public int size() {
+        return min.length;
+    }
+
+    public double range(int i) {
+        return max[i] - min[i];
+    }
+
+    public boolean isPeriodic(int i) {
+        return periodic[i];
+    }
+
+    // Leva o valor ao intervalo de busca: dimensões periódicas dão a volta, as demais são limitadas às bordas.
+    public double canonicalize(int i, double value) {
+        if (periodic[i]) {
+            double offset = (value - min[i]) % FULL_TURN;
+            if (offset < 0) offset += FULL_TURN;
+            return min[i] + offset;
+        }
+        return Math.max(min[i], Math.min(max[i], value));
+    }
+
+    public double[] canonicalize(double[] values) {
+        double[] c = new double[values.length];
+        for (int i = 0; i < values.length; i++) c[i] = canonicalize(i, values[i]);
+        return c;
+    }
+
+    // a - b pelo menor caminho (em dimensões periódicas, no intervalo [-180, 180)):
+    public double difference(int i, double a, double b) {
+        double d = a - b;
+        if (periodic[i]) d = wrapHalf(d / FULL_TURN) * FULL_TURN;
+        return d;
+    }
+
+    // O mesmo, no espaço normalizado (período 1):
+    public double normalizedDifference(int i, double a, double b) {
+        double d = a - b;
+        return periodic[i] ? wrapHalf(d) : d;
+    }
+
+    // Reduz x ao intervalo [-0.5, 0.5):
+    private static double wrapHalf(double x) {
+        return x - Math.floor(x + 0.5);
+    }
+
+    // Valor real -> [0, 1]:
+    public double normalize(int i, double value) {
+        return (value - min[i]) / range(i);
+    }
+
+    // [0, 1] -> valor real:
+    public double denormalize(int i, double u) {
+        return min[i] + u * range(i);
+    }
+
+    public double[] normalize(double[] values) {
+        double[] u = new double[values.length];
+        for (int i = 0; i < values.length; i++) u[i] = normalize(i, values[i]);
+        return u;
+    }
+
+    public double[] denormalize(double[] u) {
+        double[] values = new double[u.length];
+        for (int i = 0; i < u.length; i++) values[i] = denormalize(i, u[i]);
+        return values;
+    }
+
+    // Versão sem alocação: converte u[offset .. offset + size() - 1] para out.
+    public void denormalize(double[] u, int offset, double[] out) {
+        for (int i = 0; i < out.length; i++) out[i] = denormalize(i, u[offset + i]);
+    }
+
+    // Escreve o palpite params (valores reais) em out a partir de offset, trazido para dentro do espaço;
+    // normalized = true para os otimizadores que trabalham em [0,1]^d:
+    public void place(double[] params, double[] out, int offset, boolean normalized) {
+        for (int i = 0; i < size(); i++) {
+            double value = canonicalize(i, params[i]);
+            out[offset + i] = normalized ? normalize(i, value) : value;
+        }
+    }
+
+    // Velocidade máxima de cada dimensão no espaço normalizado, a partir da fração do intervalo
+    // configurada (um valor para todas as dimensões ou um por dimensão):
+    public double[] velocityLimits(double[] fractions) {
+        double[] limits = new double[size()];
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = fractions.length == 1 ? fractions[0] : fractions[i];
+        }
+        return limits;
+    }
+
+    // Mantém a coordenada i da partícula em [0, 1] segundo o modo escolhido.
+    // Dimensões periódicas não têm borda: a partícula dá a volta e mantém a velocidade.
+    public void confine(double[] position, double[] velocity, int i, BoundaryMode mode) {
+        confine(position, velocity, 0, i, mode);
+    }
+
+    // O mesmo, para a partícula que começa em offset nos vetores do enxame (ver Population):
+    public void confine(double[] position, double[] velocity, int offset, int i, BoundaryMode mode) {
+        int k = offset + i;
+        double x = position[k];
+        if (periodic[i]) {
+            position[k] = x - Math.floor(x);
+            return;
+        }
+        if (x >= 0.0 && x <= 1.0) return;
+
+        switch (mode) {
+            case REFLECT:
+                x = x < 0.0 ? -x : 2.0 - x;
+                velocity[k] = -velocity[k];
+                break;
+            case ABSORB:
+                velocity[k] = 0.0;
+                break;
+            case CLAMP:
+            default:
+                break;
+        }
+        position[k] = Math.max(0.0, Math.min(1.0, x));
+    }
+}
@@ -0,0 +1,176 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+// Imagem em buffer primitivo (RGB empacotado em int[]), usada pelos kernels de métrica.
+// Evita as chamadas a BufferedImage.getRGB pixel a pixel dentro da função objetivo.
+public class PixelImage {
+    // Maior imagem aceita na decodificação (64 Mpixels = 256 MB de pixels): acima disso o cabeçalho é recusado
+    // antes de alocar o buffer (Netpbm e RegistrationServer).
+    static final long MAX_PIXELS = 1L << 26;
+
+    final int width;
+    final int height;
+    final int[] rgb; // Pixels em ordem de linha: rgb[y * width + x]
+
+    // Intensidade quantizada de cada pixel (RegistrationMetrics.quantize) para o último numBins pedido:
+    // calculada uma vez e reaproveitada em todas as avaliações de MI com esta imagem como modelo.
+    private volatile Bins bins;
+    // Gradiente de Sobel (métrica GC), também calculado uma vez por imagem:
+    private volatile GradientMap gradients;
+
+    private static class Bins {
+        final int numBins;
+        final int[] values;
+
+        Bins(int numBins, int[] values) {
+            this.numBins = numBins;
+            this.values = values;
+        }
+    }
+
+    public PixelImage(int width, int height, int[] rgb) {
+        if (rgb.length < width * height) {
+            throw new IllegalArgumentException("Buffer menor que a imagem: " + rgb.length + " < " + width * height);
+        }
+        this.width = width;
+        this.height = height;
+        this.rgb = rgb;
+    }
+
+    // Copia os pixels de uma BufferedImage para o buffer primitivo. Os tipos que o ImageIO costuma devolver
+    // (RGB/ARGB em int, BGR/ABGR em bytes, cinza de 8 bits) são lidos direto do raster; o resultado é o mesmo
+    // de getRGB (no cinza, a conversão do ColorModel é tabelada uma vez para os 256 níveis).
+    public static PixelImage fromBufferedImage(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] rgb = new int[w * h];
+        if (!unpackRaster(img, rgb)) img.getRGB(0, 0, w, h, rgb, 0, w);
+        return new PixelImage(w, h, rgb);
+    }
+
+    private static boolean unpackRaster(BufferedImage img, int[] rgb) {
+        Raster raster = img.getRaster();
+        // Sub-imagens (getSubimage) compartilham o buffer com deslocamentos; ficam com getRGB:
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return false;
+        }
+        int type = img.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            if (data.length != rgb.length) return false;
+            int opaque = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            for (int k = 0; k < rgb.length; k++) rgb[k] = opaque | data[k];
+            return true;
+        }
+        if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            boolean alpha = type == BufferedImage.TYPE_4BYTE_ABGR;
+            if (data.length != rgb.length * (alpha ? 4 : 3)) return false;
+            for (int k = 0, i = 0; k < rgb.length; k++) {
+                int a = alpha ? data[i++] & 0xFF : 0xFF;
+                int b = data[i++] & 0xFF;
+                int g = data[i++] & 0xFF;
+                int r = data[i++] & 0xFF;
+                rgb[k] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+            return true;
+        }
+        if (type == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            if (data.length != rgb.length) return false;
+            ColorModel model = img.getColorModel();
+            int[] table = new int[256];
+            for (int v = 0; v < 256; v++) table[v] = model.getRGB(new byte[] {(byte) v});
+            for (int k = 0; k < rgb.length; k++) rgb[k] = table[data[k] & 0xFF];
+            return true;
+        }
+        return false;
+    }
+
+    // BufferedImage (TYPE_INT_RGB) que usa o mesmo buffer, sem cópia (para gravar ou exibir):
+    public BufferedImage toBufferedImage() {
+        DirectColorModel model = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(rgb, width * height), width, height, width,
+                                                          model.getMasks(), null);
+        return new BufferedImage(model, raster, false, null);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRGB(int x, int y) {
+        return rgb[y * width + x];
+    }
+
+    // Bins dos pixels (mesma ordem de rgb). Duas threads podem calcular ao mesmo tempo; o resultado é o mesmo.
+    int[] bins(int numBins) {
+        Bins current = bins;
+        if (current == null || current.numBins != numBins) {
+            int[] values = new int[width * height];
+            for (int k = 0; k < values.length; k++) values[k] = RegistrationMetrics.quantize(rgb[k], numBins);
+            current = new Bins(numBins, values);
+            bins = current;
+        }
+        return current.values;
+    }
+
+    // Como bins: duas threads podem calcular ao mesmo tempo, com o mesmo resultado.
+    GradientMap gradients() {
+        GradientMap current = gradients;
+        if (current == null) {
+            current = GradientMap.of(this);
+            gradients = current;
+        }
+        return current;
+    }
+
+    // Interpolação bilinear (mesma regra de ImageTransforms.bilinearInterpolate, mas lendo do buffer):
+    public int bilinearInterpolate(double x, double y) {
+        if (x < 0 || y < 0 || x >= width - 1 || y >= height - 1) {
+            return 0x000000; // Pixels fora da imagem se tornam pretos.
+        }
+
+        int x1 = (int) Math.floor(x);
+        int y1 = (int) Math.floor(y);
+
+        double wx = x - x1; // Peso horizontal.
+        double wy = y - y1; // Peso vertical.
+
+        int i11 = y1 * width + x1;
+        int c11 = rgb[i11];
+        int c12 = rgb[i11 + width];
+        int c21 = rgb[i11 + 1];
+        int c22 = rgb[i11 + width + 1];
+
+        int r = (int)((1-wx)*(1-wy)*((c11 >> 16) & 0xFF) +
+                (1-wx)*wy*((c12 >> 16) & 0xFF) +
+                wx*(1-wy)*((c21 >> 16) & 0xFF) +
+                wx*wy*((c22 >> 16) & 0xFF));
+
+        int g = (int)((1-wx)*(1-wy)*((c11 >> 8) & 0xFF) +
+                (1-wx)*wy*((c12 >> 8) & 0xFF) +
+                wx*(1-wy)*((c21 >> 8) & 0xFF) +
+                wx*wy*((c22 >> 8) & 0xFF));
+
+        int b = (int)((1-wx)*(1-wy)*(c11 & 0xFF) +
+                (1-wx)*wy*(c12 & 0xFF) +
+                wx*(1-wy)*(c21 & 0xFF) +
+                wx*wy*(c22 & 0xFF));
+
+        r = Math.max(0, Math.min(255, r));
+        g = Math.max(0, Math.min(255, g));
+        b = Math.max(0, Math.min(255, b));
+
+        return (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+// População em estrutura de vetores (SoA): os parâmetros de todos os indivíduos ficam em um único double[]
+// (o indivíduo i ocupa genes[i*dim .. i*dim + dim - 1]) e os fitness em outro. Não há objeto por indivíduo:
+// os otimizadores alternam dois buffers entre gerações e só escrevem nos vetores já alocados.
+class Population {
+    final int size;
+    final int dim;
+    final double[] genes;
+    final double[] fitness;
+    final boolean[] estimated; // true se o fitness veio do surrogate, e não de uma avaliação real
+    private final int[] order; // Índices reordenados pela seleção parcial (reutilizado)
+
+    Population(int size, int dim) {
+        this.size = size;
+        this.dim = dim;
+        this.genes = new double[size * dim];
+        this.fitness = new double[size];
+        this.estimated = new boolean[size];
+        this.order = new int[size];
+    }
+
+    int offset(int i) {
+        return i * dim;
+    }
+
+    // Cópia dos parâmetros do indivíduo i (aloca; usado só para devolver resultados):
+    double[] parameters(int i) {
+        return Arrays.copyOfRange(genes, i * dim, i * dim + dim);
+    }
+
+    // Copia os parâmetros do indivíduo i para out (sem alocação):
+    void copyParameters(int i, double[] out) {
+        System.arraycopy(genes, i * dim, out, 0, dim);
+    }
+
+    // Copia o indivíduo from de src (parâmetros e fitness) para a posição to:
+    void copyFrom(Population src, int from, int to) {
+        System.arraycopy(src.genes, from * dim, genes, to * dim, dim);
+        fitness[to] = src.fitness[from];
+        estimated[to] = src.estimated[from];
+    }
+
+    // Melhor indivíduo avaliado em uma passada, O(n). Fitness estimados pelo surrogate são ignorados
+    // (se todos forem estimados, devolve o melhor entre eles):
+    int bestIndex(boolean maximize) {
+        int best = -1;
+        for (int i = 0; i < size; i++) {
+            if (estimated[i]) continue;
+            if (best < 0 || better(fitness[i], fitness[best], maximize)) best = i;
+        }
+        if (best >= 0) return best;
+
+        best = 0;
+        for (int i = 1; i < size; i++) {
+            if (better(fitness[i], fitness[best], maximize)) best = i;
+        }
+        return best;
+    }
+
+    // Seleção parcial (quickselect, O(n) esperado): ao final, os k primeiros elementos do vetor devolvido
+    // são os índices dos k melhores indivíduos (sem ordem entre si) e os demais, dos piores.
+    // O vetor é reutilizado pela próxima chamada.
+    int[] selectBest(int k, boolean maximize) {
+        for (int i = 0; i < size; i++) order[i] = i;
+        int lo = 0;
+        int hi = size - 1;
+        int target = k - 1;
+        while (lo < hi && target >= lo && target <= hi) {
+            double pivot = fitness[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (better(fitness[order[i]], pivot, maximize)) i++;
+                while (better(pivot, fitness[order[j]], maximize)) j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            // [lo, j] não é pior que o pivô, [i, hi] não é melhor e (j, i) é igual ao pivô:
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return order;
+    }
+
+    private static boolean better(double a, double b, boolean maximize) {
+        return maximize ? a > b : a < b;
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Thread única que entrega os eventos de ProgressListener de todas as execuções, na ordem em que foram
+// gerados. É daemon: eventos ainda na fila não seguram a JVM (RunReport.finish espera os da sua execução).
+final class ProgressDelivery {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "progress-listener");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ProgressDelivery() {
+    }
+
+    // Agenda a entrega; uma exceção do listener é registrada e não afeta os próximos eventos:
+    static Future<?> submit(Runnable event) {
+        return EXECUTOR.submit(() -> {
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                System.err.println("Falha no ProgressListener: " + e);
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+// Acompanhamento de uma execução (qualquer otimizador): início e fim de cada geração/iteração, novo melhor
+// fitness, motivo da parada e mensagens informativas. Os eventos saem do RunReport e são entregues em segundo plano, em ordem, por
+// uma única thread (ProgressDelivery), então o laço do otimizador não espera pelo listener; quando a
+// execução retorna, todos os seus eventos já foram entregues. Todos os métodos têm implementação vazia:
+// basta sobrescrever os que interessam. Configurado em RegistrationConfig.progress (padrão: NONE).
+public interface ProgressListener {
+    // Não faz nada (e o RunReport nem agenda a entrega):
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    // Uma linha por geração/iteração no console, como a saída da linha de comando:
+    ProgressListener CONSOLE = new ProgressListener() {
+        @Override
+        public void generationFinished(String engine, int generation, double bestFitness, long evaluations) {
+            System.out.printf("[%s] Geração %d: Melhor = %.6f (%d avaliações)\n", engine, generation, bestFitness, evaluations);
+        }
+
+        @Override
+        public void finished(String engine, String stopReason, double bestFitness, long evaluations) {
+            System.out.printf("[%s] Fim: %s\n", engine, stopReason);
+        }
+
+        @Override
+        public void message(String engine, String text) {
+            System.out.printf("[%s] %s\n", engine, text);
+        }
+    };
+
+    default void generationStarted(String engine, int generation) {
+    }
+
+    // evaluations é o total de avaliações da execução até o fim desta geração:
+    default void generationFinished(String engine, int generation, double bestFitness, long evaluations) {
+    }
+
+    // O melhor fitness da execução melhorou nesta geração:
+    default void newBest(String engine, int generation, double bestFitness) {
+    }
+
+    // Último evento da execução: fitness alvo, convergência, parada externa (StopToken) ou fim do orçamento.
+    default void finished(String engine, String stopReason, double bestFitness, long evaluations) {
+    }
+
+    // Mensagem informativa (estimativa inicial, retomada de checkpoint, resumo do surrogate, execução pulada):
+    // o código da biblioteca não escreve no console, só a linha de comando (via CONSOLE).
+    default void message(String engine, String text) {
+    }
+}
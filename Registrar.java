@@ -0,0 +1,220 @@
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// API para usar o registro dentro de outros serviços Java, sem os main de demonstração nem Swing: recebe o par
+// de imagens (BufferedImage ou PixelImage) e a combinação ALGORITMO/MÉTRICA e devolve um Result imutável.
+//
+// Uma instância pode ser compartilhada por várias threads e reaproveitada entre requisições (JVM e JIT já
+// aquecidos): cada chamada trabalha numa cópia da configuração e as imagens só são lidas (não altere o buffer
+// de uma PixelImage durante uma chamada). As chamadas assíncronas rodam em até `threads` execuções
+// simultâneas num pool próprio; close() encerra o pool.
+//
+// cancel() no futuro de uma chamada assíncrona para a busca antes da próxima avaliação e libera a thread.
+// Prazo e limites de threads/memória vêm da configuração (timeoutMillis, maxThreads, maxMemoryMB): no prazo,
+// o resultado é o melhor encontrado até ali, com isStopped() e o motivo em getStopReason().
+//
+//   try (Registrar registrar = new Registrar(RegistrationConfig.fast(), 2)) {
+//       Registrar.Result result = registrar.register("CMAES", "MSE", model, scene);
+//       CompletableFuture<Registrar.Result> pending = registrar.registerAsync("PSO", "MI", model, scene);
+//   }
+public final class Registrar implements AutoCloseable {
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final RegistrationConfig config;
+    private final int threads;
+    private final ExecutorService executor;
+
+    public Registrar() {
+        this(RegistrationConfig.balanced());
+    }
+
+    public Registrar(RegistrationConfig config) {
+        this(config, 1);
+    }
+
+    // threads: registros assíncronos simultâneos. Com mais de um, os otimizadores com avaliação em lote
+    // (asyncWorkers = 0) dividem os núcleos entre eles, como no EnsembleRunner.
+    public Registrar(RegistrationConfig config, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads deve ser >= 1");
+        config.validate();
+        this.config = prepare(config, threads);
+        this.threads = threads;
+        int instance = INSTANCES.incrementAndGet();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "registrar-" + instance + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static RegistrationConfig prepare(RegistrationConfig config, int threads) {
+        RegistrationConfig copy = config.copy();
+        if (threads > 1 && copy.asyncWorkers == 0) {
+            copy.asyncWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        }
+        return copy;
+    }
+
+    /* SÍNCRONO */
+
+    public Result register(String algorithm, String metric, BufferedImage model, BufferedImage scene) {
+        return register(algorithm, metric, PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene));
+    }
+
+    public Result register(String algorithm, String metric, PixelImage model, PixelImage scene) {
+        return run(algorithm, metric, model, scene, config.copy());
+    }
+
+    // Com outra configuração só nesta chamada:
+    public Result register(String algorithm, String metric, PixelImage model, PixelImage scene, RegistrationConfig config) {
+        config.validate();
+        return run(algorithm, metric, model, scene, prepare(config, threads));
+    }
+
+    /* ASSÍNCRONO */
+
+    // A decodificação das BufferedImage acontece na thread que chama; a busca, no pool:
+    public CompletableFuture<Result> registerAsync(String algorithm, String metric, BufferedImage model, BufferedImage scene) {
+        return registerAsync(algorithm, metric, PixelImage.fromBufferedImage(model), PixelImage.fromBufferedImage(scene));
+    }
+
+    public CompletableFuture<Result> registerAsync(String algorithm, String metric, PixelImage model, PixelImage scene) {
+        return submit(algorithm, metric, model, scene, config.copy());
+    }
+
+    public CompletableFuture<Result> registerAsync(String algorithm, String metric, PixelImage model, PixelImage scene,
+                                                   RegistrationConfig config) {
+        config.validate();
+        return submit(algorithm, metric, model, scene, prepare(config, threads));
+    }
+
+    // Cada chamada assíncrona tem seu StopToken (filho do da configuração, se houver), acionado pelo cancel():
+    private CompletableFuture<Result> submit(String algorithm, String metric, PixelImage model, PixelImage scene,
+                                             RegistrationConfig copy) {
+        StopToken token = StopToken.withDeadline(copy.stop, 0);
+        copy.stop = token;
+        CompletableFuture<Result> future = CompletableFuture.supplyAsync(() -> run(algorithm, metric, model, scene, copy), executor);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) token.stop("cancelado");
+        });
+        return future;
+    }
+
+    private static Result run(String algorithm, String metric, PixelImage model, PixelImage scene, RegistrationConfig config) {
+        ImageRegistration.RegistrationResult result = ImageRegistration.execute(algorithm, metric, model, scene, config);
+        if (result == null) throw new IllegalStateException("Registro " + algorithm + "/" + metric + " sem resultado");
+        return new Result(result);
+    }
+
+    // Encerra o pool; registros assíncronos já aceitos terminam normalmente.
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // Resultado imutável de um registro. Os getters de vetores devolvem cópias.
+    public static final class Result {
+        private final String name;       // "GA/MSE", "CMAES/MI", ...
+        private final String metric;     // "MSE" ou "MI"
+        private final double fitness;
+        private final double[] parameters;
+        private final double[][] matrix; // 3x3, do modelo para a cena
+        private final boolean deformable;
+        private final boolean stopped;
+        private final String stopReason;
+        private final long evaluations;
+        private final long evaluationsToTarget;
+        private final long timeMillis;       // Total, com a estimativa inicial
+        private final double optimizerMillis; // Só a busca (RunReport)
+        private final String json;
+
+        Result(ImageRegistration.RegistrationResult result) {
+            this.name = result.name;
+            this.metric = result.fitnessType;
+            this.fitness = result.fitness;
+            this.parameters = result.parameters.clone();
+            this.matrix = copy(result.transformationMatrix);
+            this.deformable = result.deformation != null;
+            this.stopped = result.stopped;
+            this.stopReason = result.stopReason;
+            this.evaluations = result.report != null ? result.report.getEvaluations() : 0;
+            this.evaluationsToTarget = result.report != null ? result.report.getEvaluationsToTarget() : -1;
+            this.timeMillis = result.timeMillis;
+            this.optimizerMillis = result.report != null ? result.report.getWallNanos() / 1e6 : 0;
+            this.json = result.toJson();
+        }
+
+        private static double[][] copy(double[][] matrix) {
+            double[][] copy = new double[matrix.length][];
+            for (int i = 0; i < matrix.length; i++) copy[i] = matrix[i].clone();
+            return copy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public double getFitness() {
+            return fitness;
+        }
+
+        // Parâmetros (sx, sy, theta, tx, ty; os cantos no modo homography; os pontos de controle no FFD):
+        public double[] getParameters() {
+            return parameters.clone();
+        }
+
+        public double[][] getMatrix() {
+            return copy(matrix);
+        }
+
+        // true no registro deformável (FFD): a matriz é só a parte global, aplicada antes da deformação.
+        public boolean isDeformable() {
+            return deformable;
+        }
+
+        // true se um StopToken (prazo, cancelamento, outra execução) parou a busca antes do fim:
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        // Motivo da parada (ex.: "prazo de 500 ms esgotado"); null se a busca terminou normalmente:
+        public String getStopReason() {
+            return stopReason;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        // Avaliações até o fitness alvo (-1 se não atingiu):
+        public long getEvaluationsToTarget() {
+            return evaluationsToTarget;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public double getOptimizerMillis() {
+            return optimizerMillis;
+        }
+
+        // O mesmo JSON da resposta do servidor, com o relatório da execução:
+        public String toJson() {
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s = %.6f em %d ms (%d avaliações)", name, metric, fitness, timeMillis, evaluations);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Parâmetros dos otimizadores (GA e PSO), antes constantes de compilação em cada classe.
+// Pode ser carregado de um arquivo .properties/.json ou de flags de linha de comando:
+//   --preset=fast|balanced|accurate   --config=arquivo.properties   --populationSize=80 ...
+// As chaves são os nomes dos campos abaixo. Os vetores de limites usam vírgulas: --minBounds=0.1,0.1,-180,-150,-150
+public class RegistrationConfig implements Cloneable {
+    // Algoritmo Genético:
+    int populationSize = 50;
+    int maxGenerations = 50;
+    double mutationRate = 0.1;
+    double crossoverRate = 0.8;
+
+    // GA em ilhas (IslandGA). populationSize é a população total, dividida entre as ilhas:
+    int islands = 4;
+    int migrationInterval = 5; // Gerações entre migrações
+    int migrants = 2;          // Indivíduos enviados por ilha em cada migração
+    IslandGA.Topology migrationTopology = IslandGA.Topology.RING;
+
+    // GA assíncrono (AsyncGA): avaliações simultâneas (0 = número de núcleos):
+    int asyncWorkers = 0;
+
+    // PSO:
+    int swarmSize = 50;
+    int maxIterations = 50;
+    double wMax = 0.9;  // Inércia máxima (controla a exploração)
+    double wMin = 0.4;  // Inércia mínima
+    double c1 = 2.0;    // Coeficiente cognitivo (pBest)
+    double c2 = 2.0;    // Coeficiente social (gBest)
+    // Velocidade máxima como fração do intervalo de cada parâmetro (o PSO trabalha no espaço normalizado [0,1]^d).
+    // Um valor vale para todas as dimensões; um valor por parâmetro (5 ou 8, ver transform) define um limite por dimensão.
+    double[] vMax = {0.2};
+    ParameterSpace.BoundaryMode psoBoundary = ParameterSpace.BoundaryMode.ABSORB;
+    // Vizinhança do PSO assíncrono (AsyncPSO), que usa asyncWorkers threads:
+    AsyncPSO.Topology psoTopology = AsyncPSO.Topology.GLOBAL;
+
+    // CMA-ES e DE (usam populationSize, maxGenerations e asyncWorkers para a avaliação em lote):
+    double cmaSigma = 0.3; // Passo inicial do CMA-ES, como fração do intervalo de cada parâmetro
+    double deF = 0.5;      // Peso da diferença na mutação do DE
+    double deCR = 0.9;     // Taxa de crossover binomial do DE
+    DifferentialEvolution.Strategy deStrategy = DifferentialEvolution.Strategy.RAND_1;
+
+    // Registro deformável (FFDRegistration): grade de B-splines do grosso para o fino, sobre a transformação
+    // global do initialGuess (ou a identidade):
+    int ffdGrid = 4;          // Células por lado no nível mais grosso
+    int ffdLevels = 3;        // Níveis (cada um dobra as células por lado)
+    int ffdIterations = 10;   // Varreduras máximas por nível
+    double ffdStep = 0.25;    // Passo inicial de cada nível, como fração do tamanho da célula
+
+    // Mutual Information:
+    int numBins = 32;   // Número de bins do histograma conjunto
+
+    // Correlação de gradientes (GC): só os pixels do modelo com gradiente de Sobel >= edgeThreshold vezes o
+    // maior gradiente entram na métrica (ver GradientMap):
+    double edgeThreshold = 0.2;
+
+    // Surrogate (SurrogateModel, GA e PSO): triagem k-NN dos candidatos antes da avaliação real.
+    boolean surrogate = false;
+    double surrogateFraction = 0.5; // Fração dos candidatos de cada geração/iteração avaliada de verdade
+    int surrogateNeighbors = 5;     // k do k-NN
+    int surrogateWarmup = 100;      // Avaliações reais antes de começar a triagem
+
+    // Fitness alvo (critério de parada e referência para "avaliações até o alvo" no relatório):
+    double targetMSE = 1.0;
+    double targetMI = 3.0;
+    double targetGC = 0.9;
+
+    // Intervalos de busca (sx, sy, theta, tx, ty). theta é em graus; um intervalo de 360 graus ou mais
+    // torna a rotação periódica (ver ParameterSpace):
+    double[] minBounds = {0.1, 0.1, -180, -150, -150};
+    double[] maxBounds = {2.0, 2.0, 180, 150, 150};
+
+    // Modelo de transformação: affine (os 5 parâmetros acima) ou homography (8 parâmetros: deslocamento (dx, dy)
+    // de cada canto da imagem, em frações da largura/altura). Na homografia, os limites são ±cornerRange, a não
+    // ser que minBounds/maxBounds tenham 8 valores (um intervalo por deslocamento, ex.: após initializer=narrow):
+    ParameterSpace.Transform transform = ParameterSpace.Transform.AFFINE;
+    double cornerRange = 0.1;
+
+    // Estimativa inicial (Initializer): none, seed (o palpite entra na população/enxame), narrow (também
+    // restringe os limites a initializerRadius do intervalo em torno do palpite) ou replace (usa o palpite
+    // como resultado quando é confiável). initializerMethod: fft ou features.
+    Initializer.Mode initializer = Initializer.Mode.NONE;
+    Initializer.Method initializerMethod = Initializer.Method.FFT;
+    double initializerRadius = 0.1;
+    // Alinhamento por features (FeatureAligner):
+    int featureCount = 500;        // Cantos mantidos por imagem
+    int ransacIterations = 1000;
+    double ransacThreshold = 3.0;  // Erro de reprojeção máximo de um inlier (pixels)
+    int minInliers = 12;           // Inliers para a estimativa ser confiável (modo replace)
+    // Sequências (SequenceRegistration): raio inicial da região de confiança em torno da solução do quadro
+    // anterior, como fração do intervalo de cada parâmetro, e fração de maxGenerations/maxIterations usada
+    // nos quadros que partem dessa solução:
+    double sequenceRadius = 0.01;
+    double sequenceBudget = 0.25;
+    // Comparação de combinações (ImageRegistration, EnsembleRunner): quantas rodam ao mesmo tempo (1 = uma após
+    // a outra, 0 = todas) e se as demais param quando uma atinge o fitness alvo:
+    int concurrentRuns = 1;
+    boolean stopOnTarget = false;
+    // Checkpoint do GA e do PSO (Checkpoint): arquivo (null = desligado), gravado a cada checkpointInterval
+    // gerações/iterações; com resume, uma execução com o arquivo existente continua de onde ele parou:
+    String checkpointFile = null;
+    int checkpointInterval = 10;
+    boolean resume = false;
+    // Limites de cada execução (ImageRegistration.execute, ver ResourceLimits): prazo em ms (0 = sem prazo; ao
+    // vencer, a busca devolve o melhor encontrado até ali), threads (0 = sem limite) e memória estimada em MB
+    // (0 = sem limite; uma execução acima do limite é recusada antes de começar):
+    long timeoutMillis = 0;
+    int maxThreads = 0;
+    int maxMemoryMB = 0;
+    // Palpite inicial (sx, sy, theta, tx, ty, ou os 8 deslocamentos dos cantos no modo homography) colocado na
+    // população/enxame; null = só posições aleatórias:
+    double[] initialGuess = null;
+
+    // Sinal de parada externo (não é um parâmetro: fica fora das flags e de toString, e copy() o compartilha):
+    StopToken stop = null;
+    // Eventos de progresso das execuções (também fora das flags e de toString; a linha de comando usa CONSOLE):
+    ProgressListener progress = ProgressListener.NONE;
+
+    /* PRESETS */
+
+    // Baixa latência: população/enxame e número de gerações reduzidos.
+    public static RegistrationConfig fast() {
+        RegistrationConfig config = new RegistrationConfig();
+        config.populationSize = 20;
+        config.maxGenerations = 20;
+        config.swarmSize = 20;
+        config.maxIterations = 20;
+        return config;
+    }
+
+    // Valores originais do projeto.
+    public static RegistrationConfig balanced() {
+        return new RegistrationConfig();
+    }
+
+    // Maior precisão: ~4x mais avaliações que o balanced.
+    public static RegistrationConfig accurate() {
+        RegistrationConfig config = new RegistrationConfig();
+        config.populationSize = 100;
+        config.maxGenerations = 100;
+        config.swarmSize = 100;
+        config.maxIterations = 100;
+        return config;
+    }
+
+    public static RegistrationConfig preset(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "fast":     return fast();
+            case "balanced": return balanced();
+            case "accurate": return accurate();
+            default:
+                throw new IllegalArgumentException("Preset desconhecido: " + name + " (use fast, balanced ou accurate)");
+        }
+    }
+
+    // Cópia independente (vetores inclusive), para derivar configurações sem alterar a original:
+    public RegistrationConfig copy() {
+        try {
+            RegistrationConfig copy = (RegistrationConfig) super.clone();
+            copy.vMax = vMax.clone();
+            copy.minBounds = minBounds.clone();
+            copy.maxBounds = maxBounds.clone();
+            if (initialGuess != null) copy.initialGuess = initialGuess.clone();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /* CARREGAMENTO */
+
+    // Lê as flags --chave=valor. --preset e --config são aplicados primeiro; as demais flags sobrescrevem.
+    // Argumentos que não começam com "--" são ignorados (ficam para o programa chamador).
+    public static RegistrationConfig fromArgs(String[] args) {
+        RegistrationConfig config = balanced();
+        Properties overrides = new Properties();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Flag sem valor: " + arg + " (use --chave=valor)");
+            String key = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+
+            if (key.equals("preset")) {
+                config = preset(value);
+            } else if (key.equals("config")) {
+                try {
+                    Properties properties = readFile(Paths.get(value));
+                    String preset = properties.getProperty("preset");
+                    if (preset != null) config = preset(preset);
+                    config.apply(properties);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Não foi possível ler " + value + ": " + e.getMessage(), e);
+                }
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+
+        config.apply(overrides);
+        config.validate();
+        return config;
+    }
+
+    // Carrega um arquivo .properties ou .json (objeto simples, opcionalmente com "preset"):
+    public static RegistrationConfig load(Path path) throws IOException {
+        RegistrationConfig config = balanced();
+        Properties properties = readFile(path);
+        String preset = properties.getProperty("preset");
+        if (preset != null) config = preset(preset);
+        config.apply(properties);
+        config.validate();
+        return config;
+    }
+
+    private static Properties readFile(Path path) throws IOException {
+        if (path.toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+            return fromJson(Json.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)));
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    // Converte um objeto JSON ({"populationSize": 80, "minBounds": [0.1, ...]}) para Properties:
+    static Properties fromJson(Map<String, Object> json) {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            Object value = entry.getValue();
+            String text;
+            if (value instanceof List) {
+                List<String> items = new ArrayList<>();
+                for (Object item : (List<?>) value) items.add(String.valueOf(item));
+                text = String.join(",", items);
+            } else if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+                text = String.valueOf(((Double) value).longValue()); // 80.0 -> "80" (campos inteiros)
+            } else {
+                text = String.valueOf(value);
+            }
+            properties.setProperty(entry.getKey(), text);
+        }
+        return properties;
+    }
+
+    // Aplica as chaves presentes (as demais mantêm o valor atual):
+    void apply(Properties p) {
+        for (String key : p.stringPropertyNames()) {
+            String value = p.getProperty(key).trim();
+            try {
+                switch (key) {
+                    case "preset":         break; // Tratado por quem chama.
+                    case "populationSize": populationSize = Integer.parseInt(value); break;
+                    case "maxGenerations": maxGenerations = Integer.parseInt(value); break;
+                    case "mutationRate":   mutationRate = Double.parseDouble(value); break;
+                    case "crossoverRate":  crossoverRate = Double.parseDouble(value); break;
+                    case "islands":        islands = Integer.parseInt(value); break;
+                    case "migrationInterval": migrationInterval = Integer.parseInt(value); break;
+                    case "migrants":       migrants = Integer.parseInt(value); break;
+                    case "migrationTopology": migrationTopology = parseTopology(value); break;
+                    case "asyncWorkers":   asyncWorkers = Integer.parseInt(value); break;
+                    case "swarmSize":      swarmSize = Integer.parseInt(value); break;
+                    case "maxIterations":  maxIterations = Integer.parseInt(value); break;
+                    case "wMax":           wMax = Double.parseDouble(value); break;
+                    case "wMin":           wMin = Double.parseDouble(value); break;
+                    case "c1":             c1 = Double.parseDouble(value); break;
+                    case "c2":             c2 = Double.parseDouble(value); break;
+                    case "vMax":           vMax = parseVector(value); break;
+                    case "psoBoundary":    psoBoundary = parseBoundary(value); break;
+                    case "psoTopology":    psoTopology = parsePsoTopology(value); break;
+                    case "surrogate":      surrogate = parseBoolean(key, value); break;
+                    case "surrogateFraction": surrogateFraction = Double.parseDouble(value); break;
+                    case "surrogateNeighbors": surrogateNeighbors = Integer.parseInt(value); break;
+                    case "surrogateWarmup": surrogateWarmup = Integer.parseInt(value); break;
+                    case "cmaSigma":       cmaSigma = Double.parseDouble(value); break;
+                    case "deF":            deF = Double.parseDouble(value); break;
+                    case "deCR":           deCR = Double.parseDouble(value); break;
+                    case "deStrategy":     deStrategy = parseDeStrategy(value); break;
+                    case "ffdGrid":        ffdGrid = Integer.parseInt(value); break;
+                    case "ffdLevels":      ffdLevels = Integer.parseInt(value); break;
+                    case "ffdIterations":  ffdIterations = Integer.parseInt(value); break;
+                    case "ffdStep":        ffdStep = Double.parseDouble(value); break;
+                    case "numBins":        numBins = Integer.parseInt(value); break;
+                    case "edgeThreshold":  edgeThreshold = Double.parseDouble(value); break;
+                    case "targetMSE":      targetMSE = Double.parseDouble(value); break;
+                    case "targetMI":       targetMI = Double.parseDouble(value); break;
+                    case "targetGC":       targetGC = Double.parseDouble(value); break;
+                    case "minBounds":      minBounds = parseVector(value); break;
+                    case "maxBounds":      maxBounds = parseVector(value); break;
+                    case "transform":      transform = parseTransform(value); break;
+                    case "cornerRange":    cornerRange = Double.parseDouble(value); break;
+                    case "initializer":    initializer = parseInitializer(value); break;
+                    case "initializerMethod": initializerMethod = parseInitializerMethod(value); break;
+                    case "initializerRadius": initializerRadius = Double.parseDouble(value); break;
+                    case "featureCount":   featureCount = Integer.parseInt(value); break;
+                    case "ransacIterations": ransacIterations = Integer.parseInt(value); break;
+                    case "ransacThreshold": ransacThreshold = Double.parseDouble(value); break;
+                    case "minInliers":     minInliers = Integer.parseInt(value); break;
+                    case "sequenceRadius": sequenceRadius = Double.parseDouble(value); break;
+                    case "sequenceBudget": sequenceBudget = Double.parseDouble(value); break;
+                    case "concurrentRuns": concurrentRuns = Integer.parseInt(value); break;
+                    case "stopOnTarget":   stopOnTarget = parseBoolean(key, value); break;
+                    case "checkpointFile": checkpointFile = value.isEmpty() ? null : value; break;
+                    case "checkpointInterval": checkpointInterval = Integer.parseInt(value); break;
+                    case "resume":         resume = parseBoolean(key, value); break;
+                    case "timeoutMillis":  timeoutMillis = Long.parseLong(value); break;
+                    case "maxThreads":     maxThreads = Integer.parseInt(value); break;
+                    case "maxMemoryMB":    maxMemoryMB = Integer.parseInt(value); break;
+                    case "initialGuess":   initialGuess = value.isEmpty() ? null : parseVector(value); break;
+                    default:
+                        throw new IllegalArgumentException("Parâmetro desconhecido: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+            }
+        }
+    }
+
+    private static ParameterSpace.BoundaryMode parseBoundary(String text) {
+        try {
+            return ParameterSpace.BoundaryMode.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("psoBoundary deve ser clamp, reflect ou absorb: " + text);
+        }
+    }
+
+    private static IslandGA.Topology parseTopology(String text) {
+        try {
+            return IslandGA.Topology.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("migrationTopology deve ser ring ou full: " + text);
+        }
+    }
+
+    private static AsyncPSO.Topology parsePsoTopology(String text) {
+        try {
+            return AsyncPSO.Topology.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("psoTopology deve ser global, ring ou von_neumann: " + text);
+        }
+    }
+
+    private static DifferentialEvolution.Strategy parseDeStrategy(String text) {
+        try {
+            return DifferentialEvolution.Strategy.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("deStrategy deve ser rand_1 ou best_1: " + text);
+        }
+    }
+
+    private static ParameterSpace.Transform parseTransform(String text) {
+        try {
+            return ParameterSpace.Transform.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("transform deve ser affine ou homography: " + text);
+        }
+    }
+
+    private static Initializer.Mode parseInitializer(String text) {
+        try {
+            return Initializer.Mode.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("initializer deve ser none, seed, narrow ou replace: " + text);
+        }
+    }
+
+    private static Initializer.Method parseInitializerMethod(String text) {
+        try {
+            return Initializer.Method.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("initializerMethod deve ser fft ou features: " + text);
+        }
+    }
+
+    private static boolean parseBoolean(String key, String text) {
+        if (text.equalsIgnoreCase("true")) return true;
+        if (text.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException(key + " deve ser true ou false: " + text);
+    }
+
+    private static double[] parseVector(String text) {
+        String[] parts = text.replace("[", "").replace("]", "").split(",");
+        double[] v = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) v[i] = Double.parseDouble(parts[i].trim());
+        return v;
+    }
+
+    // true se um sinal de parada externo (stop) foi acionado:
+    public boolean stopRequested() {
+        return stop != null && stop.isStopped();
+    }
+
+    // Número de parâmetros do modelo de transformação:
+    public int dimensions() {
+        return transform == ParameterSpace.Transform.HOMOGRAPHY ? ParameterSpace.HOMOGRAPHY_PARAMETERS : 5;
+    }
+
+    /* VALIDAÇÃO */
+
+    // Verifica todos os parâmetros antes de iniciar qualquer otimização:
+    public void validate() {
+        List<String> errors = new ArrayList<>();
+        // O elitismo reserva 1 posição, então é preciso espaço para ao menos 1 filho por geração:
+        if (populationSize < 2) errors.add("populationSize deve ser >= 2");
+        if (maxGenerations < 1) errors.add("maxGenerations deve ser >= 1");
+        if (!(mutationRate >= 0 && mutationRate <= 1)) errors.add("mutationRate deve estar em [0, 1]");
+        if (!(crossoverRate >= 0 && crossoverRate <= 1)) errors.add("crossoverRate deve estar em [0, 1]");
+        if (islands < 1) errors.add("islands deve ser >= 1");
+        if (migrationInterval < 1) errors.add("migrationInterval deve ser >= 1");
+        if (migrants < 0) errors.add("migrants deve ser >= 0");
+        // Cada ilha precisa do elitismo, dos imigrantes e de ao menos 1 filho:
+        if (islands >= 1 && migrants >= 0 && populationSize / islands < migrants + 2) {
+            errors.add("populationSize / islands deve ser >= migrants + 2");
+        }
+        if (asyncWorkers < 0) errors.add("asyncWorkers deve ser >= 0 (0 = número de núcleos)");
+        if (swarmSize < 1) errors.add("swarmSize deve ser >= 1");
+        if (maxIterations < 1) errors.add("maxIterations deve ser >= 1");
+        if (!(wMin >= 0 && wMin <= wMax)) errors.add("é preciso 0 <= wMin <= wMax");
+        if (!(c1 >= 0) || !(c2 >= 0)) errors.add("c1 e c2 devem ser >= 0");
+        if (vMax.length != 1 && vMax.length != dimensions()) errors.add("vMax deve ter 1 ou " + dimensions() + " valores");
+        for (double v : vMax) {
+            if (!(v > 0 && v <= 1)) errors.add("vMax deve estar em (0, 1] (fração do intervalo)");
+        }
+        if (!(surrogateFraction > 0 && surrogateFraction <= 1)) errors.add("surrogateFraction deve estar em (0, 1]");
+        if (surrogateNeighbors < 1) errors.add("surrogateNeighbors deve ser >= 1");
+        if (surrogateWarmup < 0) errors.add("surrogateWarmup deve ser >= 0");
+        if (!(cmaSigma > 0 && cmaSigma <= 1)) errors.add("cmaSigma deve estar em (0, 1] (fração do intervalo)");
+        if (!(deF > 0 && deF <= 2)) errors.add("deF deve estar em (0, 2]");
+        if (!(deCR >= 0 && deCR <= 1)) errors.add("deCR deve estar em [0, 1]");
+        if (ffdGrid < 1) errors.add("ffdGrid deve ser >= 1");
+        if (ffdLevels < 1 || ffdLevels > 6) errors.add("ffdLevels deve estar em [1, 6]");
+        if (ffdIterations < 1) errors.add("ffdIterations deve ser >= 1");
+        if (!(ffdStep > 0 && ffdStep <= 0.4)) errors.add("ffdStep deve estar em (0, 0.4] (fração da célula)");
+        if (numBins < 2 || numBins > 256) errors.add("numBins deve estar em [2, 256]");
+        if (!(edgeThreshold >= 0 && edgeThreshold < 1)) errors.add("edgeThreshold deve estar em [0, 1) (fração do maior gradiente)");
+        boolean cornerBounds = transform == ParameterSpace.Transform.HOMOGRAPHY && minBounds.length == ParameterSpace.HOMOGRAPHY_PARAMETERS;
+        if (minBounds.length != maxBounds.length || (minBounds.length != 5 && !cornerBounds)) {
+            errors.add(transform == ParameterSpace.Transform.HOMOGRAPHY
+                       ? "minBounds e maxBounds devem ter 5 valores (sx, sy, theta, tx, ty) ou 8 (cantos)"
+                       : "minBounds e maxBounds devem ter 5 valores (sx, sy, theta, tx, ty)");
+        } else {
+            for (int i = 0; i < minBounds.length; i++) {
+                if (!(minBounds[i] < maxBounds[i])) errors.add("minBounds[" + i + "] deve ser menor que maxBounds[" + i + "]");
+            }
+            if (!cornerBounds && (minBounds[0] <= 0 || minBounds[1] <= 0)) errors.add("escalas mínimas (sx, sy) devem ser > 0");
+        }
+        // Até 1/4 do tamanho da imagem o quadrilátero dos cantos continua convexo (homografia bem definida):
+        if (!(cornerRange > 0 && cornerRange <= 0.25)) errors.add("cornerRange deve estar em (0, 0.25] (fração da imagem)");
+        if (cornerBounds) {
+            for (int i = 0; i < minBounds.length; i++) {
+                if (minBounds[i] < -0.25 || maxBounds[i] > 0.25) errors.add("limites dos cantos devem estar em [-0.25, 0.25]");
+            }
+        }
+        if (!(initializerRadius > 0 && initializerRadius <= 1)) errors.add("initializerRadius deve estar em (0, 1] (fração do intervalo)");
+        if (!(sequenceRadius > 0 && sequenceRadius <= 1)) errors.add("sequenceRadius deve estar em (0, 1] (fração do intervalo)");
+        if (!(sequenceBudget > 0 && sequenceBudget <= 1)) errors.add("sequenceBudget deve estar em (0, 1]");
+        if (concurrentRuns < 0) errors.add("concurrentRuns deve ser >= 0 (0 = todas as combinações)");
+        if (checkpointInterval < 1) errors.add("checkpointInterval deve ser >= 1");
+        // O arquivo de pontos do surrogate não faz parte do checkpoint, então a retomada não seria exata:
+        if (checkpointFile != null && surrogate) errors.add("checkpointFile não pode ser usado com surrogate");
+        if (timeoutMillis < 0) errors.add("timeoutMillis deve ser >= 0 (0 = sem prazo)");
+        if (maxThreads < 0) errors.add("maxThreads deve ser >= 0 (0 = sem limite)");
+        if (maxMemoryMB < 0) errors.add("maxMemoryMB deve ser >= 0 (0 = sem limite)");
+        if (featureCount < 3) errors.add("featureCount deve ser >= 3");
+        if (ransacIterations < 1) errors.add("ransacIterations deve ser >= 1");
+        if (!(ransacThreshold > 0)) errors.add("ransacThreshold deve ser > 0");
+        if (minInliers < 3) errors.add("minInliers deve ser >= 3");
+        if (initialGuess != null && initialGuess.length != dimensions()) {
+            errors.add(transform == ParameterSpace.Transform.HOMOGRAPHY
+                       ? "initialGuess deve ter 8 valores (dx, dy de cada canto) no modo homography"
+                       : "initialGuess deve ter 5 valores (sx, sy, theta, tx, ty)");
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Configuração inválida: " + String.join("; ", errors));
+        }
+    }
+
+    // Representação canônica (ordem fixa), usada em logs e como parte da chave de cache:
+    @Override
+    public String toString() {
+        return "populationSize=" + populationSize + ", maxGenerations=" + maxGenerations
+             + ", mutationRate=" + mutationRate + ", crossoverRate=" + crossoverRate
+             + ", islands=" + islands + ", migrationInterval=" + migrationInterval
+             + ", migrants=" + migrants + ", migrationTopology=" + migrationTopology
+             + ", asyncWorkers=" + asyncWorkers
+             + ", swarmSize=" + swarmSize + ", maxIterations=" + maxIterations
+             + ", wMax=" + wMax + ", wMin=" + wMin + ", c1=" + c1 + ", c2=" + c2 + ", vMax=" + Arrays.toString(vMax)
+             + ", psoBoundary=" + psoBoundary + ", psoTopology=" + psoTopology
+             + ", surrogate=" + surrogate + ", surrogateFraction=" + surrogateFraction
+             + ", surrogateNeighbors=" + surrogateNeighbors + ", surrogateWarmup=" + surrogateWarmup
+             + ", cmaSigma=" + cmaSigma + ", deF=" + deF + ", deCR=" + deCR + ", deStrategy=" + deStrategy
+             + ", ffdGrid=" + ffdGrid + ", ffdLevels=" + ffdLevels + ", ffdIterations=" + ffdIterations
+             + ", ffdStep=" + ffdStep
+             + ", numBins=" + numBins + ", edgeThreshold=" + edgeThreshold
+             + ", targetMSE=" + targetMSE + ", targetMI=" + targetMI + ", targetGC=" + targetGC
+             + ", minBounds=" + Arrays.toString(minBounds)
+             + ", maxBounds=" + Arrays.toString(maxBounds)
+             + ", transform=" + transform + ", cornerRange=" + cornerRange
+             + ", initializer=" + initializer + ", initializerMethod=" + initializerMethod
+             + ", initializerRadius=" + initializerRadius + ", featureCount=" + featureCount
+             + ", ransacIterations=" + ransacIterations + ", ransacThreshold=" + ransacThreshold
+             + ", minInliers=" + minInliers + ", sequenceRadius=" + sequenceRadius + ", sequenceBudget=" + sequenceBudget
+             + ", concurrentRuns=" + concurrentRuns + ", stopOnTarget=" + stopOnTarget
+             + ", checkpointFile=" + checkpointFile + ", checkpointInterval=" + checkpointInterval + ", resume=" + resume
+             + ", timeoutMillis=" + timeoutMillis + ", maxThreads=" + maxThreads + ", maxMemoryMB=" + maxMemoryMB
+             + ", initialGuess=" + Arrays.toString(initialGuess);
+    }
+}
@@ -0,0 +1,430 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Kernels das funções objetivo (MSE, MI e GC).
+// A transformação inversa e a métrica são calculadas no mesmo passo, sem gerar a imagem transformada.
+// M pode ser afim ou uma homografia: a divisão perspectiva só é feita quando a última linha de M^-1 não é
+// (0, 0, 1); no caminho afim as coordenadas saem direto das duas primeiras linhas.
+// Para imagens grandes a avaliação é dividida em faixas de linhas processadas em um pool fork-join,
+// e os resultados parciais são combinados por redução (soma dos erros ou soma dos histogramas).
+public class RegistrationMetrics {
+    // Abaixo deste número de pixels o custo de dividir a imagem supera o ganho:
+    private static final int PARALLEL_PIXEL_THRESHOLD = 256 * 256;
+    // Número mínimo de pixels em cada faixa de linhas:
+    private static final int MIN_BAND_PIXELS = 16 * 1024;
+
+    enum EvaluationMode { SEQUENTIAL, ROW_BANDS }
+
+    // Escolhe o modo de avaliação a partir do tamanho da imagem, do número de candidatos
+    // avaliados ao mesmo tempo pelo otimizador e do número de núcleos:
+    static EvaluationMode chooseMode(int pixels, int concurrentCandidates, int cores) {
+        // Se os candidatos já ocupam todos os núcleos, dividir a imagem só adiciona overhead:
+        if (cores < 2 || concurrentCandidates >= cores) return EvaluationMode.SEQUENTIAL;
+        if (pixels < PARALLEL_PIXEL_THRESHOLD) return EvaluationMode.SEQUENTIAL;
+        return EvaluationMode.ROW_BANDS;
+    }
+
+    private static EvaluationMode modeFor(int w, int h, int concurrentCandidates) {
+        return chooseMode(w * h, concurrentCandidates, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Calcula o MSE (média sobre os 3 canais RGB) entre o modelo e a cena transformada por M:
+    public static double meanSquaredError(PixelImage model, PixelImage scene, double[][] M, int concurrentCandidates) {
+        long start = System.nanoTime();
+        double[][] invM = inverse(M);
+        int w = Math.min(model.width, scene.width);
+        int h = Math.min(model.height, scene.height);
+        long count = 3L * w * h; // 3 canais (R, G e B) por pixel.
+
+        if (count == 0) {
+            return Double.MAX_VALUE;
+        }
+
+        RegistrationStats stats = RegistrationStats.INSTANCE;
+        long sumSquaredError;
+        if (modeFor(w, h, concurrentCandidates) == EvaluationMode.ROW_BANDS) {
+            sumSquaredError = ForkJoinPool.commonPool().invoke(new SquaredErrorTask(model, scene, invM, w, 0, h));
+        } else if (stats.shouldSampleSplit()) {
+            // Avaliação amostrada: warp e métrica em passos separados para medir cada fase.
+            long t0 = System.nanoTime();
+            int[] warped = warp(scene, invM, w, h);
+            long t1 = System.nanoTime();
+            sumSquaredError = sumSquaredError(model, warped, w, h);
+            stats.recordSplit(t1 - t0, System.nanoTime() - t1);
+        } else {
+            sumSquaredError = sumSquaredError(model, scene, invM, w, 0, h);
+        }
+
+        stats.recordEvaluation(System.nanoTime() - start);
+        return (double) sumSquaredError / count;
+    }
+
+    // Calcula a Mutual Information (em bits) entre o modelo e a cena transformada por M:
+    public static double mutualInformation(PixelImage model, PixelImage scene, double[][] M, int numBins, int concurrentCandidates) {
+        long start = System.nanoTime();
+        double[][] invM = inverse(M);
+        int w = Math.min(model.width, scene.width);
+        int h = Math.min(model.height, scene.height);
+        long totalPixels = (long) w * h;
+
+        if (totalPixels == 0) return 0.0;
+
+        RegistrationStats stats = RegistrationStats.INSTANCE;
+        long[] jointHistogram;
+        if (modeFor(w, h, concurrentCandidates) == EvaluationMode.ROW_BANDS) {
+            jointHistogram = ForkJoinPool.commonPool().invoke(new JointHistogramTask(model, scene, invM, w, 0, h, numBins));
+        } else if (stats.shouldSampleSplit()) {
+            long t0 = System.nanoTime();
+            int[] warped = warp(scene, invM, w, h);
+            long t1 = System.nanoTime();
+            jointHistogram = new long[numBins * numBins];
+            accumulateJointHistogram(model, warped, w, h, numBins, jointHistogram);
+            stats.recordSplit(t1 - t0, System.nanoTime() - t1);
+        } else {
+            jointHistogram = new long[numBins * numBins];
+            accumulateJointHistogram(model, scene, invM, w, 0, h, numBins, jointHistogram);
+        }
+
+        double mi = mutualInformation(jointHistogram, totalPixels, numBins);
+        stats.recordEvaluation(System.nanoTime() - start);
+        return mi;
+    }
+
+    // Correlação de gradientes (GC, em [-1, 1]) entre o modelo e a cena transformada por M, só nos pixels da
+    // lista de bordas do modelo: Σ gM·gW / sqrt(Σ|gM|² Σ|gW|²). gW é o gradiente da cena em M^-1(x, y), levado
+    // ao referencial do modelo pela jacobiana de M^-1; um ponto fora da cena tem gW = 0 e só pesa em Σ|gM|².
+    public static double gradientCorrelation(GradientMap model, GradientMap.Edges edges, GradientMap scene, double[][] M,
+                                             int concurrentCandidates) {
+        long start = System.nanoTime();
+        double[][] invM = inverse(M);
+        int n = edges.index.length;
+
+        if (n == 0 || edges.energy == 0) return 0.0;
+
+        double[] sums; // Σ gM·gW e Σ|gW|²
+        if (chooseMode(n, concurrentCandidates, Runtime.getRuntime().availableProcessors()) == EvaluationMode.ROW_BANDS) {
+            sums = ForkJoinPool.commonPool().invoke(new GradientCorrelationTask(model, edges.index, scene, invM, 0, n));
+        } else {
+            sums = new double[2];
+            accumulateGradientCorrelation(model, edges.index, scene, invM, 0, n, sums);
+        }
+
+        double gc = sums[1] > 0 ? sums[0] / Math.sqrt(edges.energy * sums[1]) : 0.0;
+        RegistrationStats.INSTANCE.recordEvaluation(System.nanoTime() - start);
+        return gc;
+    }
+
+    // Converte RGB para um valor de intensidade quantizado (0 a numBins-1):
+    static int quantize(int rgb, int numBins) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        // Converte para escala de cinza (simples média):
+        int gray = (r + g + b) / 3;
+
+        return Math.min(numBins - 1, (int) (gray * numBins / 256.0));
+    }
+
+    // MI a partir do histograma conjunto (armazenado em linha: [modelo * numBins + cena]):
+    static double mutualInformation(long[] jointHistogram, long totalPixels, int numBins) {
+        double[] pAB = new double[numBins * numBins]; // Probabilidade conjunta P(A,B)
+        double[] pA = new double[numBins];            // Marginal do modelo
+        double[] pB = new double[numBins];            // Marginal da cena
+
+        for (int i = 0; i < numBins; i++) {
+            for (int j = 0; j < numBins; j++) {
+                double p = (double) jointHistogram[i * numBins + j] / totalPixels;
+                pAB[i * numBins + j] = p;
+                pA[i] += p;
+                pB[j] += p;
+            }
+        }
+
+        double mi = 0.0;
+        for (int i = 0; i < numBins; i++) {
+            for (int j = 0; j < numBins; j++) {
+                double p = pAB[i * numBins + j];
+                if (p > 1e-10 && pA[i] > 1e-10 && pB[j] > 1e-10) {
+                    mi += p * Math.log(p / (pA[i] * pB[j]));
+                }
+            }
+        }
+
+        // Converte de base e para base 2:
+        return mi / Math.log(2);
+    }
+
+    // M^-1; se M é afim, a última linha da inversa vira exatamente (0, 0, 1) (as duas primeiras são divididas
+    // pelo termo que sobra do arredondamento), o que permite o caminho sem divisão perspectiva:
+    static double[][] inverse(double[][] M) {
+        double[][] invM = ImageTransforms.invert3x3(M);
+        if (invM[2][0] == 0 && invM[2][1] == 0 && invM[2][2] != 1) {
+            double s = invM[2][2];
+            for (int i = 0; i < 2; i++) {
+                for (int j = 0; j < 3; j++) invM[i][j] /= s;
+            }
+            invM[2][2] = 1;
+        }
+        return invM;
+    }
+
+    private static boolean isProjective(double[][] invM) {
+        return invM[2][0] != 0 || invM[2][1] != 0 || invM[2][2] != 1;
+    }
+
+    /* KERNELS POR FAIXA DE LINHAS [y0, y1) */
+
+    private static long sumSquaredError(PixelImage model, PixelImage scene, double[][] invM, int w, int y0, int y1) {
+        boolean projective = isProjective(invM);
+        long sumSquaredError = 0;
+        for (int y = y0; y < y1; y++) {
+            int row = y * model.width;
+            for (int x = 0; x < w; x++) {
+                // Transformação inversa (mesma aritmética de ImageTransforms.applyTransform):
+                double u = invM[0][0] * x + invM[0][1] * y + invM[0][2];
+                double v = invM[1][0] * x + invM[1][1] * y + invM[1][2];
+                int sceneRGB;
+                if (projective) {
+                    double s = invM[2][0] * x + invM[2][1] * y + invM[2][2];
+                    sceneRGB = scene.bilinearInterpolate(u / s, v / s);
+                } else {
+                    sceneRGB = scene.bilinearInterpolate(u, v);
+                }
+                int modelRGB = model.rgb[row + x];
+
+                int dr = ((modelRGB >> 16) & 0xFF) - ((sceneRGB >> 16) & 0xFF);
+                int dg = ((modelRGB >> 8) & 0xFF) - ((sceneRGB >> 8) & 0xFF);
+                int db = (modelRGB & 0xFF) - (sceneRGB & 0xFF);
+
+                sumSquaredError += dr * dr + dg * dg + db * db;
+            }
+        }
+        return sumSquaredError;
+    }
+
+    private static void accumulateJointHistogram(PixelImage model, PixelImage scene, double[][] invM, int w, int y0, int y1,
+                                                 int numBins, long[] jointHistogram) {
+        boolean projective = isProjective(invM);
+        int[] modelBins = model.bins(numBins);
+        for (int y = y0; y < y1; y++) {
+            int row = y * model.width;
+            for (int x = 0; x < w; x++) {
+                double u = invM[0][0] * x + invM[0][1] * y + invM[0][2];
+                double v = invM[1][0] * x + invM[1][1] * y + invM[1][2];
+                int sceneRGB;
+                if (projective) {
+                    double s = invM[2][0] * x + invM[2][1] * y + invM[2][2];
+                    sceneRGB = scene.bilinearInterpolate(u / s, v / s);
+                } else {
+                    sceneRGB = scene.bilinearInterpolate(u, v);
+                }
+
+                int modelIntensity = modelBins[row + x];
+                int sceneIntensity = quantize(sceneRGB, numBins);
+
+                jointHistogram[modelIntensity * numBins + sceneIntensity]++;
+            }
+        }
+    }
+
+    // Pixels de borda edges[from, to) do modelo; soma em sums[0] o produto escalar e em sums[1] a energia de gW:
+    private static void accumulateGradientCorrelation(GradientMap model, int[] edges, GradientMap scene, double[][] invM,
+                                                      int from, int to, double[] sums) {
+        boolean projective = isProjective(invM);
+        int sw = scene.width;
+        double maxU = scene.width - 1, maxV = scene.height - 1;
+        double dot = 0, sceneEnergy = 0;
+        for (int i = from; i < to; i++) {
+            int k = edges[i];
+            int x = k % model.width;
+            int y = k / model.width;
+            double u = invM[0][0] * x + invM[0][1] * y + invM[0][2];
+            double v = invM[1][0] * x + invM[1][1] * y + invM[1][2];
+            // Jacobiana de M^-1 no ponto (constante no caminho afim):
+            double j00 = invM[0][0], j01 = invM[0][1], j10 = invM[1][0], j11 = invM[1][1];
+            if (projective) {
+                double s = invM[2][0] * x + invM[2][1] * y + invM[2][2];
+                u /= s;
+                v /= s;
+                j00 = (invM[0][0] - u * invM[2][0]) / s;
+                j01 = (invM[0][1] - u * invM[2][1]) / s;
+                j10 = (invM[1][0] - v * invM[2][0]) / s;
+                j11 = (invM[1][1] - v * invM[2][1]) / s;
+            }
+            if (!(u >= 0 && v >= 0 && u < maxU && v < maxV)) continue; // Fora da cena (ou NaN)
+
+            // Interpolação bilinear dos dois mapas (mesma regra de PixelImage.bilinearInterpolate):
+            int x1 = (int) u;
+            int y1 = (int) v;
+            double wx = u - x1, wy = v - y1;
+            int i11 = y1 * sw + x1;
+            double w11 = (1 - wx) * (1 - wy), w12 = (1 - wx) * wy, w21 = wx * (1 - wy), w22 = wx * wy;
+            double su = w11 * scene.gx[i11] + w12 * scene.gx[i11 + sw] + w21 * scene.gx[i11 + 1] + w22 * scene.gx[i11 + sw + 1];
+            double sv = w11 * scene.gy[i11] + w12 * scene.gy[i11 + sw] + w21 * scene.gy[i11 + 1] + w22 * scene.gy[i11 + sw + 1];
+
+            // Regra da cadeia: gradiente de S(M^-1(x, y)) = J^T * gradiente de S em (u, v)
+            double wgx = j00 * su + j10 * sv;
+            double wgy = j01 * su + j11 * sv;
+            dot += model.gx[k] * wgx + model.gy[k] * wgy;
+            sceneEnergy += wgx * wgx + wgy * wgy;
+        }
+        sums[0] += dot;
+        sums[1] += sceneEnergy;
+    }
+
+    /* CAMINHO EM DOIS PASSOS (usado apenas nas avaliações amostradas para medir warp x métrica) */
+
+    private static int[] warp(PixelImage scene, double[][] invM, int w, int h) {
+        boolean projective = isProjective(invM);
+        int[] warped = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double u = invM[0][0] * x + invM[0][1] * y + invM[0][2];
+                double v = invM[1][0] * x + invM[1][1] * y + invM[1][2];
+                if (projective) {
+                    double s = invM[2][0] * x + invM[2][1] * y + invM[2][2];
+                    u /= s;
+                    v /= s;
+                }
+                warped[y * w + x] = scene.bilinearInterpolate(u, v);
+            }
+        }
+        return warped;
+    }
+
+    private static long sumSquaredError(PixelImage model, int[] warped, int w, int h) {
+        long sumSquaredError = 0;
+        for (int y = 0; y < h; y++) {
+            int row = y * model.width;
+            for (int x = 0; x < w; x++) {
+                int modelRGB = model.rgb[row + x];
+                int sceneRGB = warped[y * w + x];
+
+                int dr = ((modelRGB >> 16) & 0xFF) - ((sceneRGB >> 16) & 0xFF);
+                int dg = ((modelRGB >> 8) & 0xFF) - ((sceneRGB >> 8) & 0xFF);
+                int db = (modelRGB & 0xFF) - (sceneRGB & 0xFF);
+
+                sumSquaredError += dr * dr + dg * dg + db * db;
+            }
+        }
+        return sumSquaredError;
+    }
+
+    private static void accumulateJointHistogram(PixelImage model, int[] warped, int w, int h, int numBins, long[] jointHistogram) {
+        int[] modelBins = model.bins(numBins);
+        for (int y = 0; y < h; y++) {
+            int row = y * model.width;
+            for (int x = 0; x < w; x++) {
+                int modelIntensity = modelBins[row + x];
+                int sceneIntensity = quantize(warped[y * w + x], numBins);
+                jointHistogram[modelIntensity * numBins + sceneIntensity]++;
+            }
+        }
+    }
+
+    private static int rowsPerBand(int w) {
+        return Math.max(1, MIN_BAND_PIXELS / Math.max(1, w));
+    }
+
+    // Divide as linhas ao meio até a faixa ficar pequena e soma os erros das duas metades:
+    private static class SquaredErrorTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final PixelImage model, scene;
+        private final double[][] invM;
+        private final int w, y0, y1;
+
+        SquaredErrorTask(PixelImage model, PixelImage scene, double[][] invM, int w, int y0, int y1) {
+            this.model = model;
+            this.scene = scene;
+            this.invM = invM;
+            this.w = w;
+            this.y0 = y0;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected Long compute() {
+            if (y1 - y0 <= rowsPerBand(w)) {
+                return sumSquaredError(model, scene, invM, w, y0, y1);
+            }
+            int mid = (y0 + y1) >>> 1;
+            SquaredErrorTask top = new SquaredErrorTask(model, scene, invM, w, y0, mid);
+            top.fork();
+            long bottom = new SquaredErrorTask(model, scene, invM, w, mid, y1).compute();
+            return top.join() + bottom;
+        }
+    }
+
+    // Cada faixa gera seu próprio histograma conjunto; os histogramas são somados na volta:
+    private static class JointHistogramTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final PixelImage model, scene;
+        private final double[][] invM;
+        private final int w, y0, y1, numBins;
+
+        JointHistogramTask(PixelImage model, PixelImage scene, double[][] invM, int w, int y0, int y1, int numBins) {
+            this.model = model;
+            this.scene = scene;
+            this.invM = invM;
+            this.w = w;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.numBins = numBins;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (y1 - y0 <= rowsPerBand(w)) {
+                long[] histogram = new long[numBins * numBins];
+                accumulateJointHistogram(model, scene, invM, w, y0, y1, numBins, histogram);
+                return histogram;
+            }
+            int mid = (y0 + y1) >>> 1;
+            JointHistogramTask top = new JointHistogramTask(model, scene, invM, w, y0, mid, numBins);
+            top.fork();
+            long[] merged = new JointHistogramTask(model, scene, invM, w, mid, y1, numBins).compute();
+            long[] other = top.join();
+            for (int i = 0; i < merged.length; i++) merged[i] += other[i];
+            return merged;
+        }
+    }
+
+    // Divide a lista de bordas ao meio e soma as duas parciais de cada metade:
+    private static class GradientCorrelationTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final GradientMap model, scene;
+        private final int[] edges;
+        private final double[][] invM;
+        private final int from, to;
+
+        GradientCorrelationTask(GradientMap model, int[] edges, GradientMap scene, double[][] invM, int from, int to) {
+            this.model = model;
+            this.edges = edges;
+            this.scene = scene;
+            this.invM = invM;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= MIN_BAND_PIXELS) {
+                double[] sums = new double[2];
+                accumulateGradientCorrelation(model, edges, scene, invM, from, to, sums);
+                return sums;
+            }
+            int mid = (from + to) >>> 1;
+            GradientCorrelationTask first = new GradientCorrelationTask(model, edges, scene, invM, from, mid);
+            first.fork();
+            double[] sums = new GradientCorrelationTask(model, edges, scene, invM, mid, to).compute();
+            double[] other = first.join();
+            sums[0] += other[0];
+            sums[1] += other[1];
+            return sums;
+        }
+    }
+}
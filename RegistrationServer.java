@@ -0,0 +1,348 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+// Servidor HTTP local de registro de imagens.
+// Mantém a JVM aquecida entre requisições: as execuções passam por uma fila limitada
+// e os resultados são guardados em cache pelo hash do conteúdo das entradas.
+//
+// POST /register
+//   {"algorithm": "GA" | "PSO" | "IGA" | "AGA" | "APSO" | "CMAES" | "DE" | "FFD", "metric": "MSE" | "MI" | "GC", "model": "<base64>", "scene": "<base64>",
+//    "preset": "fast" | "balanced" | "accurate" (opcional), "config": {"populationSize": 80, ...} (opcional)}
+// Resposta: {"name", "fitnessType", "fitness", "timeMillis", "parameters", "matrix", "report", "cached"}
+// (com "stopped" e "stopReason" se a busca parou antes do fim, ex.: "config": {"timeoutMillis": 2000})
+//
+// GET /stats: contadores globais de avaliação e de cache (os mesmos do MBean RegistrationStats)
+public class RegistrationServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+    private static final int DEFAULT_MAX_BODY_MB = 64;
+    // Thread que só responde 503 às conexões que não couberam na fila de requisições:
+    private static final String OVERLOAD_THREAD = "register-overload";
+    private static final int CACHE_CAPACITY = 256;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ThreadPoolExecutor requestExecutor;
+    private final ExecutorService overloadExecutor;
+    private final long maxBodyBytes;
+    // Para as buscas em andamento quando o servidor é encerrado (sem esperar o fim de cada uma):
+    private final StopToken shutdown = new StopToken();
+
+    // Cache LRU (hash das entradas -> resultado). Guarda o futuro, então requisições
+    // idênticas que chegam juntas compartilham a mesma execução:
+    private final Map<String, CompletableFuture<ImageRegistration.RegistrationResult>> cache =
+        new LinkedHashMap<String, CompletableFuture<ImageRegistration.RegistrationResult>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<ImageRegistration.RegistrationResult>> eldest) {
+                return size() > CACHE_CAPACITY;
+            }
+        };
+
+    public RegistrationServer(int port, int workers, int queueCapacity) throws IOException {
+        this(port, workers, queueCapacity, DEFAULT_MAX_BODY_MB);
+    }
+
+    // maxBodyMB: maior corpo de requisição aceito (acima dele, 413 sem ler o resto).
+    public RegistrationServer(int port, int workers, int queueCapacity, int maxBodyMB) throws IOException {
+        if (maxBodyMB <= 0) throw new IllegalArgumentException("maxBodyMB deve ser > 0");
+        this.maxBodyBytes = maxBodyMB * (1L << 20);
+        // Fila limitada: quando cheia, a requisição é recusada com 503 em vez de acumular memória.
+        this.jobExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                                                  new ArrayBlockingQueue<>(queueCapacity),
+                                                  new ThreadPoolExecutor.AbortPolicy());
+        // As conexões também: uma thread por trabalho em execução ou na fila (cada uma espera o seu resultado),
+        // mais queueCapacity conexões esperando. As que não cabem vão para uma única thread que responde 503;
+        // se nem ela der conta, o HttpServer fecha a conexão.
+        this.overloadExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                                       new ArrayBlockingQueue<>(queueCapacity),
+                                                       runnable -> new Thread(runnable, OVERLOAD_THREAD),
+                                                       new ThreadPoolExecutor.AbortPolicy());
+        this.requestExecutor = new ThreadPoolExecutor(workers + queueCapacity, workers + queueCapacity,
+                                                      0L, TimeUnit.MILLISECONDS,
+                                                      new ArrayBlockingQueue<>(queueCapacity),
+                                                      (runnable, executor) -> overloadExecutor.execute(runnable));
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/register", this::handleRegister);
+        this.server.createContext("/stats", this::handleStats);
+        this.server.setExecutor(requestExecutor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.printf("Servidor de registro em http://127.0.0.1:%d/register\n", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        shutdown.stop("servidor encerrando");
+        server.stop(0);
+        jobExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+        overloadExecutor.shutdownNow();
+    }
+
+    private void handleRegister(HttpExchange exchange) throws IOException {
+        try {
+            if (Thread.currentThread().getName().equals(OVERLOAD_THREAD)) {
+                sendError(exchange, 503, "Servidor ocupado");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+
+            String body = readBody(exchange, maxBodyBytes);
+            if (body == null) {
+                sendError(exchange, 413, "Corpo da requisição maior que " + maxBodyBytes / (1 << 20) + " MB");
+                return;
+            }
+            Map<String, Object> request = Json.parseObject(body);
+            String algorithm = requireString(request, "algorithm");
+            String metric = requireString(request, "metric");
+            byte[] modelBytes = Base64.getDecoder().decode(requireString(request, "model"));
+            byte[] sceneBytes = Base64.getDecoder().decode(requireString(request, "scene"));
+            RegistrationConfig config = parseConfig(request);
+            checkImageSizes(algorithm, metric, config, modelBytes, sceneBytes);
+
+            String key = contentHash(algorithm.toUpperCase() + "/" + metric.toUpperCase(), config.toString(),
+                                     modelBytes, sceneBytes);
+            boolean cached = true;
+            CompletableFuture<ImageRegistration.RegistrationResult> future;
+            synchronized (cache) {
+                future = cache.get(key);
+                if (future == null) {
+                    cached = false;
+                    RegistrationStats.INSTANCE.recordCacheMiss();
+                    future = submit(algorithm, metric, config, modelBytes, sceneBytes);
+                    cache.put(key, future);
+                } else {
+                    RegistrationStats.INSTANCE.recordCacheHit();
+                }
+            }
+
+            ImageRegistration.RegistrationResult result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                synchronized (cache) {
+                    cache.remove(key, future); // Falhas não ficam no cache.
+                }
+                Throwable cause = e.getCause();
+                if (cause instanceof IllegalArgumentException) {
+                    sendError(exchange, 400, cause.getMessage());
+                } else {
+                    sendError(exchange, 500, String.valueOf(cause));
+                }
+                return;
+            }
+
+            // Resultado parcial (prazo timeoutMillis esgotado, encerramento) não fica no cache:
+            if (result.stopped) {
+                synchronized (cache) {
+                    cache.remove(key, future);
+                }
+            }
+
+            String json = result.toJson();
+            send(exchange, 200, json.substring(0, json.length() - 1) + ",\"cached\":" + cached + "}");
+        } catch (RejectedExecutionException e) {
+            sendError(exchange, 503, "Fila de registro cheia");
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Servidor encerrando");
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // GET /stats: contadores globais (os mesmos publicados via JMX):
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, RegistrationStats.INSTANCE.toJson());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Coloca o registro na fila de execução (lança RejectedExecutionException se a fila estiver cheia):
+    private CompletableFuture<ImageRegistration.RegistrationResult> submit(String algorithm, String metric, RegistrationConfig config,
+                                                                           byte[] modelBytes, byte[] sceneBytes) {
+        config.stop = shutdown;
+        return CompletableFuture.supplyAsync(() -> {
+            PixelImage model = decodeImage(modelBytes, "model");
+            PixelImage scene = decodeImage(sceneBytes, "scene");
+            ImageRegistration.RegistrationResult result = ImageRegistration.execute(algorithm, metric, model, scene, config);
+            if (result == null) {
+                throw new IllegalStateException("Algoritmo falhou");
+            }
+            return result;
+        }, jobExecutor);
+    }
+
+    // Limites conferidos só com os cabeçalhos, antes de enfileirar e de decodificar: dimensões até
+    // PixelImage.MAX_PIXELS e memória estimada dentro de maxMemoryMB (ResourceLimits).
+    private static void checkImageSizes(String algorithm, String metric, RegistrationConfig config, byte[] modelBytes, byte[] sceneBytes) {
+        int[] model = imageSize(modelBytes, "model");
+        int[] scene = imageSize(sceneBytes, "scene");
+        ResourceLimits.checkMemory(algorithm, metric, model[0], model[1], scene[0], scene[1], config);
+    }
+
+    // {largura, altura} lidas do cabeçalho da imagem, sem decodificar os pixels:
+    private static int[] imageSize(byte[] bytes, String field) {
+        int[] size;
+        try {
+            if (Netpbm.isNetpbm(bytes)) {
+                size = Netpbm.size(bytes);
+            } else {
+                size = null;
+                try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+                    Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+                    if (readers != null && readers.hasNext()) {
+                        ImageReader reader = readers.next();
+                        try {
+                            reader.setInput(in, true, true);
+                            size = new int[] {reader.getWidth(0), reader.getHeight(0)};
+                        } finally {
+                            reader.dispose();
+                        }
+                    }
+                }
+                if (size == null) {
+                    throw new IllegalArgumentException("Formato de imagem não reconhecido em '" + field + "'");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem inválida em '" + field + "': " + e.getMessage());
+        }
+        if ((long) size[0] * size[1] > PixelImage.MAX_PIXELS) {
+            throw new IllegalArgumentException("Imagem grande demais em '" + field + "': " + size[0] + "x" + size[1]
+                                               + " (máximo " + PixelImage.MAX_PIXELS + " pixels)");
+        }
+        return size;
+    }
+
+    // Decodifica direto para o buffer primitivo (PGM/PPM sem passar pelo ImageIO):
+    private static PixelImage decodeImage(byte[] bytes, String field) {
+        try {
+            if (Netpbm.isNetpbm(bytes)) return Netpbm.read(bytes);
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (img == null) {
+                throw new IllegalArgumentException("Formato de imagem não reconhecido em '" + field + "'");
+            }
+            return PixelImage.fromBufferedImage(img);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem inválida em '" + field + "': " + e.getMessage());
+        }
+    }
+
+    // Configuração da requisição: preset (opcional) + sobrescritas em "config" (opcional), validadas antes de enfileirar:
+    @SuppressWarnings("unchecked")
+    private static RegistrationConfig parseConfig(Map<String, Object> request) {
+        Object preset = request.get("preset");
+        RegistrationConfig config = preset instanceof String ? RegistrationConfig.preset((String) preset)
+                                                             : RegistrationConfig.balanced();
+        Object overrides = request.get("config");
+        if (overrides instanceof Map) {
+            config.apply(RegistrationConfig.fromJson((Map<String, Object>) overrides));
+        }
+        // O cliente não escolhe arquivos no servidor:
+        if (config.checkpointFile != null) throw new IllegalArgumentException("checkpointFile não é aceito pelo servidor");
+        config.validate();
+        return config;
+    }
+
+    private static String requireString(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Campo obrigatório ausente: " + field);
+        }
+        return (String) value;
+    }
+
+    // SHA-256 do conteúdo das entradas e da configuração (cada campo prefixado pelo tamanho para evitar ambiguidades):
+    static String contentHash(String algorithm, String config, byte[] modelBytes, byte[] sceneBytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] part : new byte[][] {
+                    algorithm.getBytes(StandardCharsets.UTF_8), config.getBytes(StandardCharsets.UTF_8),
+                    modelBytes, sceneBytes}) {
+                digest.update(ByteBuffer.allocate(4).putInt(part.length).array());
+                digest.update(part);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Corpo da requisição, ou null se passa de maxBytes (pelo Content-Length, sem ler nada, ou durante a leitura):
+    private static String readBody(HttpExchange exchange, long maxBytes) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            if (length != null && Long.parseLong(length.trim()) > maxBytes) return null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Content-Length inválido: " + length);
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+            if (bytes.length > maxBytes) return null;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + Json.quote(String.valueOf(message)) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Uso: java RegistrationServer [porta] [workers] [capacidade da fila] [corpo máximo em MB]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_CAPACITY;
+        int maxBodyMB = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_BODY_MB;
+
+        RegistrationServer registrationServer = new RegistrationServer(port, workers, queueCapacity, maxBodyMB);
+        Runtime.getRuntime().addShutdownHook(new Thread(registrationServer::stop));
+        registrationServer.start();
+    }
+}
@@ -0,0 +1,195 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Contadores e histogramas globais do caminho crítico (avaliações de fitness, tempo por avaliação,
+// divisão warp/métrica e cache). Publicados via JMX em ImageRegistration:type=RegistrationStats.
+public class RegistrationStats implements RegistrationStatsMBean {
+    public static final RegistrationStats INSTANCE = new RegistrationStats();
+
+    // Uma a cada SPLIT_SAMPLE_INTERVAL avaliações é feita em dois passos (warp e depois métrica)
+    // para medir separadamente o custo de cada fase; as demais usam o kernel fundido.
+    static final int SPLIT_SAMPLE_INTERVAL = 64;
+
+    // Bucket i conta avaliações com duração em [2^i, 2^(i+1)) microssegundos:
+    private static final int HISTOGRAM_BUCKETS = 32;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private final LongAdder splitSamples = new LongAdder();
+    private final LongAdder warpNanos = new LongAdder();
+    private final LongAdder metricNanos = new LongAdder();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private final LongAdder runsStarted = new LongAdder();
+    private final LongAdder runsFinished = new LongAdder();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                INSTANCE, new ObjectName("ImageRegistration:type=RegistrationStats"));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Aviso: não foi possível registrar o MBean de estatísticas: " + e);
+        }
+    }
+
+    private RegistrationStats() {
+    }
+
+    /* REGISTRO (chamado pelo código de avaliação) */
+
+    // Indica se a próxima avaliação deve ser amostrada em dois passos:
+    boolean shouldSampleSplit() {
+        return evaluations.sum() % SPLIT_SAMPLE_INTERVAL == 0;
+    }
+
+    void recordEvaluation(long nanos) {
+        evaluations.increment();
+        evaluationNanos.add(nanos);
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        histogram.incrementAndGet(bucket);
+    }
+
+    void recordSplit(long warp, long metric) {
+        splitSamples.increment();
+        warpNanos.add(warp);
+        metricNanos.add(metric);
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordRunStarted() {
+        runsStarted.increment();
+    }
+
+    void recordRunFinished() {
+        runsFinished.increment();
+    }
+
+    /* LEITURA (JMX) */
+
+    @Override
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    @Override
+    public double getMeanEvaluationMicros() {
+        long n = evaluations.sum();
+        return n == 0 ? 0.0 : evaluationNanos.sum() / 1000.0 / n;
+    }
+
+    @Override
+    public double getEvaluationMicrosP50() {
+        return percentileMicros(0.50);
+    }
+
+    @Override
+    public double getEvaluationMicrosP99() {
+        return percentileMicros(0.99);
+    }
+
+    @Override
+    public long[] getEvaluationTimeHistogramMicros() {
+        long[] copy = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) copy[i] = histogram.get(i);
+        return copy;
+    }
+
+    @Override
+    public long getSampledSplitEvaluations() {
+        return splitSamples.sum();
+    }
+
+    @Override
+    public double getSampledWarpFraction() {
+        long warp = warpNanos.sum();
+        long total = warp + metricNanos.sum();
+        return total == 0 ? 0.0 : (double) warp / total;
+    }
+
+    @Override
+    public long getSampledWarpNanos() {
+        return warpNanos.sum();
+    }
+
+    @Override
+    public long getSampledMetricNanos() {
+        return metricNanos.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getRunsStarted() {
+        return runsStarted.sum();
+    }
+
+    @Override
+    public long getRunsFinished() {
+        return runsFinished.sum();
+    }
+
+    @Override
+    public void reset() {
+        evaluations.reset();
+        evaluationNanos.reset();
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) histogram.set(i, 0);
+        splitSamples.reset();
+        warpNanos.reset();
+        metricNanos.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        runsStarted.reset();
+        runsFinished.reset();
+    }
+
+    // Percentil aproximado (limite superior do bucket onde o percentil cai):
+    private double percentileMicros(double q) {
+        long[] counts = getEvaluationTimeHistogramMicros();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0.0;
+
+        long target = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.pow(2, i + 1);
+        }
+        return Math.pow(2, counts.length);
+    }
+
+    // Snapshot em JSON (usado no relatório de cada execução):
+    String toJson() {
+        return "{\"evaluations\":" + getEvaluations()
+             + ",\"meanEvaluationMicros\":" + Json.number(getMeanEvaluationMicros())
+             + ",\"evaluationMicrosP50\":" + Json.number(getEvaluationMicrosP50())
+             + ",\"evaluationMicrosP99\":" + Json.number(getEvaluationMicrosP99())
+             + ",\"sampledSplitEvaluations\":" + getSampledSplitEvaluations()
+             + ",\"sampledWarpFraction\":" + Json.number(getSampledWarpFraction())
+             + ",\"cacheHits\":" + getCacheHits()
+             + ",\"cacheMisses\":" + getCacheMisses() + "}";
+    }
+}
@@ -0,0 +1,21 @@
+// Interface JMX das estatísticas de registro (visível no JConsole/VisualVM em ImageRegistration:type=RegistrationStats).
+public interface RegistrationStatsMBean {
+    long getEvaluations();
+    double getMeanEvaluationMicros();
+    double getEvaluationMicrosP50();
+    double getEvaluationMicrosP99();
+    long[] getEvaluationTimeHistogramMicros();
+
+    long getSampledSplitEvaluations();
+    double getSampledWarpFraction();
+    long getSampledWarpNanos();
+    long getSampledMetricNanos();
+
+    long getCacheHits();
+    long getCacheMisses();
+
+    long getRunsStarted();
+    long getRunsFinished();
+
+    void reset();
+}
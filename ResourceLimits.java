@@ -0,0 +1,98 @@
+import java.util.Locale;
+
+// Limites de recursos de uma execução (RegistrationConfig.maxThreads e maxMemoryMB).
+//
+// Threads: os pools dos otimizadores (avaliação em lote, AGA, APSO, ilhas do IGA) ficam limitados a maxThreads.
+// Abaixo do número de núcleos, os kernels das métricas também deixam de dividir a imagem no ForkJoinPool
+// comum (que é de todas as execuções): cada avaliação roda inteira na thread que a pediu.
+//
+// Memória: não há como limitar o heap de uma única execução na JVM, então o limite é de admissão: a memória
+// de trabalho é estimada a partir das imagens e da configuração, e uma execução acima de maxMemoryMB é
+// recusada antes de alocar qualquer coisa.
+final class ResourceLimits {
+    private ResourceLimits() {
+    }
+
+    // Threads que a execução pode usar para requested tarefas simultâneas:
+    static int threads(RegistrationConfig config, int requested) {
+        return config.maxThreads > 0 ? Math.max(1, Math.min(requested, config.maxThreads)) : requested;
+    }
+
+    // Número de candidatos simultâneos a informar aos kernels (RegistrationMetrics.chooseMode): com um limite
+    // abaixo do número de núcleos, o mesmo que "núcleos ocupados", o que mantém a avaliação sequencial.
+    static int kernelCandidates(RegistrationConfig config, int concurrentCandidates) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return config.maxThreads > 0 && config.maxThreads < cores ? Math.max(concurrentCandidates, cores) : concurrentCandidates;
+    }
+
+    // Recusa (IllegalArgumentException) uma execução cuja memória estimada passa de maxMemoryMB:
+    static void checkMemory(String algorithm, String metric, PixelImage model, PixelImage scene, RegistrationConfig config) {
+        checkMemory(algorithm, metric, model.width, model.height, scene.width, scene.height, config);
+    }
+
+    // O mesmo só com as dimensões (o servidor confere antes de decodificar as imagens):
+    static void checkMemory(String algorithm, String metric, int modelWidth, int modelHeight, int sceneWidth, int sceneHeight,
+                            RegistrationConfig config) {
+        if (config.maxMemoryMB == 0) return;
+        long bytes = estimateBytes(algorithm, metric, modelWidth, modelHeight, sceneWidth, sceneHeight, config);
+        if (bytes > config.maxMemoryMB * (1L << 20)) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "Memória estimada de %s/%s (%.1f MB) excede maxMemoryMB=%d", algorithm, metric, bytes / (double) (1 << 20), config.maxMemoryMB));
+        }
+    }
+
+    // Estimativa (bytes) da memória de trabalho: imagens, buffers por thread de avaliação, população e os
+    // vetores por pixel do FFD. Não inclui a própria JVM.
+    static long estimateBytes(String algorithm, String metric, PixelImage model, PixelImage scene, RegistrationConfig config) {
+        return estimateBytes(algorithm, metric, model.width, model.height, scene.width, scene.height, config);
+    }
+
+    static long estimateBytes(String algorithm, String metric, int modelWidth, int modelHeight, int sceneWidth, int sceneHeight,
+                              RegistrationConfig config) {
+        boolean mi = metric.equalsIgnoreCase("MI");
+        boolean gc = metric.equalsIgnoreCase("GC");
+        String engine = algorithm.toUpperCase(Locale.ROOT);
+        long modelPixels = (long) modelWidth * modelHeight;
+        long pixels = (long) Math.min(modelWidth, sceneWidth) * Math.min(modelHeight, sceneHeight);
+        long histogram = 2L * config.numBins * config.numBins * Long.BYTES; // Histograma conjunto + P(A,B)
+
+        long bytes = 4 * (modelPixels + (long) sceneWidth * sceneHeight);
+        if (mi) bytes += 4 * modelPixels; // PixelImage.bins do modelo
+        // GC: gx e gy (float) das duas imagens e, no pior caso, todos os pixels do modelo na lista de bordas:
+        if (gc) bytes += 8 * ((long) sceneWidth * sceneHeight) + 12 * modelPixels;
+
+        if (engine.equals("FFD")) {
+            // baseU, baseV, dispX, dispY (double) e value, trial (int) por pixel, mais as bases da grade:
+            bytes += 40 * pixels + 36L * (modelWidth + modelHeight) + histogram;
+        } else {
+            // Cada avaliação simultânea pode guardar a cena transformada (avaliação amostrada); na MI, cada
+            // thread (ou faixa de linhas, com a imagem dividida entre os núcleos) tem seu histograma:
+            int candidates = concurrentCandidates(engine, config);
+            int cores = Runtime.getRuntime().availableProcessors();
+            bytes += candidates * 4 * pixels + (mi ? Math.max(candidates, threads(config, cores)) * histogram : 0);
+            // População/enxame: até 4 vetores de parâmetros por indivíduo (GA: 2 gerações; PSO: posição,
+            // pBest, velocidade) e o arquivo do surrogate:
+            int individuals = Math.max(config.populationSize, config.swarmSize);
+            bytes += 4L * individuals * (config.dimensions() + 1) * Double.BYTES;
+            if (config.surrogate) bytes += 2048L * (config.dimensions() + 1) * Double.BYTES;
+        }
+        // Estimativa inicial: a FFT trabalha em imagens de até MAX_SIZE x MAX_SIZE; features, na imagem inteira.
+        if (config.initializer != Initializer.Mode.NONE) {
+            long side = FourierInitializer.MAX_SIZE;
+            bytes += 12 * Double.BYTES * Math.max(side * side, config.initializerMethod == Initializer.Method.FEATURES ? pixels : 0);
+        }
+        return bytes;
+    }
+
+    private static int concurrentCandidates(String engine, RegistrationConfig config) {
+        switch (engine) {
+            case "GA":
+            case "PSO":
+                return 1;
+            case "IGA":
+                return threads(config, Math.min(config.islands, Runtime.getRuntime().availableProcessors()));
+            default:
+                return AsyncGA.workers(config);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Random com estado exportável, para o checkpoint (Checkpoint) retomar a sequência exatamente de onde parou.
+// Usa o mesmo gerador congruencial de 48 bits e o mesmo nextGaussian (método polar) de java.util.Random, mas
+// com o estado em campos próprios. Como os geradores dos otimizadores, não é para uso por várias threads.
+class RestorableRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long seed;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    RestorableRandom() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    RestorableRandom(long seed) {
+        super(seed); // Random(long) chama setSeed, que inicializa os campos abaixo
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected int next(int bits) {
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    // Estado completo: semente e o segundo valor Gaussiano guardado (se houver):
+    long[] state() {
+        return new long[] {seed, haveNextNextGaussian ? 1 : 0, Double.doubleToRawLongBits(nextNextGaussian)};
+    }
+
+    void restore(long[] state) {
+        if (state.length != 3) throw new IllegalArgumentException("Estado do gerador inválido");
+        seed = state[0] & MASK;
+        haveNextNextGaussian = state[1] != 0;
+        nextNextGaussian = Double.longBitsToDouble(state[2]);
+    }
+}
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Relatório de uma execução (runGA/runPSO): curva de convergência, avaliações (e quantas até o fitness alvo),
+// tempo e memória alocada por geração. Também emite um GenerationEvent (JFR) por geração.
+// recordEvaluation pode ser chamado por várias threads (otimizadores paralelos); as gerações são
+// marcadas pela thread que coordena a execução, e a memória alocada medida é a dessa thread.
+// Os marcos da execução (gerações, novo melhor, parada) também vão para o ProgressListener da configuração.
+public class RunReport {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Uma linha da curva de convergência:
+    static class GenerationRecord {
+        final int generation;
+        final double bestFitness;
+        final long evaluations;    // Avaliações feitas durante a geração
+        final long nanos;
+        final long allocatedBytes; // Alocação da thread do otimizador (-1 se indisponível)
+
+        GenerationRecord(int generation, double bestFitness, long evaluations, long nanos, long allocatedBytes) {
+            this.generation = generation;
+            this.bestFitness = bestFitness;
+            this.evaluations = evaluations;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private final String engine;
+    private final boolean maximize;  // true para MI, false para MSE
+    private final double target;     // Fitness alvo
+    private final List<GenerationRecord> generations = new ArrayList<>();
+    private final long startNanos;
+    private long endNanos;
+    private long evaluations;
+    private double bestFitness = Double.NaN; // Melhor fitness já avaliado
+    private long evaluationsToTarget = -1;
+    private SurrogateModel surrogate; // null se a execução não usa surrogate
+
+    private final ProgressListener progress;
+    private final StopToken stop;        // Para identificar uma parada externa no motivo do fim
+    private String stopReason;           // Definido pelo otimizador (alvo, convergência); null = ver finish
+    private String interruptReason;      // Motivo do StopToken, se foi ele que parou a busca (definido em finish)
+    private double bestReported = Double.NaN; // Melhor fitness já enviado em newBest
+    private Future<?> lastDelivery;      // Último evento agendado (finish espera a entrega)
+
+    // Estado da geração em andamento:
+    private GenerationEvent event;
+    private int generation;
+    private long generationStartNanos;
+    private long generationStartEvaluations;
+    private long generationStartAllocated;
+
+    public RunReport(String engine, boolean maximize, double target) {
+        this(engine, maximize, target, ProgressListener.NONE, null);
+    }
+
+    // Com o ProgressListener e o StopToken da configuração:
+    public RunReport(String engine, boolean maximize, double target, RegistrationConfig config) {
+        this(engine, maximize, target, config.progress, config.stop);
+    }
+
+    private RunReport(String engine, boolean maximize, double target, ProgressListener progress, StopToken stop) {
+        this.engine = engine;
+        this.maximize = maximize;
+        this.target = target;
+        this.progress = progress == null ? ProgressListener.NONE : progress;
+        this.stop = stop;
+        this.startNanos = System.nanoTime();
+        RegistrationStats.INSTANCE.recordRunStarted();
+    }
+
+    // Registra uma avaliação de fitness (atualiza o melhor valor e as avaliações até o alvo):
+    public synchronized void recordEvaluation(double fitness) {
+        evaluations++;
+        if (Double.isNaN(bestFitness) || (maximize ? fitness > bestFitness : fitness < bestFitness)) {
+            bestFitness = fitness;
+        }
+        if (evaluationsToTarget < 0 && (maximize ? fitness >= target : fitness <= target)) {
+            evaluationsToTarget = evaluations;
+        }
+    }
+
+    void setSurrogate(SurrogateModel surrogate) {
+        this.surrogate = surrogate;
+    }
+
+    public void beginGeneration(int generation) {
+        this.generation = generation;
+        this.generationStartNanos = System.nanoTime();
+        this.generationStartEvaluations = getEvaluations();
+        this.generationStartAllocated = allocatedBytes();
+        this.event = new GenerationEvent();
+        this.event.begin();
+        if (progress != ProgressListener.NONE) deliver(() -> progress.generationStarted(engine, generation));
+    }
+
+    public void endGeneration(double bestFitness) {
+        long allocated = allocatedBytes();
+        long allocatedDelta = allocated < 0 ? -1 : allocated - generationStartAllocated;
+        long generationEvaluations = getEvaluations() - generationStartEvaluations;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.generation = generation;
+            event.bestFitness = bestFitness;
+            event.evaluations = generationEvaluations;
+            event.allocatedBytes = allocatedDelta;
+            event.commit();
+        }
+        event = null;
+
+        generations.add(new GenerationRecord(generation, bestFitness, generationEvaluations,
+                                             System.nanoTime() - generationStartNanos, allocatedDelta));
+
+        if (progress != ProgressListener.NONE) {
+            int generation = this.generation;
+            long evaluations = getEvaluations();
+            deliver(() -> progress.generationFinished(engine, generation, bestFitness, evaluations));
+            if (Double.isNaN(bestReported) || (maximize ? bestFitness > bestReported : bestFitness < bestReported)) {
+                bestReported = bestFitness;
+                deliver(() -> progress.newBest(engine, generation, bestFitness));
+            }
+        }
+    }
+
+    // Motivo da parada antes do fim do orçamento (ex.: "fitness alvo atingido"); vale o primeiro informado.
+    // Pode ser chamado pelas threads de avaliação.
+    public synchronized void setStopReason(String reason) {
+        if (stopReason == null) stopReason = reason;
+    }
+
+    // Encerra a medição e fixa o motivo da parada. Os otimizadores chamam finish logo que o laço de busca
+    // termina, então um StopToken que só para depois disso (ex.: prazo vencendo logo após a última geração)
+    // não marca a execução como interrompida; um motivo já informado (fitness alvo) também prevalece.
+    // Com um ProgressListener, espera a entrega dos eventos desta execução (um listener lento atrasa só o
+    // retorno da execução, não as gerações).
+    public void finish() {
+        this.endNanos = System.nanoTime();
+        RegistrationStats.INSTANCE.recordRunFinished();
+        String reason;
+        synchronized (this) {
+            if (stopReason == null) {
+                String interrupt = stop != null ? stop.reason() : null;
+                if (interrupt != null) {
+                    interruptReason = interrupt;
+                    stopReason = "interrompido: " + interrupt;
+                } else {
+                    stopReason = "orçamento esgotado";
+                }
+            }
+            reason = stopReason;
+        }
+        if (progress == ProgressListener.NONE) return;
+
+        String finalReason = reason;
+        double best = getBestFitness();
+        long evaluations = getEvaluations();
+        deliver(() -> progress.finished(engine, finalReason, best, evaluations));
+        try {
+            lastDelivery.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // ProgressDelivery já registra as falhas do listener
+        }
+    }
+
+    // Mensagem informativa para o ProgressListener, na ordem dos demais eventos desta execução:
+    public void message(String text) {
+        if (progress != ProgressListener.NONE) deliver(() -> progress.message(engine, text));
+    }
+
+    // O mesmo fora de uma execução (estimativa inicial, checkpoint), com o listener da configuração. Fica na
+    // mesma fila, então chega antes dos eventos da execução que vem depois:
+    static void message(RegistrationConfig config, String source, String text) {
+        ProgressListener progress = config.progress;
+        if (progress != null && progress != ProgressListener.NONE) ProgressDelivery.submit(() -> progress.message(source, text));
+    }
+
+    private void deliver(Runnable event) {
+        lastDelivery = ProgressDelivery.submit(event);
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    // Motivo da parada (null antes de finish):
+    public synchronized String getStopReason() {
+        return stopReason;
+    }
+
+    // Motivo do StopToken (prazo, cancelamento, outra execução) se ele interrompeu a busca; null se a busca
+    // terminou pelo orçamento, pelo fitness alvo ou por convergência:
+    public synchronized String getInterruptReason() {
+        return interruptReason;
+    }
+
+    public synchronized long getEvaluations() {
+        return evaluations;
+    }
+
+    public synchronized double getBestFitness() {
+        return bestFitness;
+    }
+
+    // Número de avaliações até atingir o fitness alvo (-1 se não atingiu):
+    public synchronized long getEvaluationsToTarget() {
+        return evaluationsToTarget;
+    }
+
+    public long getWallNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    // Bytes alocados pela thread atual (extensão da HotSpot); -1 se não suportado:
+    @SuppressWarnings("deprecation")
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) THREADS;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    // Relatório legível por máquina. As estatísticas globais (RegistrationStats) são acumuladas
+    // desde o início da JVM e incluem todas as execuções.
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"engine\":").append(Json.quote(engine))
+          .append(",\"evaluations\":").append(evaluations)
+          .append(",\"wallMillis\":").append(Json.number(getWallNanos() / 1e6))
+          .append(",\"bestFitness\":").append(Json.number(bestFitness))
+          .append(",\"target\":").append(Json.number(target))
+          .append(",\"evaluationsToTarget\":").append(evaluationsToTarget)
+          .append(",\"generations\":[");
+        for (int i = 0; i < generations.size(); i++) {
+            GenerationRecord g = generations.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"generation\":").append(g.generation)
+              .append(",\"bestFitness\":").append(Json.number(g.bestFitness))
+              .append(",\"evaluations\":").append(g.evaluations)
+              .append(",\"millis\":").append(Json.number(g.nanos / 1e6))
+              .append(",\"allocatedBytes\":").append(g.allocatedBytes).append('}');
+        }
+        sb.append(']');
+        if (surrogate != null) sb.append(",\"surrogate\":").append(surrogate.toJson(evaluations));
+        sb.append(",\"globalStats\":").append(RegistrationStats.INSTANCE.toJson()).append('}');
+        return sb.toString();
+    }
+
+    public void writeTo(Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+}
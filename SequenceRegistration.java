@@ -0,0 +1,181 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Registro de sequências (vídeo, séries de cortes) em que quadros consecutivos mudam pouco:
+//   java SequenceRegistration <diretório | -> [ALGORITMO/MÉTRICA] [--chave=valor ...]
+// O primeiro quadro é o modelo; cada quadro seguinte é registrado contra ele. Com "-", os caminhos dos
+// quadros chegam pela entrada padrão, um por linha, à medida que são produzidos.
+//
+// O primeiro registro busca no espaço inteiro (com o initializer configurado, se houver). Nos seguintes,
+// a solução do quadro anterior vira o initialGuess e os limites são restritos a uma região de confiança
+// em torno dela (sequenceRadius do intervalo de cada parâmetro). Se a solução cair na borda da região
+// (o movimento foi maior que o esperado), o raio dobra para o próximo quadro; senão volta aos poucos para
+// sequenceRadius. Como a busca parte de perto da resposta, esses quadros usam só sequenceBudget das
+// gerações/iterações configuradas. O modelo é decodificado uma vez (com os bins da MI) e reaproveitado em todos os quadros.
+public class SequenceRegistration {
+    private static final double EDGE = 0.05;    // Fração da região de confiança considerada borda
+    private static final int MIN_GENERATIONS = 5; // Piso do orçamento reduzido por sequenceBudget
+
+    private final String algorithm;
+    private final String metric;
+    private final RegistrationConfig config;
+    private final PixelImage model;
+    private final ParameterSpace space;
+    private double[] previous; // Solução do quadro anterior (null antes do primeiro registro)
+    private double radius;     // Raio atual da região de confiança (fração do intervalo)
+
+    public SequenceRegistration(String algorithm, String metric, PixelImage model, RegistrationConfig config) {
+        config.validate();
+        if (algorithm.equalsIgnoreCase("FFD")) {
+            throw new IllegalArgumentException("FFD não é suportado em sequências (use um algoritmo de busca global)");
+        }
+        this.algorithm = algorithm;
+        this.metric = metric;
+        this.config = config;
+        this.model = model;
+        this.space = ParameterSpace.fromConfig(config);
+        this.radius = config.sequenceRadius;
+    }
+
+    // Registra o próximo quadro contra o modelo:
+    public ImageRegistration.RegistrationResult next(PixelImage frame) {
+        RegistrationConfig frameConfig = config;
+        if (previous != null) {
+            frameConfig = config.copy();
+            frameConfig.initializer = Initializer.Mode.NONE;
+            frameConfig.initialGuess = previous.clone();
+            Initializer.narrow(frameConfig, space, radius);
+            frameConfig.maxGenerations = reduced(config.maxGenerations);
+            frameConfig.maxIterations = reduced(config.maxIterations);
+        }
+
+        ImageRegistration.RegistrationResult result = ImageRegistration.execute(algorithm, metric, model, frame, frameConfig);
+        if (result == null) return null;
+
+        if (previous != null) {
+            radius = atEdge(frameConfig, result.parameters)
+                    ? Math.min(1.0, radius * 2)
+                    : Math.max(config.sequenceRadius, radius / 2);
+        }
+        previous = result.parameters.clone();
+        return result;
+    }
+
+    private int reduced(int budget) {
+        return Math.min(budget, Math.max(MIN_GENERATIONS, (int) Math.round(budget * config.sequenceBudget)));
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    // A solução está na borda da região de confiança (e não numa borda do espaço original)?
+    private boolean atEdge(RegistrationConfig frameConfig, double[] params) {
+        ParameterSpace region = ParameterSpace.fromConfig(frameConfig);
+        for (int i = 0; i < region.size(); i++) {
+            if (region.isPeriodic(i)) continue;
+            double u = region.normalize(i, params[i]);
+            if (u < EDGE && region.min[i] > space.min[i]) return true;
+            if (u > 1 - EDGE && region.max[i] < space.max[i]) return true;
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) positional.add(arg);
+        }
+        if (positional.isEmpty()) {
+            System.err.println("Uso: java SequenceRegistration <diretório | -> [ALGORITMO/MÉTRICA] [--chave=valor ...]");
+            return;
+        }
+        String[] combination = (positional.size() > 1 ? positional.get(1) : "CMAES/MSE").split("/");
+        if (combination.length != 2) {
+            System.err.println("Combinação inválida: " + positional.get(1) + " (use ALGORITMO/MÉTRICA, ex.: CMAES/MSE)");
+            return;
+        }
+        RegistrationConfig config = RegistrationConfig.fromArgs(args);
+        // Só as mensagens (estimativa inicial, checkpoint) no console; uma linha por geração seria demais por quadro:
+        config.progress = new ProgressListener() {
+            @Override
+            public void message(String engine, String text) {
+                ProgressListener.CONSOLE.message(engine, text);
+            }
+        };
+
+        Iterator<Path> frames = frames(positional.get(0));
+        SequenceRegistration sequence = null;
+        List<Long> latencies = new ArrayList<>();
+        int index = 0;
+        while (frames.hasNext()) {
+            Path path = frames.next();
+            PixelImage frame = ImageTransforms.loadPixels(path.toString());
+            if (frame == null) {
+                System.err.println("Quadro ignorado (não foi possível carregar): " + path);
+                continue;
+            }
+            if (sequence == null) {
+                sequence = new SequenceRegistration(combination[0], combination[1], frame, config);
+                System.out.println("Modelo: " + path);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            ImageRegistration.RegistrationResult result = sequence.next(frame);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            index++;
+            if (result == null) {
+                System.out.printf("Quadro %d (%s): falhou\n", index, path.getFileName());
+                continue;
+            }
+            latencies.add(millis);
+            System.out.printf(Locale.ROOT, "Quadro %d (%s): %s = %.4f em %d ms, parâmetros %s (próximo raio %.3f)\n",
+                              index, path.getFileName(), result.fitnessType, result.fitness, millis,
+                              Arrays.toString(result.parameters), sequence.getRadius());
+        }
+        printLatencies(latencies);
+    }
+
+    // Quadros de um diretório (ordem alfabética) ou, com "-", caminhos lidos da entrada padrão:
+    private static Iterator<Path> frames(String source) throws IOException {
+        if (source.equals("-")) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            return reader.lines().map(String::trim).filter(line -> !line.isEmpty()).map(Paths::get).iterator();
+        }
+        try (Stream<Path> files = Files.list(Paths.get(source))) {
+            return files.filter(SequenceRegistration::isImage).sorted().collect(Collectors.toList()).iterator();
+        }
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
+            || name.endsWith(".bmp") || name.endsWith(".gif") || Netpbm.handles(name);
+    }
+
+    private static void printLatencies(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            System.out.println("Nenhum quadro registrado.");
+            return;
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("Quadros: %d | latência média %.1f ms, p50 %d ms, p95 %d ms, máx %d ms\n",
+                          sorted.length, mean, sorted[sorted.length / 2],
+                          sorted[Math.min(sorted.length - 1, (int) Math.ceil(0.95 * sorted.length) - 1)],
+                          sorted[sorted.length - 1]);
+    }
+}
@@ -0,0 +1,19 @@
+// Melhor solução encontrada por um otimizador: parâmetros reais (sx, sy, theta em graus, tx, ty, ou os
+// deslocamentos dos cantos no modo homografia) e fitness.
+public class Solution {
+    final double[] parameters;
+    final double fitness;
+
+    public Solution(double[] parameters, double fitness) {
+        this.parameters = parameters;
+        this.fitness = fitness;
+    }
+
+    public double[] getParameters() {
+        return parameters;
+    }
+
+    public double getFitness() {
+        return fitness;
+    }
+}
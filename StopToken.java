@@ -0,0 +1,51 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+// Sinal de parada compartilhado entre execuções (ex.: EnsembleRunner encerra as demais combinações quando
+// uma atinge o alvo). Os otimizadores consultam o sinal (RegistrationConfig.stopRequested) antes de cada
+// avaliação e devolvem o melhor encontrado até ali, como no critério de parada por fitness alvo.
+//
+// Um token pode ter um prazo (withDeadline): para sozinho quando o prazo vence, ou quando o token pai para
+// (ex.: o prazo de uma execução dentro de uma comparação com stopOnTarget).
+public class StopToken {
+    private final AtomicReference<String> reason = new AtomicReference<>();
+    private final StopToken parent;   // null = sem pai
+    private final long deadlineNanos; // System.nanoTime() do prazo (só vale com timeoutMillis > 0)
+    private final long timeoutMillis; // 0 = sem prazo
+
+    public StopToken() {
+        this(null, 0);
+    }
+
+    private StopToken(StopToken parent, long timeoutMillis) {
+        this.parent = parent;
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    // Token que para com o pai (null = nenhum) ou depois de timeoutMillis (0 = sem prazo):
+    public static StopToken withDeadline(StopToken parent, long timeoutMillis) {
+        if (timeoutMillis < 0) throw new IllegalArgumentException("timeoutMillis deve ser >= 0");
+        return new StopToken(parent, timeoutMillis);
+    }
+
+    // Pede a parada; só o primeiro motivo é guardado:
+    public void stop(String reason) {
+        this.reason.compareAndSet(null, reason);
+    }
+
+    public boolean isStopped() {
+        if (reason.get() != null) return true;
+        if (parent != null && parent.isStopped()) {
+            stop(parent.reason());
+        } else if (timeoutMillis > 0 && System.nanoTime() - deadlineNanos >= 0) {
+            stop("prazo de " + timeoutMillis + " ms esgotado");
+        }
+        return reason.get() != null;
+    }
+
+    // Motivo da parada (null se não foi pedida):
+    public String reason() {
+        isStopped();
+        return reason.get();
+    }
+}
@@ -0,0 +1,201 @@
+// Modelo substituto (surrogate) da função objetivo: regressão k-NN sobre os parâmetros já avaliados.
+// Os otimizadores preveem o fitness dos candidatos de cada geração/iteração e só fazem a avaliação real
+// (warp + métrica) na fração mais promissora; os demais ficam com a previsão. Os pontos ficam no espaço
+// normalizado [0,1]^d (distância com o ângulo periódico, ver ParameterSpace) em um arquivo circular.
+//
+// A precisão é medida nos candidatos que receberam previsão e também avaliação real.
+class SurrogateModel {
+    private static final int CAPACITY = 2048; // Pontos mantidos (os mais antigos são substituídos)
+
+    private final ParameterSpace space;
+    private final boolean maximize;
+    private final int neighbors;
+    private final int warmup;
+    private final int dim;
+
+    // Arquivo de pontos avaliados (coordenadas normalizadas em um único vetor):
+    private final double[] points;
+    private final double[] values;
+    private int count;
+    private int next;
+
+    // Buffers reutilizados:
+    private final double[] query;
+    private final double[] nearestDistance;
+    private final double[] nearestValue;
+    private int[] order = new int[0];
+    private double[] predicted = new double[0]; // Previsões da última triagem, por índice do candidato
+    private boolean screening;                   // A última chamada de screen fez triagem
+
+    // Estatísticas:
+    private long screened;     // Candidatos que passaram pela triagem
+    private long skipped;      // Candidatos que ficaram só com a previsão
+    private long checked;      // Previsões comparadas com a avaliação real
+    private double absoluteError;
+    private double relativeError;
+
+    SurrogateModel(ParameterSpace space, boolean maximize, int neighbors, int warmup) {
+        this.space = space;
+        this.maximize = maximize;
+        this.neighbors = neighbors;
+        this.warmup = warmup;
+        this.dim = space.size();
+        this.points = new double[CAPACITY * dim];
+        this.values = new double[CAPACITY];
+        this.query = new double[dim];
+        this.nearestDistance = new double[neighbors];
+        this.nearestValue = new double[neighbors];
+    }
+
+    static SurrogateModel fromConfig(RegistrationConfig config, ParameterSpace space, boolean maximize) {
+        return config.surrogate ? new SurrogateModel(space, maximize, config.surrogateNeighbors, config.surrogateWarmup) : null;
+    }
+
+    // Só faz triagem depois de ter pontos suficientes:
+    boolean isReady() {
+        return count >= Math.max(warmup, neighbors);
+    }
+
+    // Triagem dos candidatos [from, size) da população (parâmetros reais, ou posições normalizadas do PSO):
+    // prevê o fitness de todos e marca como estimated, com a previsão como fitness, os que ficam fora da
+    // fração mais promissora. Antes do aquecimento não há triagem (todos ficam marcados para avaliação).
+    boolean screen(Population candidates, int from, double fraction, boolean normalized) {
+        for (int i = from; i < candidates.size; i++) candidates.estimated[i] = false;
+        screening = isReady();
+        if (!screening) return false;
+
+        if (predicted.length < candidates.size) predicted = new double[candidates.size];
+        for (int i = from; i < candidates.size; i++) {
+            int offset = candidates.offset(i);
+            for (int j = 0; j < dim; j++) {
+                double v = candidates.genes[offset + j];
+                query[j] = normalized ? v : space.normalize(j, v);
+            }
+            predicted[i] = predictNormalized();
+        }
+
+        int n = candidates.size - from;
+        if (order.length < n) order = new int[n];
+        // Ordena os índices pela previsão (inserção; n é o tamanho da população):
+        for (int k = 0; k < n; k++) {
+            int candidate = from + k;
+            int j = k;
+            while (j > 0 && better(predicted[candidate], predicted[order[j - 1]])) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = candidate;
+        }
+
+        // Ao menos um candidato é avaliado de verdade:
+        int keep = Math.max(1, (int) Math.ceil(fraction * n));
+        for (int k = keep; k < n; k++) {
+            candidates.fitness[order[k]] = predicted[order[k]];
+            candidates.estimated[order[k]] = true;
+        }
+        screened += n;
+        skipped += n - keep;
+        return true;
+    }
+
+    // Adiciona a avaliação real do candidato i (parâmetros reais) e, se ele passou pela última triagem,
+    // compara com a previsão:
+    void add(int candidate, double[] params, double fitness) {
+        if (screening && candidate < predicted.length) recordOutcome(predicted[candidate], fitness);
+        add(params, fitness);
+    }
+
+    // Adiciona uma avaliação real (parâmetros reais):
+    void add(double[] params, double fitness) {
+        int offset = next * dim;
+        for (int i = 0; i < dim; i++) points[offset + i] = space.normalize(i, params[i]);
+        values[next] = fitness;
+        next = (next + 1) % CAPACITY;
+        if (count < CAPACITY) count++;
+    }
+
+    // Previsão por média dos k vizinhos mais próximos, ponderada pelo inverso da distância:
+    double predict(double[] params) {
+        for (int i = 0; i < dim; i++) query[i] = space.normalize(i, params[i]);
+        return predictNormalized();
+    }
+
+    // Previsão para o ponto normalizado em query:
+    private double predictNormalized() {
+        int found = 0;
+        for (int p = 0; p < count; p++) {
+            double d2 = 0;
+            int offset = p * dim;
+            for (int i = 0; i < dim; i++) {
+                double d = space.normalizedDifference(i, points[offset + i], query[i]);
+                d2 += d * d;
+            }
+            // Inserção ordenada entre os k mais próximos:
+            if (found < neighbors || d2 < nearestDistance[found - 1]) {
+                int j = found < neighbors ? found++ : found - 1;
+                while (j > 0 && nearestDistance[j - 1] > d2) {
+                    nearestDistance[j] = nearestDistance[j - 1];
+                    nearestValue[j] = nearestValue[j - 1];
+                    j--;
+                }
+                nearestDistance[j] = d2;
+                nearestValue[j] = values[p];
+            }
+        }
+
+        double weightSum = 0;
+        double sum = 0;
+        for (int j = 0; j < found; j++) {
+            if (nearestDistance[j] == 0) return nearestValue[j]; // Ponto já avaliado.
+            double w = 1.0 / Math.sqrt(nearestDistance[j]);
+            weightSum += w;
+            sum += w * nearestValue[j];
+        }
+        return sum / weightSum;
+    }
+
+    // Compara uma previsão com a avaliação real do mesmo candidato:
+    private void recordOutcome(double predicted, double actual) {
+        double error = Math.abs(predicted - actual);
+        checked++;
+        absoluteError += error;
+        if (actual != 0) relativeError += error / Math.abs(actual);
+    }
+
+    private boolean better(double a, double b) {
+        return maximize ? a > b : a < b;
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+    double getMeanAbsoluteError() {
+        return checked == 0 ? 0.0 : absoluteError / checked;
+    }
+
+    double getMeanRelativeError() {
+        return checked == 0 ? 0.0 : relativeError / checked;
+    }
+
+    // Fração das avaliações que teriam sido feitas sem o surrogate e foram evitadas:
+    double savedFraction(long realEvaluations) {
+        long total = realEvaluations + skipped;
+        return total == 0 ? 0.0 : (double) skipped / total;
+    }
+
+    // Resumo para o console ao final da execução:
+    String summary(long realEvaluations) {
+        return String.format("Surrogate: %d avaliações evitadas (%.1f%%), erro relativo médio da previsão %.1f%% (%d comparações)",
+                             skipped, 100 * savedFraction(realEvaluations), 100 * getMeanRelativeError(), checked);
+    }
+
+    String toJson(long realEvaluations) {
+        return "{\"screened\":" + screened
+             + ",\"skipped\":" + skipped
+             + ",\"savedFraction\":" + Json.number(savedFraction(realEvaluations))
+             + ",\"checkedPredictions\":" + checked
+             + ",\"meanAbsoluteError\":" + Json.number(getMeanAbsoluteError())
+             + ",\"meanRelativeError\":" + Json.number(getMeanRelativeError()) + "}";
+    }
+}